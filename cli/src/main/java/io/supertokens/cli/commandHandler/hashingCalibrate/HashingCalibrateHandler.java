@@ -29,6 +29,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HashingCalibrateHandler extends CommandHandler {
     @Override
@@ -40,7 +41,15 @@ public class HashingCalibrateHandler extends CommandHandler {
             if (targetTimePerHashMsStr != null) {
                 targetTimePerHashMs = Integer.parseInt(targetTimePerHashMsStr);
             }
-            calibrateBCrypt(targetTimePerHashMs);
+
+            String hashingPoolSizeStr = CLIOptionsParser.parseOption("--with_bcrypt_hashing_pool_size", args);
+            // half the cores, so that bcrypt leaves some CPU for the other requests. The core's default is higher
+            // (max_server_pool_size), so that existing deployments can hash as many passwords at once as before.
+            int hashingPoolSize = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            if (hashingPoolSizeStr != null) {
+                hashingPoolSize = Integer.parseInt(hashingPoolSizeStr);
+            }
+            calibrateBCrypt(targetTimePerHashMs, hashingPoolSize);
         } else if (alg != null && alg.equalsIgnoreCase("argon2")) {
             String targetTimePerHashMsStr = CLIOptionsParser.parseOption("--with_time_per_hash_ms", args);
             int targetTimePerHashMs = 300;
@@ -91,6 +100,10 @@ public class HashingCalibrateHandler extends CommandHandler {
         options.add(new Option("--with_argon2_hashing_pool_size",
                 "If calibrating argon2 hashing, this value will affect how many maximum hashes can be computed " +
                         "concurrently. The default value is 1"));
+        options.add(new Option("--with_bcrypt_hashing_pool_size",
+                "If calibrating bcrypt, this value will affect how many maximum hashes can be computed " +
+                        "concurrently (each on its own thread). The default value is half the number of cores in the " +
+                        "system"));
         options.add(new Option("--with_argon2_max_memory_mb",
                 "If calibrating argon2, this value determines how much maximum memory (RAM), in MB, to use for " +
                         "password " +
@@ -110,7 +123,8 @@ public class HashingCalibrateHandler extends CommandHandler {
     @Override
     public String getUsage() {
         return "supertokens hashingCalibrate --with_alg=<argon2 | bcrypt> [--with_argon2_hashing_pool_size=1] " +
-                "[--with_argon2_max_memory_mb=1024] [--with_argon2_parallelism=<value>] [--with_time_per_hash_ms=300]";
+                "[--with_argon2_max_memory_mb=1024] [--with_argon2_parallelism=<value>] " +
+                "[--with_bcrypt_hashing_pool_size=<value>] [--with_time_per_hash_ms=300]";
     }
 
     @Override
@@ -118,10 +132,11 @@ public class HashingCalibrateHandler extends CommandHandler {
         return "hashingCalibrate [options]";
     }
 
-    private void calibrateBCrypt(int targetTimePerHashMs) {
+    private void calibrateBCrypt(int targetTimePerHashMs, int hashingPoolSize) {
         Logging.info("");
         Logging.info(Logging.ANSI_CYAN + "====Input Settings====" + Logging.ANSI_RESET);
         Logging.info("-> Target time per hash (--with_time_per_hash_ms): " + targetTimePerHashMs + " MS");
+        Logging.info("-> Number of max concurrent hashes (--with_bcrypt_hashing_pool_size): " + hashingPoolSize);
         Logging.info("");
         Logging.info("");
         Logging.info(Logging.ANSI_CYAN + "====Running algorithm====" + Logging.ANSI_RESET);
@@ -133,7 +148,7 @@ public class HashingCalibrateHandler extends CommandHandler {
         long finalAvgTime;
         int finalLogRounds;
         while (true) {
-            long currentTimeTaken = getApproxTimeForBcryptHashWith(currentLogRounds);
+            long currentTimeTaken = getApproxTimeForBcryptHashWith(currentLogRounds, hashingPoolSize);
             Logging.info("Took " + currentTimeTaken + " MS per hash");
             Logging.info("");
 
@@ -166,29 +181,43 @@ public class HashingCalibrateHandler extends CommandHandler {
         Logging.info("Average time per hash is: " + finalAvgTime + " MS");
         Logging.info("");
         Logging.info("bcrypt_log_rounds: " + finalLogRounds);
+        Logging.info("bcrypt_hashing_pool_size: " + hashingPoolSize);
         Logging.info("");
         Logging.info("====================" + Logging.ANSI_RESET);
         Logging.info(
-                "You should use this as a docker env variable or put this in the config.yaml file in the SuperTokens " +
+                "You should use these as docker env variables or put them in the config.yaml file in the SuperTokens " +
                         "installation directory.");
         Logging.info("");
 
     }
 
-    private long getApproxTimeForBcryptHashWith(int logRounds) {
+    // the core runs up to bcrypt_hashing_pool_size bcrypt hashes at the same time (each on its own thread), so we
+    // measure the time per hash while that many are running.
+    private long getApproxTimeForBcryptHashWith(int logRounds, int maxConcurrentHashes) {
         Logging.info("");
         Logging.info("Current log rounds: " + logRounds);
 
-        long avg = 0;
+        ExecutorService service = Executors.newFixedThreadPool(maxConcurrentHashes);
+        AtomicLong totalTime = new AtomicLong();
         int numberOfTries = 10;
-        for (int i = 0; i < numberOfTries; i++) {
-            long beforeTime = System.currentTimeMillis();
-            BCrypt.hashpw("somePassword", BCrypt.gensalt(logRounds));
-            avg += (System.currentTimeMillis() - beforeTime);
-            Logging.infoNoNewLine(".");
+        for (int i = 0; i < maxConcurrentHashes; i++) {
+            service.execute(() -> {
+                for (int y = 0; y < numberOfTries; y++) {
+                    long beforeTime = System.currentTimeMillis();
+                    BCrypt.hashpw("somePassword", BCrypt.gensalt(logRounds));
+                    totalTime.addAndGet(System.currentTimeMillis() - beforeTime);
+                    Logging.infoNoNewLine(".");
+                }
+            });
+        }
+
+        service.shutdown();
+        try {
+            service.awaitTermination(2, TimeUnit.MINUTES);
+        } catch (InterruptedException ignored) {
         }
 
-        return avg / numberOfTries;
+        return totalTime.get() / ((long) numberOfTries * maxConcurrentHashes);
     }
 
     private void calibrateArgon2Hashing(int targetTimePerHashMs, int hashingPoolSize, int maxMemoryMb,
@@ -0,0 +1,123 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.cli.commandHandler.start;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * AppCDS archive of the classes that the core loads, to reduce its startup time. A dynamic archive can only be used by
+ * the JVM build that created it, and records the paths, sizes and modification times of the jars on the classpath.
+ * So it can't be created at build time: the jars are copied (and so get other paths and modification times) on the
+ * way to an installation. Instead, a start without an archive makes the core's JVM dump one when it exits, using the
+ * installation's own JRE and jars, and the next start uses it.
+ *
+ * The dump goes to a file with a unique name (several instances can run from one installation), which the next start
+ * renames to core.jsa. A fingerprint of the jars and the JRE is saved next to the archive, and if it changes (for
+ * example, after an update), the archive is thrown away and created again.
+ *
+ * If the installation folder can't be written to, no archive is used or created.
+ */
+class AppCDSArchive {
+
+    private static final String ARCHIVE_NAME = "core.jsa";
+    private static final String NEW_ARCHIVE_PREFIX = "core.jsa.new-";
+    private static final String FINGERPRINT_NAME = "core.jsa.fingerprint";
+
+    // the JVM options to add to the command that starts the core
+    static List<String> getJvmOptions(String installationDir, String javaPath) {
+        List<String> options = new ArrayList<>();
+        File coreDir = new File(installationDir, "core");
+        if (!coreDir.canWrite()) {
+            return options;
+        }
+        try {
+            File archive = new File(coreDir, ARCHIVE_NAME);
+            File fingerprintFile = new File(coreDir, FINGERPRINT_NAME);
+            String fingerprint = getFingerprint(installationDir, javaPath);
+            if (!fingerprintFile.exists() || !fingerprint
+                    .equals(new String(Files.readAllBytes(fingerprintFile.toPath()), StandardCharsets.UTF_8))) {
+                deleteArchives(coreDir);
+                Files.write(fingerprintFile.toPath(), fingerprint.getBytes(StandardCharsets.UTF_8));
+            } else if (!archive.exists()) {
+                promoteNewArchive(coreDir, archive);
+            }
+
+            if (archive.exists()) {
+                options.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+                // if the archive doesn't match after all, the JVM ignores it instead of failing to start
+                options.add("-Xshare:auto");
+            } else {
+                File newArchive = new File(coreDir, NEW_ARCHIVE_PREFIX + UUID.randomUUID());
+                options.add("-XX:ArchiveClassesAtExit=" + newArchive.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            // the archive only speeds up startup, so the core is started without it
+            options.clear();
+        }
+        return options;
+    }
+
+    private static String getFingerprint(String installationDir, String javaPath) {
+        File java = new File(javaPath);
+        StringBuilder fingerprint = new StringBuilder(java.getAbsolutePath()).append(':').append(java.length())
+                .append(':').append(java.lastModified()).append('\n');
+        for (String folder : new String[] { "core", "plugin-interface" }) {
+            File[] jars = new File(installationDir, folder).listFiles((dir, name) -> name.endsWith(".jar"));
+            if (jars == null) {
+                continue;
+            }
+            Arrays.sort(jars);
+            for (File jar : jars) {
+                fingerprint.append(jar.getAbsolutePath()).append(':').append(jar.length()).append(':')
+                        .append(jar.lastModified()).append('\n');
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    private static void promoteNewArchive(File coreDir, File archive) throws IOException {
+        File[] newArchives = coreDir.listFiles((dir, name) -> name.startsWith(NEW_ARCHIVE_PREFIX));
+        if (newArchives == null || newArchives.length == 0) {
+            return;
+        }
+        Files.move(newArchives[0].toPath(), archive.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        for (int i = 1; i < newArchives.length; i++) {
+            Files.deleteIfExists(newArchives[i].toPath());
+        }
+    }
+
+    private static void deleteArchives(File coreDir) throws IOException {
+        File[] archives = coreDir.listFiles((dir, name) -> name.startsWith(ARCHIVE_NAME));
+        if (archives == null) {
+            return;
+        }
+        for (File archive : archives) {
+            // the JVM creates the archive as read only, which would stop it from being deleted on windows
+            archive.setWritable(true);
+            Files.deleteIfExists(archive.toPath());
+        }
+    }
+}
@@ -46,6 +46,9 @@ public class StartHandler extends CommandHandler {
         List<String> commands = new ArrayList<>();
         if (OperatingSystem.getOS() == OperatingSystem.OS.WINDOWS) {
             commands.add(installationDir + "jre\\bin\\java.exe");
+            for (String option : AppCDSArchive.getJvmOptions(installationDir, installationDir + "jre\\bin\\java.exe")) {
+                commands.add("\"" + option + "\"");
+            }
             commands.add("-classpath");
             commands.add("\"" + installationDir + "core\\*\";\"" + installationDir + "plugin-interface\\*\"");
             if (space != null) {
@@ -70,6 +73,7 @@ public class StartHandler extends CommandHandler {
         } else {
             commands.add(installationDir + "jre/bin/java");
             commands.add("-Djava.security.egd=file:/dev/urandom");
+            commands.addAll(AppCDSArchive.getJvmOptions(installationDir, installationDir + "jre/bin/java"));
             commands.add("-classpath");
             commands.add(installationDir + "core/*:" + installationDir + "plugin-interface/*");
             if (space != null) {
@@ -0,0 +1,92 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.webserver.WebserverAPI;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+// Unlike HttpRequestForTesting, this keeps connections alive across requests so that we measure the core and not
+// TCP handshakes. A single instance is safe to use from multiple threads.
+public class BenchmarkHttpClient {
+
+    private final HttpClient client;
+    private final String baseUrl;
+
+    public BenchmarkHttpClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    public int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30))
+                .header("cdi-version", WebserverAPI.getLatestCDIVersion()).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    public JsonObject post(String path, JsonObject body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30))
+                .header("cdi-version", WebserverAPI.getLatestCDIVersion())
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("POST " + path + " failed with status " + response.statusCode() + ": "
+                    + response.body());
+        }
+        return new JsonParser().parse(response.body()).getAsJsonObject();
+    }
+
+    public static JsonObject signUpBody(String email, String password) {
+        JsonObject body = new JsonObject();
+        body.addProperty("email", email);
+        body.addProperty("password", password);
+        return body;
+    }
+
+    public static JsonObject createSessionBody(String userId) {
+        JsonObject body = new JsonObject();
+        body.addProperty("userId", userId);
+        body.add("userDataInJWT", new JsonObject());
+        body.add("userDataInDatabase", new JsonObject());
+        body.addProperty("enableAntiCsrf", false);
+        return body;
+    }
+
+    public static JsonObject verifySessionBody(String accessToken) {
+        JsonObject body = new JsonObject();
+        body.addProperty("accessToken", accessToken);
+        body.addProperty("doAntiCsrfCheck", false);
+        body.addProperty("enableAntiCsrf", false);
+        return body;
+    }
+
+    public static JsonObject refreshSessionBody(String refreshToken) {
+        JsonObject body = new JsonObject();
+        body.addProperty("refreshToken", refreshToken);
+        body.addProperty("enableAntiCsrf", false);
+        return body;
+    }
+}
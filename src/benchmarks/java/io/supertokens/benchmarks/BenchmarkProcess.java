@@ -0,0 +1,111 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks;
+
+import io.supertokens.Main;
+import io.supertokens.ProcessState;
+import io.supertokens.pluginInterface.PluginInterfaceTesting;
+import io.supertokens.test.TestingProcessManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+// Boots the core in-process against the in memory storage (just like InMemoryDBTest does), so that benchmarks do not
+// depend on any external service. We use the default config from ../temp/config.yaml so that runs are comparable
+// irrespective of what the developer's ../config.yaml currently contains.
+public class BenchmarkProcess {
+
+    private static final String INSTALLATION_PATH = "../";
+    private static final String DEFAULT_CONFIG_PATH = "../temp/config.yaml";
+
+    private final TestingProcessManager.TestingProcess process;
+    private final int port;
+
+    private BenchmarkProcess(TestingProcessManager.TestingProcess process, int port) {
+        this.process = process;
+        this.port = port;
+    }
+
+    public static BenchmarkProcess startInMemory(int port, String... extraArgs) throws InterruptedException {
+        return start(new File(DEFAULT_CONFIG_PATH), port, extraArgs);
+    }
+
+    // same as above, but with some values in the default config changed (for example, access_token_blacklisting).
+    // The changed config is written to a temporary file so that ../temp/config.yaml is left untouched.
+    public static BenchmarkProcess startInMemory(int port, Map<String, String> configValues, String... extraArgs)
+            throws InterruptedException, IOException {
+        String config = new String(Files.readAllBytes(Paths.get(DEFAULT_CONFIG_PATH)), StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> entry : configValues.entrySet()) {
+            // same replacement as Utils.setValueInConfig in the tests
+            String oldStr = "\n((#\\s)?)" + entry.getKey() + "(:|((:\\s).+))\n";
+            config = config.replaceAll(oldStr, "\n" + entry.getKey() + ": " + entry.getValue() + "\n");
+        }
+        File configFile = File.createTempFile("benchmark-config", ".yaml");
+        configFile.deleteOnExit();
+        Files.write(configFile.toPath(), config.getBytes(StandardCharsets.UTF_8));
+        return start(configFile, port, extraArgs);
+    }
+
+    private static BenchmarkProcess start(File configFile, int port, String[] extraArgs) throws InterruptedException {
+        Main.isTesting = true;
+        PluginInterfaceTesting.isTesting = true;
+        Main.makeConsolePrintSilent = true;
+
+        String[] args = new String[3 + extraArgs.length];
+        args[0] = INSTALLATION_PATH;
+        args[1] = "port=" + port;
+        args[2] = "configFile=" + configFile.getAbsolutePath();
+        System.arraycopy(extraArgs, 0, args, 3, extraArgs.length);
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        return new BenchmarkProcess(process, port);
+    }
+
+    public boolean hasStarted() {
+        return ProcessState.getInstance(process.getProcess())
+                .getLastEventByName(ProcessState.PROCESS_STATE.STARTED) != null;
+    }
+
+    public void waitForStart() throws InterruptedException {
+        if (process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED) == null) {
+            throw new IllegalStateException("Core did not start. Is " + DEFAULT_CONFIG_PATH + " present?");
+        }
+    }
+
+    public Main getMain() {
+        return process.getProcess();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    public void stop() throws InterruptedException {
+        process.kill();
+        process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Runs the core as a separate JVM from an installation-like folder (core/*, plugin-interface/*, config.yaml and
+// version.yaml), launched the same way as the CLI's StartHandler does. The folder is prepared by the
+// prepareBenchmarkInstallation gradle task. Since it has no plugin folder, the core uses the in memory storage.
+public class InstalledCoreProcess {
+
+    private final String installationDir;
+    private final int port;
+    private Process process = null;
+
+    public InstalledCoreProcess(String installationDir, int port) {
+        this.installationDir = installationDir.endsWith("/") ? installationDir : installationDir + "/";
+        this.port = port;
+    }
+
+    public void start(String javaHome, List<String> jvmArgs) throws IOException {
+        // a .started file left behind by a previous (killed) run would make us think that this one has started
+        Files.deleteIfExists(getStartedFile().toPath());
+
+        List<String> commands = new ArrayList<>();
+        commands.add(Paths.get(javaHome, "bin", "java").toString());
+        commands.add("-Djava.security.egd=file:/dev/urandom");
+        commands.addAll(jvmArgs);
+        commands.add("-classpath");
+        commands.add(installationDir + "core/*:" + installationDir + "plugin-interface/*");
+        commands.add("io.supertokens.Main");
+        commands.add(installationDir);
+        commands.add("port=" + port);
+
+        ProcessBuilder pb = new ProcessBuilder(commands);
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(new File(installationDir + "benchmark-core.log"));
+        this.process = pb.start();
+    }
+
+    public File getStartedFile() {
+        return new File(installationDir + ".started/localhost-" + port);
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    public long getPid() {
+        return process.pid();
+    }
+
+    public boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    // only available on linux. Returns null otherwise.
+    public Long readRssBytes() {
+        return ProcessMemory.readRssBytes(new File("/proc/" + getPid() + "/status"));
+    }
+
+    // sends SIGTERM so that the core's shutdown hook runs and the JVM exits normally (which is when an AppCDS
+    // archive is written).
+    public int stop() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            process.waitFor();
+        }
+        return process.exitValue();
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class ProcessMemory {
+
+    // reads VmRSS from a /proc/<pid>/status file. Only available on linux, so this returns null otherwise.
+    public static Long readRssBytes(File procStatusFile) {
+        if (!procStatusFile.exists()) {
+            return null;
+        }
+        try {
+            for (String line : Files.readAllLines(procStatusFile.toPath())) {
+                if (line.startsWith("VmRSS:")) {
+                    // looks like "VmRSS:	  123456 kB"
+                    String[] parts = line.substring("VmRSS:".length()).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return null;
+    }
+
+    public static Long readOwnRssBytes() {
+        return readRssBytes(new File("/proc/self/status"));
+    }
+}
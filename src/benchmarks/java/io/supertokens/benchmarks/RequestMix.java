@@ -0,0 +1,66 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks;
+
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// A short, fixed mix of the most common requests. Used to warm up the core before measuring memory, and as the
+// training run for the AppCDS archive, so it should touch the code paths that a real deployment uses at boot.
+public class RequestMix {
+
+    private static final int SIGN_UPS = 20;
+    private static final int SESSIONS = 200;
+    private static final int VERIFIES_PER_SESSION = 5;
+    private static final int REFRESHES = 100;
+
+    // returns the number of requests sent
+    public static int runFixedLoad(BenchmarkHttpClient client, String emailPrefix)
+            throws IOException, InterruptedException {
+        int requests = 0;
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < SIGN_UPS; i++) {
+            String email = emailPrefix + i + "@example.com";
+            JsonObject signUp = client.post("/recipe/signup", BenchmarkHttpClient.signUpBody(email, "password123"));
+            userIds.add(signUp.getAsJsonObject("user").get("id").getAsString());
+            client.post("/recipe/signin", BenchmarkHttpClient.signUpBody(email, "password123"));
+            requests += 2;
+        }
+
+        List<String> refreshTokens = new ArrayList<>();
+        for (int i = 0; i < SESSIONS; i++) {
+            JsonObject session = client.post("/recipe/session",
+                    BenchmarkHttpClient.createSessionBody(userIds.get(i % userIds.size())));
+            requests++;
+            String accessToken = session.getAsJsonObject("accessToken").get("token").getAsString();
+            refreshTokens.add(session.getAsJsonObject("refreshToken").get("token").getAsString());
+            for (int j = 0; j < VERIFIES_PER_SESSION; j++) {
+                client.post("/recipe/session/verify", BenchmarkHttpClient.verifySessionBody(accessToken));
+                requests++;
+            }
+        }
+
+        for (int i = 0; i < REFRESHES; i++) {
+            client.post("/recipe/session/refresh", BenchmarkHttpClient.refreshSessionBody(refreshTokens.get(i)));
+            requests++;
+        }
+        return requests;
+    }
+}
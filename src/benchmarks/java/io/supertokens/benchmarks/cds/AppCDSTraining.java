@@ -0,0 +1,93 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.cds;
+
+import io.supertokens.benchmarks.BenchmarkHttpClient;
+import io.supertokens.benchmarks.InstalledCoreProcess;
+import io.supertokens.benchmarks.RequestMix;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Training run for an AppCDS archive of the benchmark installation. We boot the core from an installation-like folder
+ * (so that the archived classpath looks like core/*:plugin-interface/*), send it the same request mix as the startup
+ * benchmark, and stop it. The JVM dumps all the classes it loaded into the archive when it exits.
+ *
+ * The archive is only valid for the jars of that folder (it records their paths, sizes and modification times) and
+ * for the JVM that created it, so it is only useful to the startup benchmark's installation mode. Real installations
+ * create their own archive on their first start (see the CLI's AppCDSArchive).
+ */
+public class AppCDSTraining {
+
+    private static final int PORT = 3598;
+
+    public static void main(String[] args) throws Exception {
+        String installationDir = System.getProperty("benchmark.installation");
+        String javaHome = System.getProperty("benchmark.javaHome", System.getProperty("java.home"));
+        File output = new File(System.getProperty("benchmark.output", "build/cds/core.jsa")).getAbsoluteFile();
+        if (installationDir == null) {
+            throw new IllegalArgumentException("benchmark.installation is not set");
+        }
+
+        File trainingArchive = new File(installationDir, "training.jsa").getAbsoluteFile();
+        Files.deleteIfExists(trainingArchive.toPath());
+
+        List<String> jvmArgs = new ArrayList<>();
+        jvmArgs.add("-XX:ArchiveClassesAtExit=" + trainingArchive.getPath());
+
+        InstalledCoreProcess core = new InstalledCoreProcess(installationDir, PORT);
+        core.start(javaHome, jvmArgs);
+        try {
+            waitForHello(core);
+            RequestMix.runFixedLoad(new BenchmarkHttpClient(core.getBaseUrl()), "training");
+        } finally {
+            core.stop();
+        }
+
+        if (!trainingArchive.isFile()) {
+            throw new IllegalStateException("Training run did not produce an archive. See " + installationDir
+                    + "/benchmark-core.log");
+        }
+        File parent = output.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        Files.move(trainingArchive.toPath(), output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("AppCDS archive written to " + output.getPath());
+    }
+
+    private static void waitForHello(InstalledCoreProcess core) throws InterruptedException {
+        BenchmarkHttpClient client = new BenchmarkHttpClient(core.getBaseUrl());
+        long deadline = System.currentTimeMillis() + 60000;
+        while (System.currentTimeMillis() < deadline && core.isAlive()) {
+            try {
+                if (client.get("/hello") == 200) {
+                    return;
+                }
+            } catch (IOException ignored) {
+                // webserver is not up yet
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("Core did not start for the training run");
+    }
+}
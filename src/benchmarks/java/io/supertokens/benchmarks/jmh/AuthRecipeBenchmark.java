@@ -0,0 +1,95 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.Main;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.authRecipe.UserPaginationContainer;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.emailpassword.PasswordHashing;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.storageLayer.StorageLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class AuthRecipeBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({ "10000" })
+    public int numberOfUsers;
+
+    private BenchmarkProcess process;
+    private Main main;
+    private String middlePaginationToken;
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start();
+        main = process.getMain();
+
+        // we insert directly into the storage with the same hash for everyone, since hashing each password would
+        // make the setup take minutes.
+        String passwordHash = PasswordHashing.getInstance(main).createHashWithSalt("somePassword123");
+        long timeJoined = System.currentTimeMillis();
+        for (int i = 0; i < numberOfUsers; i++) {
+            StorageLayer.getEmailPasswordStorage(main).signUp(
+                    new UserInfo(UUID.randomUUID().toString(), "user" + i + "@example.com", passwordHash,
+                            timeJoined + i));
+        }
+
+        String paginationToken = null;
+        for (int i = 0; i < numberOfUsers / PAGE_SIZE / 2; i++) {
+            paginationToken = AuthRecipe.getUsers(main, PAGE_SIZE, "ASC", paginationToken, null).nextPaginationToken;
+        }
+        middlePaginationToken = paginationToken;
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        process.stop();
+    }
+
+    @Benchmark
+    public UserPaginationContainer getUsersFirstPage() throws Exception {
+        return AuthRecipe.getUsers(main, PAGE_SIZE, "ASC", null, null);
+    }
+
+    @Benchmark
+    public UserPaginationContainer getUsersMiddlePage() throws Exception {
+        return AuthRecipe.getUsers(main, PAGE_SIZE, "ASC", middlePaginationToken, null);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Time to hex encode a SHA-256 hash (32 bytes, as in Utils.hashSHA256) and a 64 byte key. The previous* benchmarks are
+ * how Utils.bytesToString and Utils.toHex used to do it (String.format per byte, and BigInteger plus String.format
+ * padding), so that both can be compared in one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HexEncodingBenchmark {
+
+    @Param({ "32", "64" })
+    public int length;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+    }
+
+    @Benchmark
+    public String bytesToString() {
+        return Utils.bytesToString(bytes);
+    }
+
+    @Benchmark
+    public String toHex() {
+        return Utils.toHex(bytes);
+    }
+
+    @Benchmark
+    public String previousBytesToString() {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public String previousToHex() {
+        BigInteger bi = new BigInteger(1, bytes);
+        String hex = bi.toString(16);
+        int paddingLength = (bytes.length * 2) - hex.length();
+        if (paddingLength > 0) {
+            return String.format("%0" + paddingLength + "d", 0) + hex;
+        } else {
+            return hex;
+        }
+    }
+}
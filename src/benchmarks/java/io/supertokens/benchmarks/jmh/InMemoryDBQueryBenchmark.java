@@ -0,0 +1,121 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import com.google.gson.JsonObject;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.queries.EmailPasswordQueries;
+import io.supertokens.inmemorydb.queries.SessionQueries;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.pluginInterface.session.SessionInfo;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.StorageLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+import static io.supertokens.inmemorydb.config.Config.getConfig;
+
+/*
+ * Per query overhead of the in memory storage. The *Uncached benchmarks do what the queries did before the query
+ * string and prepared statement caches were added (build the query string from the config, and prepare and close a
+ * statement on every call), so that both can be compared in one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class InMemoryDBQueryBenchmark {
+
+    private static final String EMAIL = "benchmark@example.com";
+
+    private BenchmarkProcess process;
+    private Start start;
+    private String sessionHandle;
+    // held for the whole run, like a transaction would
+    private Connection con;
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start();
+        start = (Start) StorageLayer.getStorage(process.getMain());
+        sessionHandle = Session.createNewSession(process.getMain(), "userId", new JsonObject(),
+                new JsonObject()).session.handle;
+        EmailPassword.signUp(process.getMain(), EMAIL, "somePassword123");
+        con = ConnectionPool.getConnection(start);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        con.close();
+        process.stop();
+    }
+
+    @Benchmark
+    public SessionInfo getSessionInfo_Transaction() throws Exception {
+        return SessionQueries.getSessionInfo_Transaction(start, con, sessionHandle);
+    }
+
+    @Benchmark
+    public String getSessionInfo_TransactionUncached() throws Exception {
+        String QUERY = "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
+                + "created_at_time, jwt_user_payload FROM " + getConfig(start).getSessionInfoTable()
+                + " WHERE session_handle = ?";
+        try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+            pst.setString(1, sessionHandle);
+            try (ResultSet result = pst.executeQuery()) {
+                return result.next() ? result.getString("user_id") : null;
+            }
+        }
+    }
+
+    @Benchmark
+    public UserInfo getUserInfoUsingEmail() throws Exception {
+        return EmailPasswordQueries.getUserInfoUsingEmail(start, EMAIL);
+    }
+
+    @Benchmark
+    public String getUserInfoUsingEmailUncached() throws Exception {
+        String QUERY = "SELECT user_id, email, password_hash, time_joined FROM "
+                + getConfig(start).getEmailPasswordUsersTable() + " WHERE email = ?";
+        try (Connection connection = ConnectionPool.getConnection(start);
+             PreparedStatement pst = connection.prepareStatement(QUERY)) {
+            pst.setString(1, EMAIL);
+            try (ResultSet result = pst.executeQuery()) {
+                return result.next() ? result.getString("user_id") : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import com.google.gson.JsonObject;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.jwt.JWT;
+import io.supertokens.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// does not need a running core, since the signing key is generated here.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class JWTBenchmark {
+
+    private String publicKey;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        Utils.PubPriKey key = new Utils.PubPriKey(Utils.generateNewSigningKey());
+        publicKey = key.publicKey;
+
+        // roughly the size of an access token's payload
+        JsonObject payload = new JsonObject();
+        payload.addProperty("sessionHandle", "8c1b2f4e-0a8c-4c5d-9b5e-2f6f9b3c6f1d");
+        payload.addProperty("userId", "2a7d9c2e-5f9b-4c8e-8f3e-9d2b6a1c4e7f");
+        payload.addProperty("refreshTokenHash1", Utils.hashSHA256("refreshToken"));
+        payload.add("userData", new JsonObject());
+        payload.addProperty("expiryTime", System.currentTimeMillis() + 3600000);
+        payload.addProperty("timeCreated", System.currentTimeMillis());
+        token = JWT.createJWT(payload, key.privateKey, AccessToken.VERSION.V2);
+    }
+
+    @Benchmark
+    public JWT.JWTInfo verifyJWTAndGetPayload() throws Exception {
+        return JWT.verifyJWTAndGetPayload(token, publicKey);
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.benchmarks.BenchmarkProcess;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+// JMH runs each benchmark in its own forked JVM, so every benchmark boots its own core (against the in memory
+// storage) in its trial setup, and stops it in its trial teardown.
+class JmhCore {
+
+    private static final int PORT = 3596;
+
+    static BenchmarkProcess start() throws InterruptedException, IOException {
+        return start(Collections.emptyMap());
+    }
+
+    static BenchmarkProcess start(Map<String, String> configValues) throws InterruptedException, IOException {
+        BenchmarkProcess process = BenchmarkProcess.startInMemory(PORT, configValues);
+        process.waitForStart();
+        return process;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.inmemorydb.KeyLockManager;
+import io.supertokens.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Lock / unlock throughput of the in memory db's row locks with 16 threads, when they all want the same key (keys = 1)
+ * and when they mostly want different ones. globalMonitorLock is the previous implementation (one set of locked keys
+ * behind a single monitor, and notifyAll on every unlock), so that both can be compared in one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class KeyLockBenchmark {
+
+    // work done while holding the lock, in JMH's arbitrary units
+    private static final int HOLD_TOKENS = 50;
+
+    @Param({ "1", "16", "1024" })
+    public int keys;
+
+    private BenchmarkProcess process;
+    private KeyLockManager keyLockManager;
+    private GlobalMonitorLock globalMonitorLock;
+    private String[] keyNames;
+
+    @State(Scope.Thread)
+    public static class Owner {
+        // the ConnectionWithLocks in the real thing
+        final Object owner = new Object();
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start();
+        keyLockManager = new KeyLockManager(60000, Metrics.getInstance(process.getMain()));
+        globalMonitorLock = new GlobalMonitorLock();
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "session" + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        process.stop();
+    }
+
+    @Benchmark
+    public void keyLockManager(Owner owner) throws Exception {
+        String key = keyNames[ThreadLocalRandom.current().nextInt(keys)];
+        keyLockManager.lock(key, owner.owner);
+        try {
+            Blackhole.consumeCPU(HOLD_TOKENS);
+        } finally {
+            keyLockManager.unlock(key, owner.owner);
+        }
+    }
+
+    @Benchmark
+    public void globalMonitorLock() {
+        String key = keyNames[ThreadLocalRandom.current().nextInt(keys)];
+        globalMonitorLock.lock(key);
+        try {
+            Blackhole.consumeCPU(HOLD_TOKENS);
+        } finally {
+            globalMonitorLock.unlock(key);
+        }
+    }
+
+    private static class GlobalMonitorLock {
+
+        private final Set<String> lockedKeys = new HashSet<>();
+        private final Object waitMutex = new Object();
+
+        void lock(String name) {
+            synchronized (this.waitMutex) {
+                while (true) {
+                    if (!this.lockedKeys.contains(name)) {
+                        this.lockedKeys.add(name);
+                        return;
+                    }
+
+                    try {
+                        this.waitMutex.wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        }
+
+        void unlock(String name) {
+            synchronized (this.waitMutex) {
+                this.lockedKeys.remove(name);
+                this.waitMutex.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.emailpassword.PasswordHashing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// uses the default cost parameters from the config for each algorithm.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class PasswordHashingBenchmark {
+
+    @Param({ "BCRYPT", "ARGON2" })
+    public String passwordHashingAlg;
+
+    private BenchmarkProcess process;
+    private PasswordHashing passwordHashing;
+    private String hash;
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start(Collections.singletonMap("password_hashing_alg", passwordHashingAlg));
+        passwordHashing = PasswordHashing.getInstance(process.getMain());
+        hash = passwordHashing.createHashWithSalt("somePassword123");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        process.stop();
+    }
+
+    @Benchmark
+    public String createHashWithSalt() {
+        return passwordHashing.createHashWithSalt("somePassword123");
+    }
+
+    @Benchmark
+    public boolean verifyPasswordWithHash() {
+        return passwordHashing.verifyPasswordWithHash("somePassword123", hash);
+    }
+}
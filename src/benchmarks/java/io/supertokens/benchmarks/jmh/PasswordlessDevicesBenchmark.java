@@ -0,0 +1,101 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.queries.PasswordlessQueries;
+import io.supertokens.passwordless.Passwordless;
+import io.supertokens.pluginInterface.passwordless.PasswordlessCode;
+import io.supertokens.pluginInterface.passwordless.PasswordlessDevice;
+import io.supertokens.storageLayer.StorageLayer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Listing the passwordless devices (and their codes) of an email that has many devices. getDevicesWithCodesNPlusOne
+ * is what Passwordless.getDevicesWithCodesByEmail did before the joined query (one query for the devices, and then
+ * one for the codes of each device), so that both can be compared in one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class PasswordlessDevicesBenchmark {
+
+    private static final String EMAIL = "benchmark@example.com";
+    private static final int CODES_PER_DEVICE = 3;
+
+    @Param({ "1", "10", "100" })
+    public int devices;
+
+    private BenchmarkProcess process;
+    private Start start;
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start();
+        start = (Start) StorageLayer.getStorage(process.getMain());
+        for (int i = 0; i < devices; i++) {
+            String deviceId = Passwordless.createCode(process.getMain(), EMAIL, null, null, null).deviceId;
+            for (int j = 1; j < CODES_PER_DEVICE; j++) {
+                Passwordless.createCode(process.getMain(), null, null, deviceId, null);
+            }
+        }
+        // other users' devices, so that the codes table is not only made of the ones we look for
+        for (int i = 0; i < 1000; i++) {
+            Passwordless.createCode(process.getMain(), "other" + i + "@example.com", null, null, null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        process.stop();
+    }
+
+    @Benchmark
+    public List<Passwordless.DeviceWithCodes> getDevicesWithCodes() throws Exception {
+        return Passwordless.getDevicesWithCodesByEmail(process.getMain(), EMAIL);
+    }
+
+    @Benchmark
+    public List<Passwordless.DeviceWithCodes> getDevicesWithCodesNPlusOne() throws Exception {
+        List<Passwordless.DeviceWithCodes> result = new ArrayList<>();
+        for (PasswordlessDevice device : PasswordlessQueries.getDevicesByEmail(start, EMAIL)) {
+            PasswordlessCode[] codes = PasswordlessQueries.getCodesOfDevice(start, device.deviceIdHash);
+            result.add(new Passwordless.DeviceWithCodes(device, codes));
+        }
+        return result;
+    }
+}
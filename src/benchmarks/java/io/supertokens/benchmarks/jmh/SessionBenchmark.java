@@ -0,0 +1,105 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class SessionBenchmark {
+
+    // with blacklisting, getSession also reads the session from the db
+    @Param({ "false", "true" })
+    public String accessTokenBlacklisting;
+
+    private BenchmarkProcess process;
+    private Main main;
+    private JsonObject userDataInJWT;
+    private JsonObject userDataInDatabase;
+    private String accessToken;
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start(Collections.singletonMap("access_token_blacklisting", accessTokenBlacklisting));
+        main = process.getMain();
+
+        userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        userDataInDatabase = new JsonObject();
+        userDataInDatabase.addProperty("key", "value");
+        accessToken = Session.createNewSession(main, "userId", userDataInJWT, userDataInDatabase,
+                false).accessToken.token;
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        process.stop();
+    }
+
+    @Benchmark
+    public SessionInformationHolder createNewSession() throws Exception {
+        return Session.createNewSession(main, "userId", userDataInJWT, userDataInDatabase, false);
+    }
+
+    @Benchmark
+    public SessionInformationHolder getSession() throws Exception {
+        return Session.getSession(main, accessToken, null, false, false);
+    }
+
+    // each refresh rotates the refresh token, so every thread keeps refreshing its own session with the token
+    // returned by its previous refresh.
+    @State(Scope.Thread)
+    public static class RefreshState {
+        String refreshToken;
+
+        @Setup
+        public void setup(SessionBenchmark benchmark) throws Exception {
+            refreshToken = Session.createNewSession(benchmark.main, "userId", benchmark.userDataInJWT,
+                    benchmark.userDataInDatabase, false).refreshToken.token;
+        }
+    }
+
+    @Benchmark
+    public SessionInformationHolder refreshSession(RefreshState state) throws Exception {
+        SessionInformationHolder result = Session.refreshSession(main, state.refreshToken, null, false);
+        state.refreshToken = result.refreshToken.token;
+        return result;
+    }
+}
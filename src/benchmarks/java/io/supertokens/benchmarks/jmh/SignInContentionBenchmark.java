@@ -0,0 +1,83 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.Main;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 100 threads signing in at the same time with argon2, so that almost all of them wait for a hashing slot. The
+// reported latency is for one sign in, including the wait. The wait and hash time histograms of the limiter are
+// printed at the end of each trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(100)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class SignInContentionBenchmark {
+
+    @Param({ "1", "4" })
+    public String argon2HashingPoolSize;
+
+    private BenchmarkProcess process;
+    private Main main;
+
+    @Setup
+    public void setup() throws Exception {
+        Map<String, String> config = new HashMap<>();
+        config.put("password_hashing_alg", "ARGON2");
+        config.put("argon2_hashing_pool_size", argon2HashingPoolSize);
+        process = JmhCore.start(config);
+        main = process.getMain();
+        EmailPassword.signUp(main, "contention@example.com", "somePassword123");
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        Histogram waitTime = Metrics.getInstance(main).getHistogram("passwordHashing.argon2.waitTime");
+        Histogram hashTime = Metrics.getInstance(main).getHistogram("passwordHashing.argon2.hashTime");
+        System.out.println("argon2 wait time: " + waitTime.toJson());
+        System.out.println("argon2 hash time: " + hashTime.toJson());
+        process.stop();
+    }
+
+    @Benchmark
+    public UserInfo signIn() throws Exception {
+        return EmailPassword.signIn(main, "contention@example.com", "somePassword123");
+    }
+}
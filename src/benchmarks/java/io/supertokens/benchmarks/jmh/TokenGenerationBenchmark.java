@@ -0,0 +1,70 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.utils.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of making a password reset / email verification token with 4 threads. previousTokenGeneration is how
+ * they used to be made (two new SecureRandoms, PBKDF2 over random bytes, hex, base64 and removing the characters that
+ * are not URL safe), so that both can be compared in one run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(4)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class TokenGenerationBenchmark {
+
+    @Benchmark
+    public String urlSafeRandomToken() {
+        return Utils.generateUrlSafeRandomToken(96);
+    }
+
+    @Benchmark
+    public String previousTokenGeneration() throws Exception {
+        byte[] random = new byte[64];
+        byte[] salt = new byte[64];
+
+        new SecureRandom().nextBytes(random);
+        new SecureRandom().nextBytes(salt);
+
+        int iterations = 1000;
+        String token = Utils.toHex(Utils.pbkdf2(Utils.bytesToString(random).toCharArray(), salt, iterations, 64 * 6));
+
+        token = Utils.convertToBase64(token);
+        token = token.replace("=", "");
+        token = token.replace("/", "");
+        token = token.replace("+", "");
+        return token;
+    }
+}
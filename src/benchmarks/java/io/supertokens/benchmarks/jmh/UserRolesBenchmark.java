@@ -0,0 +1,77 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.jmh;
+
+import io.supertokens.Main;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.userroles.UserRoles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.security.egd=file:/dev/urandom")
+public class UserRolesBenchmark {
+
+    private static final int OTHER_USERS = 1000;
+
+    @Param({ "1", "10" })
+    public int rolesPerUser;
+
+    private BenchmarkProcess process;
+    private Main main;
+
+    @Setup
+    public void setup() throws Exception {
+        process = JmhCore.start();
+        main = process.getMain();
+
+        for (int i = 0; i < rolesPerUser; i++) {
+            UserRoles.createNewRoleOrModifyItsPermissions(main, "role" + i, new String[] { "permission" + i });
+            UserRoles.addRoleToUser(main, "userId", "role" + i);
+        }
+        // so that the lookup is not against an almost empty table
+        for (int i = 0; i < OTHER_USERS; i++) {
+            UserRoles.addRoleToUser(main, "otherUser" + i, "role" + (i % rolesPerUser));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        process.stop();
+    }
+
+    @Benchmark
+    public String[] getRolesForUser() throws Exception {
+        return UserRoles.getRolesForUser(main, "userId");
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.loadtest;
+
+import java.util.Arrays;
+
+// Records every latency (no bucketing), so that p999 is exact. Not thread safe: every worker thread has its own
+// recorder per operation, and they are merged at the end.
+class LatencyRecorder {
+
+    private long[] latenciesNanos = new long[1024];
+    private int count = 0;
+    private long errors = 0;
+
+    void record(long latencyNanos) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, latenciesNanos.length * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    void merge(LatencyRecorder other) {
+        for (int i = 0; i < other.count; i++) {
+            record(other.latenciesNanos[i]);
+        }
+        errors += other.errors;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    long getErrors() {
+        return errors;
+    }
+
+    // returns the latency in milliseconds below which the given fraction of requests lie, or -1 if nothing was
+    // recorded. Sorts the recorded values, so should only be called once recording is over.
+    double getPercentileMillis(double fraction) {
+        if (count == 0) {
+            return -1;
+        }
+        Arrays.sort(latenciesNanos, 0, count);
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return latenciesNanos[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.loadtest;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.benchmarks.BenchmarkHttpClient;
+import io.supertokens.benchmarks.BenchmarkProcess;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Boots the core in-process against the in memory storage and drives a weighted mix of requests at it over keep-alive
+ * connections from several threads. Reports throughput and p50 / p99 / p999 latency per endpoint.
+ *
+ * If a baseline (the JSON output of a previous run) is given, the run fails if, for any endpoint, p99 latency went up
+ * or throughput went down by more than the allowed percentage. It also fails if any request failed.
+ *
+ * Run using: ./gradlew :supertokens-core:loadTest [-PloadTestThreads=16] [-PloadTestDurationSeconds=30]
+ * [-PloadTestMix=verify=80,refresh=10,signin=5,signup=5] [-PloadTestBaseline=<path>]
+ * [-PloadTestMaxRegressionPercent=20]
+ */
+public class LoadTest {
+
+    private static final int PORT = 3595;
+    private static final int SEED_USERS = 100;
+    private static final int SESSIONS_PER_THREAD = 10;
+    private static final String PASSWORD = "password123";
+
+    enum Operation {
+        VERIFY("verify", "/recipe/session/verify"), REFRESH("refresh", "/recipe/session/refresh"),
+        SIGN_IN("signin", "/recipe/signin"), SIGN_UP("signup", "/recipe/signup");
+
+        final String key;
+        final String path;
+
+        Operation(String key, String path) {
+            this.key = key;
+            this.path = path;
+        }
+
+        static Operation fromKey(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation in mix: " + key);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.parseInt(System.getProperty("benchmark.threads", "16"));
+        int warmupSeconds = Integer.parseInt(System.getProperty("benchmark.warmupSeconds", "5"));
+        int durationSeconds = Integer.parseInt(System.getProperty("benchmark.durationSeconds", "30"));
+        Map<Operation, Integer> mix = parseMix(
+                System.getProperty("benchmark.mix", "verify=80,refresh=10,signin=5,signup=5"));
+        String output = System.getProperty("benchmark.output", "build/benchmarks/loadtest.json");
+        String baseline = System.getProperty("benchmark.baseline", "");
+        double maxRegressionPercent = Double.parseDouble(System.getProperty("benchmark.maxRegressionPercent", "20"));
+
+        BenchmarkProcess process = BenchmarkProcess.startInMemory(PORT);
+        process.waitForStart();
+        BenchmarkHttpClient client = new BenchmarkHttpClient(process.getBaseUrl());
+
+        List<String> seedUserIds = new ArrayList<>();
+        for (int i = 0; i < SEED_USERS; i++) {
+            JsonObject response = client.post("/recipe/signup",
+                    BenchmarkHttpClient.signUpBody(seedEmail(i), PASSWORD));
+            seedUserIds.add(response.getAsJsonObject("user").get("id").getAsString());
+        }
+
+        long measureFrom = System.nanoTime() + warmupSeconds * 1_000_000_000L;
+        long measureUntil = measureFrom + durationSeconds * 1_000_000_000L;
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(i, client, mix, seedUserIds, measureFrom, measureUntil);
+            workers.add(worker);
+            worker.start();
+        }
+        Map<Operation, LatencyRecorder> merged = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            merged.put(operation, new LatencyRecorder());
+        }
+        for (Worker worker : workers) {
+            worker.join();
+            if (worker.failure != null) {
+                throw worker.failure;
+            }
+            for (Operation operation : Operation.values()) {
+                merged.get(operation).merge(worker.recorders.get(operation));
+            }
+        }
+        process.stop();
+
+        JsonObject result = new JsonObject();
+        result.addProperty("benchmark", "loadTest");
+        result.addProperty("coreVersion", System.getProperty("benchmark.coreVersion", "unknown"));
+        result.addProperty("threads", threads);
+        result.addProperty("durationSeconds", durationSeconds);
+        result.addProperty("mix", System.getProperty("benchmark.mix", "verify=80,refresh=10,signin=5,signup=5"));
+        JsonObject endpoints = new JsonObject();
+        long totalErrors = 0;
+        for (Operation operation : Operation.values()) {
+            LatencyRecorder recorder = merged.get(operation);
+            if (recorder.getCount() == 0 && recorder.getErrors() == 0) {
+                continue;
+            }
+            totalErrors += recorder.getErrors();
+            JsonObject endpoint = new JsonObject();
+            endpoint.addProperty("path", operation.path);
+            endpoint.addProperty("requests", recorder.getCount());
+            endpoint.addProperty("errors", recorder.getErrors());
+            endpoint.addProperty("throughputPerSecond", recorder.getCount() / (double) durationSeconds);
+            endpoint.addProperty("p50Ms", recorder.getPercentileMillis(0.5));
+            endpoint.addProperty("p99Ms", recorder.getPercentileMillis(0.99));
+            endpoint.addProperty("p999Ms", recorder.getPercentileMillis(0.999));
+            endpoints.add(operation.key, endpoint);
+        }
+        result.add("endpoints", endpoints);
+
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(result);
+        Path outputPath = Paths.get(output);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        Files.write(outputPath, json.getBytes(StandardCharsets.UTF_8));
+        System.out.println(json);
+        System.out.println("Results written to " + outputPath.toAbsolutePath());
+
+        List<String> failures = new ArrayList<>();
+        if (totalErrors > 0) {
+            failures.add(totalErrors + " requests failed");
+        }
+        if (!baseline.isEmpty()) {
+            failures.addAll(compareWithBaseline(endpoints, Paths.get(baseline), maxRegressionPercent));
+        }
+        for (String failure : failures) {
+            System.out.println("REGRESSION: " + failure);
+        }
+        // tomcat / cronjob threads may still be winding down, and gradle fails the task on a non zero exit code.
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static List<String> compareWithBaseline(JsonObject endpoints, Path baselinePath,
+            double maxRegressionPercent) throws IOException {
+        JsonObject baseline = new JsonParser()
+                .parse(new String(Files.readAllBytes(baselinePath), StandardCharsets.UTF_8)).getAsJsonObject()
+                .getAsJsonObject("endpoints");
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, JsonElement> entry : endpoints.entrySet()) {
+            if (!baseline.has(entry.getKey())) {
+                continue;
+            }
+            JsonObject current = entry.getValue().getAsJsonObject();
+            JsonObject previous = baseline.getAsJsonObject(entry.getKey());
+
+            double previousP99 = previous.get("p99Ms").getAsDouble();
+            double currentP99 = current.get("p99Ms").getAsDouble();
+            if (previousP99 > 0 && (currentP99 - previousP99) * 100 / previousP99 > maxRegressionPercent) {
+                failures.add(entry.getKey() + " p99 went from " + previousP99 + "ms to " + currentP99 + "ms");
+            }
+
+            double previousThroughput = previous.get("throughputPerSecond").getAsDouble();
+            double currentThroughput = current.get("throughputPerSecond").getAsDouble();
+            if (previousThroughput > 0
+                    && (previousThroughput - currentThroughput) * 100 / previousThroughput > maxRegressionPercent) {
+                failures.add(entry.getKey() + " throughput went from " + previousThroughput + "/s to "
+                        + currentThroughput + "/s");
+            }
+        }
+        return failures;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> result = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] keyAndWeight = part.trim().split("=");
+            result.put(Operation.fromKey(keyAndWeight[0].trim()), Integer.parseInt(keyAndWeight[1].trim()));
+        }
+        return result;
+    }
+
+    private static String seedEmail(int i) {
+        return "seed" + i + "@example.com";
+    }
+
+    private static class Worker extends Thread {
+
+        private final int workerId;
+        private final BenchmarkHttpClient client;
+        private final Operation[] weightedOperations;
+        private final List<String> seedUserIds;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+
+        // each worker refreshes only its own sessions, since refreshing the same refresh token from two threads
+        // would be treated as token theft.
+        private final String[] accessTokens = new String[SESSIONS_PER_THREAD];
+        private final String[] refreshTokens = new String[SESSIONS_PER_THREAD];
+        private int signUps = 0;
+        private Exception failure = null;
+
+        Worker(int workerId, BenchmarkHttpClient client, Map<Operation, Integer> mix, List<String> seedUserIds,
+                long measureFrom, long measureUntil) {
+            super("load-test-worker-" + workerId);
+            this.workerId = workerId;
+            this.client = client;
+            this.seedUserIds = seedUserIds;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            List<Operation> weighted = new ArrayList<>();
+            for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+                for (int i = 0; i < entry.getValue(); i++) {
+                    weighted.add(entry.getKey());
+                }
+            }
+            this.weightedOperations = weighted.toArray(new Operation[0]);
+            for (Operation operation : Operation.values()) {
+                recorders.put(operation, new LatencyRecorder());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+                    JsonObject session = client.post("/recipe/session",
+                            BenchmarkHttpClient.createSessionBody(seedUserIds.get(i % seedUserIds.size())));
+                    accessTokens[i] = session.getAsJsonObject("accessToken").get("token").getAsString();
+                    refreshTokens[i] = session.getAsJsonObject("refreshToken").get("token").getAsString();
+                }
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long now = System.nanoTime();
+                while (now < measureUntil) {
+                    Operation operation = weightedOperations[random.nextInt(weightedOperations.length)];
+                    long start = System.nanoTime();
+                    boolean success = perform(operation, random);
+                    now = System.nanoTime();
+                    if (start >= measureFrom && now < measureUntil) {
+                        if (success) {
+                            recorders.get(operation).record(now - start);
+                        } else {
+                            recorders.get(operation).recordError();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+            }
+        }
+
+        private boolean perform(Operation operation, ThreadLocalRandom random) throws InterruptedException {
+            try {
+                JsonObject response;
+                switch (operation) {
+                case VERIFY: {
+                    int session = random.nextInt(SESSIONS_PER_THREAD);
+                    response = client.post(operation.path,
+                            BenchmarkHttpClient.verifySessionBody(accessTokens[session]));
+                    break;
+                }
+                case REFRESH: {
+                    int session = random.nextInt(SESSIONS_PER_THREAD);
+                    response = client.post(operation.path,
+                            BenchmarkHttpClient.refreshSessionBody(refreshTokens[session]));
+                    if (response.has("accessToken")) {
+                        accessTokens[session] = response.getAsJsonObject("accessToken").get("token").getAsString();
+                        refreshTokens[session] = response.getAsJsonObject("refreshToken").get("token").getAsString();
+                    }
+                    break;
+                }
+                case SIGN_IN:
+                    response = client.post(operation.path, BenchmarkHttpClient
+                            .signUpBody(seedEmail(random.nextInt(seedUserIds.size())), PASSWORD));
+                    break;
+                case SIGN_UP:
+                    response = client.post(operation.path, BenchmarkHttpClient
+                            .signUpBody("worker" + workerId + "-" + (signUps++) + "@example.com", PASSWORD));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation: " + operation);
+                }
+                return response.get("status").getAsString().equals("OK");
+            } catch (IOException e) {
+                return false;
+            }
+        }
+    }
+}
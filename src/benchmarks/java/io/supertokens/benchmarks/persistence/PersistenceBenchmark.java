@@ -0,0 +1,293 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.persistence;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Compares the in memory storage with its file backed (sqlite_file_path) mode:
+ * - throughput: session creates (single insert), session reads, and session refreshes (a transaction with a row
+ * lock), each from several threads for a fixed duration, against the core booted in-process.
+ * - durability (file mode only): a child JVM creates sessions and prints the handle of each one after it has been
+ * committed. We kill it (SIGKILL) while it is doing that, boot the core on the same file, and check that every
+ * session it reported is there. Fails if any is missing.
+ *
+ * Results are written as JSON.
+ *
+ * Run using: ./gradlew :supertokens-core:persistenceBenchmark [-PpersistenceThreads=8]
+ * [-PpersistenceDurationSeconds=10]
+ */
+public class PersistenceBenchmark {
+
+    private static final String CRASH_CHILD_FLAG = "--crash-child";
+    private static final String ACK_PREFIX = "COMMITTED ";
+    private static final int PORT = 3594;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 1 && args[0].equals(CRASH_CHILD_FLAG)) {
+            runCrashChild(new File(args[1]));
+            return;
+        }
+
+        int threads = Integer.parseInt(System.getProperty("benchmark.threads", "8"));
+        int durationSeconds = Integer.parseInt(System.getProperty("benchmark.durationSeconds", "10"));
+        String output = System.getProperty("benchmark.output", "build/benchmarks/persistence.json");
+
+        JsonObject result = new JsonObject();
+        result.addProperty("benchmark", "persistence");
+        result.addProperty("coreVersion", System.getProperty("benchmark.coreVersion", "unknown"));
+        result.addProperty("javaVersion", System.getProperty("java.version"));
+        result.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+        result.addProperty("threads", threads);
+        result.addProperty("durationSeconds", durationSeconds);
+
+        JsonObject throughput = new JsonObject();
+        throughput.add("memory", runThroughput(null, threads, durationSeconds));
+        File dbFile = newDbFile();
+        try {
+            throughput.add("file", runThroughput(dbFile, threads, durationSeconds));
+        } finally {
+            deleteDbFile(dbFile);
+        }
+        result.add("throughput", throughput);
+
+        JsonObject durability = runCrashTest(durationSeconds);
+        result.add("durability", durability);
+
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(result);
+        Path outputPath = Paths.get(output);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        Files.write(outputPath, json.getBytes(StandardCharsets.UTF_8));
+        System.out.println(json);
+        System.out.println("Results written to " + outputPath.toAbsolutePath());
+
+        if (durability.get("lost").getAsLong() > 0) {
+            throw new IllegalStateException(durability.get("lost").getAsLong()
+                    + " committed sessions were missing after the core was killed");
+        }
+        // tomcat / cronjob threads of the in-process cores may still be winding down.
+        System.exit(0);
+    }
+
+    // dbFile is null for the in memory mode
+    private static JsonObject runThroughput(File dbFile, int threads, int durationSeconds) throws Exception {
+        BenchmarkProcess process = startCore(dbFile);
+        try {
+            Main main = process.getMain();
+            List<String> sessionHandles = Collections.synchronizedList(new ArrayList<>());
+            String[] refreshTokens = new String[threads];
+            for (int i = 0; i < threads; i++) {
+                refreshTokens[i] = Session.createNewSession(main, "userId" + i, new JsonObject(),
+                        new JsonObject()).refreshToken.token;
+            }
+
+            JsonObject result = new JsonObject();
+            result.addProperty("createSessionPerSecond", runFor(threads, durationSeconds, thread -> {
+                sessionHandles.add(Session.createNewSession(main, "userId" + thread, new JsonObject(),
+                        new JsonObject()).session.handle);
+            }));
+            result.addProperty("getSessionPerSecond", runFor(threads, durationSeconds, thread -> {
+                int index = ThreadLocalRandom.current().nextInt(sessionHandles.size());
+                Session.getSession(main, sessionHandles.get(index));
+            }));
+            result.addProperty("refreshSessionPerSecond", runFor(threads, durationSeconds, thread -> {
+                SessionInformationHolder refreshed = Session.refreshSession(main, refreshTokens[thread], null,
+                        false);
+                refreshTokens[thread] = refreshed.refreshToken.token;
+            }));
+            if (dbFile != null) {
+                result.addProperty("fileSizeBytes", dbFile.length());
+            }
+            return result;
+        } finally {
+            process.stop();
+        }
+    }
+
+    private interface Operation {
+        void run(int thread) throws Exception;
+    }
+
+    // returns operations per second, across all threads
+    private static double runFor(int threads, int durationSeconds, Operation operation)
+            throws InterruptedException {
+        AtomicLong count = new AtomicLong(0);
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + durationSeconds * 1_000_000_000L;
+        long startTime = System.nanoTime();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        operation.run(thread);
+                        count.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Benchmark operation failed", errors.get(0));
+        }
+        double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+        return count.get() / seconds;
+    }
+
+    private static JsonObject runCrashTest(int writeSeconds) throws Exception {
+        File dbFile = newDbFile();
+        try {
+            List<String> committed = Collections.synchronizedList(new ArrayList<>());
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.add("-Djava.security.egd=file:/dev/urandom");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(PersistenceBenchmark.class.getName());
+            command.add(CRASH_CHILD_FLAG);
+            command.add(dbFile.getAbsolutePath());
+            Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+            Thread reader = new Thread(() -> {
+                try (BufferedReader lines = new BufferedReader(
+                        new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = lines.readLine()) != null) {
+                        if (line.startsWith(ACK_PREFIX)) {
+                            committed.add(line.substring(ACK_PREFIX.length()));
+                        }
+                    }
+                } catch (IOException ignored) {
+                    // the child was killed
+                }
+            });
+            reader.start();
+
+            long bootDeadline = System.currentTimeMillis() + 60000;
+            while (committed.isEmpty() && child.isAlive() && System.currentTimeMillis() < bootDeadline) {
+                Thread.sleep(50);
+            }
+            if (committed.isEmpty()) {
+                child.destroyForcibly();
+                throw new IllegalStateException("Crash test child did not commit anything");
+            }
+            Thread.sleep(writeSeconds * 1000L);
+            // SIGKILL, so no shutdown hook runs and nothing is flushed or checkpointed on the way out
+            child.destroyForcibly();
+            child.waitFor();
+            reader.join();
+
+            List<String> handles;
+            synchronized (committed) {
+                handles = new ArrayList<>(committed);
+            }
+            long lost = 0;
+            long recoveryStart = System.currentTimeMillis();
+            BenchmarkProcess process = startCore(dbFile);
+            long recoveryMs = System.currentTimeMillis() - recoveryStart;
+            try {
+                for (String handle : handles) {
+                    try {
+                        Session.getSession(process.getMain(), handle);
+                    } catch (UnauthorisedException e) {
+                        lost++;
+                    }
+                }
+            } finally {
+                process.stop();
+            }
+
+            JsonObject result = new JsonObject();
+            result.addProperty("committedBeforeKill", handles.size());
+            result.addProperty("lost", lost);
+            result.addProperty("msToStartAfterKill", recoveryMs);
+            return result;
+        } finally {
+            deleteDbFile(dbFile);
+        }
+    }
+
+    private static void runCrashChild(File dbFile) throws Exception {
+        BenchmarkProcess process = startCore(dbFile);
+        Main main = process.getMain();
+        // runs till the parent kills us
+        while (true) {
+            String handle = Session.createNewSession(main, "userId", new JsonObject(), new JsonObject()).session.handle;
+            System.out.println(ACK_PREFIX + handle);
+            System.out.flush();
+        }
+    }
+
+    private static BenchmarkProcess startCore(File dbFile) throws Exception {
+        Map<String, String> configValues = new HashMap<>();
+        if (dbFile != null) {
+            configValues.put("sqlite_file_path", dbFile.getAbsolutePath());
+        }
+        BenchmarkProcess process = BenchmarkProcess.startInMemory(PORT, configValues);
+        process.waitForStart();
+        // the tables are created on start
+        if (dbFile != null && !dbFile.isFile()) {
+            process.stop();
+            throw new IllegalStateException("The core did not create " + dbFile.getPath()
+                    + ". Is sqlite_file_path in ../temp/config.yaml?");
+        }
+        return process;
+    }
+
+    private static File newDbFile() throws IOException {
+        File dbFile = File.createTempFile("persistence-benchmark", ".db");
+        Files.delete(dbFile.toPath());
+        return dbFile;
+    }
+
+    private static void deleteDbFile(File dbFile) throws IOException {
+        for (String suffix : new String[] { "", "-wal", "-shm" }) {
+            Files.deleteIfExists(Paths.get(dbFile.getPath() + suffix));
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.benchmarks.startup;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import io.supertokens.ProcessState;
+import io.supertokens.benchmarks.BenchmarkHttpClient;
+import io.supertokens.benchmarks.BenchmarkProcess;
+import io.supertokens.benchmarks.InstalledCoreProcess;
+import io.supertokens.benchmarks.ProcessMemory;
+import io.supertokens.benchmarks.RequestMix;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Measures how long a fresh JVM takes to boot the core (till the .started file is written and till the first
+ * successful /hello), and the memory of the process after a short, fixed load.
+ *
+ * There are two modes:
+ * - inProcess (default): every iteration runs in a brand new JVM (started by this class in "--child" mode) which
+ * boots the core in-process, using the test classpath. This also reports heap usage.
+ * - installation: every iteration launches io.supertokens.Main from the folder prepared by the
+ * prepareBenchmarkInstallation gradle task, just like the CLI does. This is the mode to use to measure the effect of
+ * JVM flags like an AppCDS archive (-PstartupCdsArchive=build/cds/core.jsa).
+ *
+ * The driver aggregates the results and writes them as JSON so that they can be compared across versions.
+ *
+ * Run using: ./gradlew :supertokens-core:startupBenchmark [-PstartupIterations=10] [-PstartupJvmArgs="-Xmx256m"]
+ * [-PstartupMode=installation] [-PstartupCdsArchive=<path to .jsa>]
+ */
+public class StartupBenchmark {
+
+    private static final String CHILD_FLAG = "--child";
+    private static final String RESULT_PREFIX = "STARTUP_BENCHMARK_RESULT ";
+    private static final int PORT = 3599;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(CHILD_FLAG)) {
+            runChild();
+            // tomcat / cronjob threads may still be winding down.
+            System.exit(0);
+        }
+
+        int iterations = Integer.parseInt(System.getProperty("benchmark.iterations", "5"));
+        String output = System.getProperty("benchmark.output", "build/benchmarks/startup.json");
+        String mode = System.getProperty("benchmark.mode", "inProcess");
+        String cdsArchive = System.getProperty("benchmark.cdsArchive", "");
+        List<String> childJvmArgs = parseJvmArgs(System.getProperty("benchmark.jvmArgs", ""));
+        if (!cdsArchive.isEmpty()) {
+            if (!new File(cdsArchive).isFile()) {
+                throw new IllegalArgumentException("CDS archive not found: " + cdsArchive);
+            }
+            childJvmArgs.add("-XX:SharedArchiveFile=" + new File(cdsArchive).getAbsolutePath());
+            childJvmArgs.add("-Xshare:auto");
+        }
+
+        JsonArray runs = new JsonArray();
+        for (int i = 0; i < iterations; i++) {
+            if (mode.equals("installation")) {
+                runs.add(runInstallation(System.getProperty("benchmark.installation"), childJvmArgs));
+            } else if (mode.equals("inProcess")) {
+                runs.add(runChildProcess(childJvmArgs));
+            } else {
+                throw new IllegalArgumentException("Unknown startup benchmark mode: " + mode);
+            }
+        }
+
+        JsonObject result = new JsonObject();
+        result.addProperty("benchmark", "startup");
+        result.addProperty("mode", mode);
+        result.addProperty("coreVersion", System.getProperty("benchmark.coreVersion", "unknown"));
+        result.addProperty("javaVersion", System.getProperty("java.version"));
+        result.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+        result.addProperty("iterations", iterations);
+        JsonArray jvmArgsJson = new JsonArray();
+        for (String arg : childJvmArgs) {
+            jvmArgsJson.add(new JsonPrimitive(arg));
+        }
+        result.add("jvmArgs", jvmArgsJson);
+        JsonObject summary = new JsonObject();
+        for (String metric : new String[] { "msToStartedFile", "msToFirstHello", "loadDurationMs", "heapUsedBytes",
+                "nonHeapUsedBytes", "rssBytes" }) {
+            summary.add(metric, summarise(runs, metric));
+        }
+        result.add("summary", summary);
+        result.add("runs", runs);
+
+        String json = new GsonBuilder().setPrettyPrinting().create().toJson(result);
+        Path outputPath = Paths.get(output);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        Files.write(outputPath, json.getBytes(StandardCharsets.UTF_8));
+        System.out.println(json);
+        System.out.println("Results written to " + outputPath.toAbsolutePath());
+    }
+
+    private static List<String> parseJvmArgs(String jvmArgs) {
+        List<String> result = new ArrayList<>();
+        for (String arg : jvmArgs.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                result.add(arg);
+            }
+        }
+        return result;
+    }
+
+    private static JsonObject runInstallation(String installationDir, List<String> jvmArgs) throws Exception {
+        if (installationDir == null) {
+            throw new IllegalArgumentException("benchmark.installation is not set");
+        }
+        InstalledCoreProcess core = new InstalledCoreProcess(installationDir, PORT);
+        BenchmarkHttpClient client = new BenchmarkHttpClient(core.getBaseUrl());
+
+        long spawnTime = System.currentTimeMillis();
+        core.start(System.getProperty("java.home"), jvmArgs);
+        try {
+            long startedFileAt = -1;
+            long firstHelloAt = -1;
+            long deadline = spawnTime + 60000;
+            while ((startedFileAt == -1 || firstHelloAt == -1) && System.currentTimeMillis() < deadline
+                    && core.isAlive()) {
+                if (startedFileAt == -1 && core.getStartedFile().exists()) {
+                    startedFileAt = System.currentTimeMillis();
+                }
+                if (firstHelloAt == -1 && isHelloSuccessful(client)) {
+                    firstHelloAt = System.currentTimeMillis();
+                }
+                Thread.sleep(2);
+            }
+            if (startedFileAt == -1 || firstHelloAt == -1) {
+                throw new IllegalStateException(
+                        "Core did not start within 60 seconds. See " + installationDir + "/benchmark-core.log");
+            }
+
+            long loadStart = System.currentTimeMillis();
+            int requests = RequestMix.runFixedLoad(client, "startup");
+            long loadDuration = System.currentTimeMillis() - loadStart;
+
+            JsonObject result = new JsonObject();
+            result.addProperty("msToStartedFile", startedFileAt - spawnTime);
+            result.addProperty("msToFirstHello", firstHelloAt - spawnTime);
+            result.addProperty("loadRequests", requests);
+            result.addProperty("loadDurationMs", loadDuration);
+            Long rss = core.readRssBytes();
+            if (rss != null) {
+                result.addProperty("rssBytes", rss);
+            }
+            return result;
+        } finally {
+            core.stop();
+        }
+    }
+
+    private static boolean isHelloSuccessful(BenchmarkHttpClient client) throws InterruptedException {
+        try {
+            return client.get("/hello") == 200;
+        } catch (IOException ignored) {
+            // webserver is not up yet
+            return false;
+        }
+    }
+
+    private static JsonObject runChildProcess(List<String> jvmArgs) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Djava.security.egd=file:/dev/urandom");
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(StartupBenchmark.class.getName());
+        command.add(CHILD_FLAG);
+
+        Process child = new ProcessBuilder(command).redirectErrorStream(true).start();
+        JsonObject result = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(child.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = new JsonParser().parse(line.substring(RESULT_PREFIX.length())).getAsJsonObject();
+                }
+            }
+        }
+        int exitCode = child.waitFor();
+        if (result == null) {
+            throw new IllegalStateException("Startup benchmark child exited with " + exitCode + " without a result");
+        }
+        return result;
+    }
+
+    private static void runChild() throws Exception {
+        long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long mainStartTime = System.currentTimeMillis();
+
+        BenchmarkProcess process = BenchmarkProcess.startInMemory(PORT);
+        BenchmarkHttpClient client = new BenchmarkHttpClient(process.getBaseUrl());
+
+        // STARTED is added right after the .started file is written, but the webserver is up slightly before that,
+        // so we wait for both.
+        long startedFileAt = -1;
+        long firstHelloAt = -1;
+        long deadline = mainStartTime + 60000;
+        while ((startedFileAt == -1 || firstHelloAt == -1) && System.currentTimeMillis() < deadline) {
+            if (startedFileAt == -1 && process.hasStarted()) {
+                startedFileAt = System.currentTimeMillis();
+            }
+            if (firstHelloAt == -1 && isHelloSuccessful(client)) {
+                firstHelloAt = System.currentTimeMillis();
+            }
+            Thread.sleep(2);
+        }
+        if (startedFileAt == -1 || firstHelloAt == -1) {
+            throw new IllegalStateException("Core did not start within 60 seconds");
+        }
+
+        long loadStart = System.currentTimeMillis();
+        int requests = RequestMix.runFixedLoad(client, "startup");
+        long loadDuration = System.currentTimeMillis() - loadStart;
+
+        // the history of process states is only kept because we are in testing mode, so we don't count it.
+        ProcessState.getInstance(process.getMain()).clear();
+        System.gc();
+        Thread.sleep(500);
+        System.gc();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+
+        JsonObject result = new JsonObject();
+        result.addProperty("msToStartedFile", startedFileAt - jvmStartTime);
+        result.addProperty("msToFirstHello", firstHelloAt - jvmStartTime);
+        result.addProperty("msFromMainToFirstHello", firstHelloAt - mainStartTime);
+        result.addProperty("loadRequests", requests);
+        result.addProperty("loadDurationMs", loadDuration);
+        result.addProperty("heapUsedBytes", heap.getUsed());
+        result.addProperty("heapCommittedBytes", heap.getCommitted());
+        result.addProperty("nonHeapUsedBytes", nonHeap.getUsed());
+        Long rss = ProcessMemory.readOwnRssBytes();
+        if (rss != null) {
+            result.addProperty("rssBytes", rss);
+        }
+
+        process.stop();
+        System.out.println(RESULT_PREFIX + result.toString());
+    }
+
+    private static JsonObject summarise(JsonArray runs, String metric) {
+        List<Long> values = new ArrayList<>();
+        for (JsonElement run : runs) {
+            JsonElement value = run.getAsJsonObject().get(metric);
+            if (value != null) {
+                values.add(value.getAsLong());
+            }
+        }
+        JsonObject summary = new JsonObject();
+        if (values.isEmpty()) {
+            return summary;
+        }
+        Long[] sorted = values.toArray(new Long[0]);
+        Arrays.sort(sorted);
+        summary.addProperty("min", sorted[0]);
+        summary.addProperty("median", sorted[sorted.length / 2]);
+        summary.addProperty("max", sorted[sorted.length - 1]);
+        return summary;
+    }
+}
@@ -25,12 +25,13 @@ import io.supertokens.cronjobs.deleteExpiredEmailVerificationTokens.DeleteExpire
 import io.supertokens.cronjobs.deleteExpiredPasswordResetTokens.DeleteExpiredPasswordResetTokens;
 import io.supertokens.cronjobs.deleteExpiredPasswordlessDevices.DeleteExpiredPasswordlessDevices;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
+import io.supertokens.cronjobs.removeIdlePasswordlessRateLimitKeys.RemoveIdlePasswordlessRateLimitKeys;
 import io.supertokens.cronjobs.telemetry.Telemetry;
 import io.supertokens.emailpassword.PasswordHashing;
 import io.supertokens.exceptions.QuitProgramException;
-import io.supertokens.inmemorydb.Start;
 import io.supertokens.jwt.JWTSigningKey;
 import io.supertokens.output.Logging;
+import io.supertokens.passwordless.PasswordlessRateLimiter;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.session.accessToken.AccessTokenSigningKey;
@@ -208,6 +209,10 @@ public class Main {
         // creates password hashing pool
         PasswordHashing.init(this);
 
+        // in process passwordless rate limits, and the cronjob that forgets idle emails / phone numbers / devices
+        PasswordlessRateLimiter.init(this);
+        Cronjobs.addCronjob(this, RemoveIdlePasswordlessRateLimitKeys.getInstance(this));
+
         // start web server to accept incoming traffic
         Webserver.getInstance(this).start();
 
@@ -333,12 +338,13 @@ public class Main {
             // try / catch.
             Logging.info(this, "Stopping SuperTokens...", true);
             Webserver.getInstance(this).stop();
+            PasswordHashing.shutdownAndAwaitTermination(this);
             Cronjobs.shutdownAndAwaitTermination(this);
             if (!Main.isTesting) {
                 StorageLayer.close(this);
             } else {
                 if (StorageLayer.getStorage(this).getType() == STORAGE_TYPE.NOSQL_1
-                        || StorageLayer.getStorage(this) instanceof Start) {
+                        || StorageLayer.getInstance(this).isInMemDb()) {
                     // we close mongodb storage and in mem db storage during testing everytime as well cause it
                     // doesn't take time for it to connect during each test.
                     StorageLayer.close(this);
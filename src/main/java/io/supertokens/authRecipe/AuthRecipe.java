@@ -22,9 +22,13 @@ import io.supertokens.pluginInterface.authRecipe.AuthRecipeUserInfo;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.storageLayer.UserExportStorage;
 import io.supertokens.useridmapping.UserIdType;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 
 /*This files contains functions that are common for all auth recipes*/
 
@@ -32,6 +36,13 @@ public class AuthRecipe {
 
     public static final int USER_PAGINATION_LIMIT = 500;
 
+    // number of users that are read from the db at a time during an export
+    public static final int USER_EXPORT_BATCH_SIZE = 1000;
+
+    public interface ExportedUserConsumer {
+        void accept(ExportedUser user) throws IOException;
+    }
+
     public static long getUsersCount(Main main, RECIPE_ID[] includeRecipeIds) throws StorageQueryException {
         return StorageLayer.getAuthRecipeStorage(main).getUsersCount(includeRecipeIds);
     }
@@ -59,6 +70,83 @@ public class AuthRecipe {
         return new UserPaginationContainer(resultUsers, nextPaginationToken);
     }
 
+    /*
+     * Passes every user to the consumer, newest first, reading them one page at a time so that the memory used does not
+     * depend on the number of users. Each page is its own query, so this is not a snapshot: users that sign up after
+     * the export has started are not included, and users that are deleted during it may or may not be.
+     */
+    public static long exportUsers(Main main, @Nullable RECIPE_ID[] includeRecipeIds, ExportedUserConsumer consumer)
+            throws StorageQueryException, IOException {
+        UserExportStorage exportStorage = StorageLayer.getOptionalStorage(main, UserExportStorage.class);
+        if (exportStorage == null) {
+            return exportUsersUsingPagination(main, includeRecipeIds, consumer);
+        }
+        long count = 0;
+        Long afterTimeJoined = null;
+        String afterUserId = null;
+        while (true) {
+            ExportedUser[] users = exportStorage.getUsersForExport(USER_EXPORT_BATCH_SIZE, includeRecipeIds,
+                    afterTimeJoined, afterUserId);
+            for (ExportedUser user : users) {
+                consumer.accept(user);
+            }
+            count += users.length;
+            if (users.length < USER_EXPORT_BATCH_SIZE) {
+                return count;
+            }
+            afterTimeJoined = users[users.length - 1].timeJoined;
+            afterUserId = users[users.length - 1].superTokensUserId;
+        }
+    }
+
+    private static long exportUsersUsingPagination(Main main, @Nullable RECIPE_ID[] includeRecipeIds,
+            ExportedUserConsumer consumer) throws StorageQueryException, IOException {
+        long count = 0;
+        String paginationToken = null;
+        do {
+            UserPaginationContainer page;
+            try {
+                page = getUsers(main, USER_PAGINATION_LIMIT, "DESC", paginationToken, includeRecipeIds);
+            } catch (UserPaginationToken.InvalidTokenException e) {
+                // we generated the token ourselves
+                throw new IllegalStateException(e);
+            }
+            ArrayList<String> userIds = new ArrayList<>();
+            for (UserPaginationContainer.UsersContainer container : page.users) {
+                userIds.add(container.user.id);
+            }
+            HashMap<String, String> userIdMapping = io.supertokens.useridmapping.UserIdMapping
+                    .getUserIdMappingForSuperTokensUserIds(main, userIds);
+            for (UserPaginationContainer.UsersContainer container : page.users) {
+                consumer.accept(toExportedUser(container.user, userIdMapping.get(container.user.id)));
+            }
+            count += page.users.length;
+            paginationToken = page.nextPaginationToken;
+        } while (paginationToken != null);
+        return count;
+    }
+
+    private static ExportedUser toExportedUser(AuthRecipeUserInfo user, @Nullable String externalUserId) {
+        String email = null;
+        String phoneNumber = null;
+        String thirdPartyId = null;
+        String thirdPartyUserId = null;
+        if (user instanceof io.supertokens.pluginInterface.emailpassword.UserInfo) {
+            email = ((io.supertokens.pluginInterface.emailpassword.UserInfo) user).email;
+        } else if (user instanceof io.supertokens.pluginInterface.thirdparty.UserInfo) {
+            io.supertokens.pluginInterface.thirdparty.UserInfo thirdPartyUser =
+                    (io.supertokens.pluginInterface.thirdparty.UserInfo) user;
+            email = thirdPartyUser.email;
+            thirdPartyId = thirdPartyUser.thirdParty.id;
+            thirdPartyUserId = thirdPartyUser.thirdParty.userId;
+        } else if (user instanceof io.supertokens.pluginInterface.passwordless.UserInfo) {
+            email = ((io.supertokens.pluginInterface.passwordless.UserInfo) user).email;
+            phoneNumber = ((io.supertokens.pluginInterface.passwordless.UserInfo) user).phoneNumber;
+        }
+        return new ExportedUser(user.id, externalUserId, user.getRecipeId(), user.timeJoined, email, phoneNumber,
+                thirdPartyId, thirdPartyUserId);
+    }
+
     public static void deleteUser(Main main, String userId) throws StorageQueryException {
         // We clean up the user last so that if anything before that throws an error, then that will throw a 500 to the
         // developer. In this case, they expect that the user has not been deleted (which will be true). This is as
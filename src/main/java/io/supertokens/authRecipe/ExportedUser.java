@@ -0,0 +1,57 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.authRecipe;
+
+import io.supertokens.pluginInterface.RECIPE_ID;
+
+import javax.annotation.Nullable;
+
+// One row of a user export. Which of the recipe specific fields are set depends on the recipeId.
+public class ExportedUser {
+    public final String superTokensUserId;
+
+    @Nullable
+    public final String externalUserId;
+
+    public final RECIPE_ID recipeId;
+
+    public final long timeJoined;
+
+    @Nullable
+    public final String email;
+
+    @Nullable
+    public final String phoneNumber;
+
+    @Nullable
+    public final String thirdPartyId;
+
+    @Nullable
+    public final String thirdPartyUserId;
+
+    public ExportedUser(String superTokensUserId, @Nullable String externalUserId, RECIPE_ID recipeId,
+            long timeJoined, @Nullable String email, @Nullable String phoneNumber, @Nullable String thirdPartyId,
+            @Nullable String thirdPartyUserId) {
+        this.superTokensUserId = superTokensUserId;
+        this.externalUserId = externalUserId;
+        this.recipeId = recipeId;
+        this.timeJoined = timeJoined;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+        this.thirdPartyId = thirdPartyId;
+        this.thirdPartyUserId = thirdPartyUserId;
+    }
+}
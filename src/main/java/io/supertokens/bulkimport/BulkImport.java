@@ -0,0 +1,359 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.bulkimport;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.bulkimport.exceptions.BulkImportDuplicateEmailException;
+import io.supertokens.emailpassword.PasswordHashing;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateEmailException;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateUserIdException;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.session.info.TokenInfo;
+import io.supertokens.session.refreshToken.RefreshToken;
+import io.supertokens.storageLayer.BulkInsertStorage;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.Utils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.crypto.BadPaddingException;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.NoSuchPaddingException;
+import java.io.UnsupportedEncodingException;
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/*
+ * Creates many users or sessions at once, for example to seed a test or staging environment. Rows are inserted
+ * BATCH_SIZE at a time, each batch with one batched statement in one transaction (if the storage implements
+ * BulkInsertStorage, else one row at a time). If a batch fails, the batches before it stay inserted.
+ *
+ * The time taken is returned, logged and added to the /metrics API (bulkImport.*).
+ */
+public class BulkImport {
+
+    public static final int BATCH_SIZE = 1000;
+
+    public static class EmailPasswordUser {
+        @Nonnull
+        public final String email;
+
+        @Nonnull
+        public final String password;
+
+        public EmailPasswordUser(@Nonnull String email, @Nonnull String password) {
+            this.email = email;
+            this.password = password;
+        }
+    }
+
+    // Note that hashing the passwords usually takes much longer than inserting the users. If a batch has an email that
+    // already exists, the exception has the users of the batches before it, which stay inserted, so that the caller can
+    // resume after them.
+    public static BulkImportResult<UserInfo> signUpEmailPasswordUsers(Main main, List<EmailPasswordUser> users)
+            throws StorageQueryException, BulkImportDuplicateEmailException {
+        Histogram batchTime = Metrics.getInstance(main).getHistogram("bulkImport.emailPasswordUsers.batchTime");
+        long start = System.currentTimeMillis();
+
+        List<UserInfo> result = new ArrayList<>(users.size());
+        for (int from = 0; from < users.size(); from += BATCH_SIZE) {
+            List<EmailPasswordUser> batch = users.subList(from, Math.min(from + BATCH_SIZE, users.size()));
+            List<String> passwordHashes = new ArrayList<>(batch.size());
+            for (EmailPasswordUser user : batch) {
+                passwordHashes.add(PasswordHashing.getInstance(main).createHashWithSalt(user.password));
+            }
+
+            long batchStart = System.nanoTime();
+            while (true) {
+                long timeJoined = System.currentTimeMillis();
+                List<UserInfo> toInsert = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    toInsert.add(new UserInfo(Utils.getUUID(), batch.get(i).email, passwordHashes.get(i), timeJoined));
+                }
+                try {
+                    insertUsers(main, toInsert);
+                    result.addAll(toInsert);
+                    break;
+                } catch (DuplicateUserIdException ignored) {
+                    // we retry with new userIds (while loop)
+                } catch (DuplicateEmailException e) {
+                    report(main, "emailPasswordUsers", result, start);
+                    throw new BulkImportDuplicateEmailException(result, e);
+                }
+            }
+            batchTime.record(System.nanoTime() - batchStart);
+        }
+
+        return report(main, "emailPasswordUsers", result, start);
+    }
+
+    private static void insertUsers(Main main, List<UserInfo> users)
+            throws StorageQueryException, DuplicateEmailException, DuplicateUserIdException {
+        BulkInsertStorage bulkInsertStorage = StorageLayer.getOptionalStorage(main, BulkInsertStorage.class);
+        if (bulkInsertStorage != null) {
+            bulkInsertStorage.bulkSignUp(users);
+            return;
+        }
+        for (UserInfo user : users) {
+            StorageLayer.getEmailPasswordStorage(main).signUp(user);
+        }
+    }
+
+    public static class EmailPasswordUserWithPasswordHash {
+        @Nonnull
+        public final String email;
+
+        // a bcrypt or argon2id hash, as created by another system
+        @Nonnull
+        public final String passwordHash;
+
+        // if null, it is the time of the import
+        @Nullable
+        public final Long timeJoined;
+
+        public EmailPasswordUserWithPasswordHash(@Nonnull String email, @Nonnull String passwordHash,
+                @Nullable Long timeJoined) {
+            this.email = email;
+            this.passwordHash = passwordHash;
+            this.timeJoined = timeJoined;
+        }
+    }
+
+    public enum ImportError {
+        INVALID_PASSWORD_HASH, EMAIL_ALREADY_EXISTS
+    }
+
+    public static class EmailPasswordUserImportResult {
+        // null if the user was not imported
+        @Nullable
+        public final UserInfo user;
+
+        // null if the user was imported
+        @Nullable
+        public final ImportError error;
+
+        EmailPasswordUserImportResult(@Nullable UserInfo user, @Nullable ImportError error) {
+            this.user = user;
+            this.error = error;
+        }
+    }
+
+    // $2a$, $2b$ and $2y$ hashes are computed the same way for the passwords that jBCrypt can verify, but it only
+    // accepts $2a$, so the other ones are stored as that.
+    private static final Pattern BCRYPT_HASH = Pattern
+            .compile("^\\$2[aby]\\$(0[4-9]|[12][0-9]|3[01])\\$[./A-Za-z0-9]{53}$");
+    // we only verify argon2id hashes (see PasswordHashing)
+    private static final Pattern ARGON2ID_HASH = Pattern
+            .compile("^\\$argon2id\\$v=19\\$m=[0-9]+,t=[0-9]+,p=[0-9]+\\$[A-Za-z0-9+/]+\\$[A-Za-z0-9+/]+$");
+
+    // returns the hash the way it should be stored, or null if it is not one that we can verify
+    @Nullable
+    static String normalisePasswordHash(String passwordHash) {
+        if (ARGON2ID_HASH.matcher(passwordHash).matches()) {
+            return passwordHash;
+        }
+        if (BCRYPT_HASH.matcher(passwordHash).matches()) {
+            return "$2a$" + passwordHash.substring(4);
+        }
+        return null;
+    }
+
+    /*
+     * Imports users whose passwords have already been hashed, so unlike signUpEmailPasswordUsers, no hashing is done.
+     * Returns one result per user, in the same order. The users are validated in parallel and then inserted in one
+     * batch. Users whose email already exists (or is repeated in the list) are not imported. The existing emails are
+     * looked up with one query before the insert, and only if one of them signs up in between are the users inserted
+     * one by one instead.
+     *
+     * Users that are outside this list (for example, from another batch) are not seen, so callers should send at most
+     * BATCH_SIZE users at a time, and as many batches as they want.
+     */
+    public static List<EmailPasswordUserImportResult> importEmailPasswordUsersWithPasswordHashes(Main main,
+            List<EmailPasswordUserWithPasswordHash> users) throws StorageQueryException {
+        Histogram batchTime = Metrics.getInstance(main)
+                .getHistogram("bulkImport.emailPasswordUsersWithPasswordHash.batchTime");
+        long batchStart = System.nanoTime();
+
+        String[] emails = new String[users.size()];
+        String[] passwordHashes = new String[users.size()];
+        IntStream.range(0, users.size()).parallel().forEach(i -> {
+            emails[i] = Utils.normaliseEmail(users.get(i).email);
+            passwordHashes[i] = normalisePasswordHash(users.get(i).passwordHash);
+        });
+
+        EmailPasswordUserImportResult[] results = new EmailPasswordUserImportResult[users.size()];
+        List<Integer> toInsert = new ArrayList<>(users.size());
+        Set<String> emailsInBatch = new HashSet<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (passwordHashes[i] == null) {
+                results[i] = new EmailPasswordUserImportResult(null, ImportError.INVALID_PASSWORD_HASH);
+            } else if (!emailsInBatch.add(emails[i])) {
+                results[i] = new EmailPasswordUserImportResult(null, ImportError.EMAIL_ALREADY_EXISTS);
+            } else {
+                toInsert.add(i);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        BulkInsertStorage bulkInsertStorage = StorageLayer.getOptionalStorage(main, BulkInsertStorage.class);
+        if (bulkInsertStorage == null) {
+            // the storage inserts one row at a time anyway, so it tells us about existing emails as it goes.
+            for (int i : toInsert) {
+                UserInfo row = newUserInfo(users.get(i), emails[i], passwordHashes[i], now);
+                results[i] = signUpOrReportDuplicate(main, row);
+            }
+            toInsert.clear();
+        } else if (!toInsert.isEmpty()) {
+            // we find the emails that have signed up already with one query, so that re-sending a batch (for example,
+            // after a failed import) doesn't make every batch fall back to inserting the users one by one.
+            List<String> emailsToInsert = new ArrayList<>(toInsert.size());
+            for (int i : toInsert) {
+                emailsToInsert.add(emails[i]);
+            }
+            Set<String> existingEmails = bulkInsertStorage.getExistingEmails(emailsToInsert);
+            toInsert.removeIf(i -> {
+                if (existingEmails.contains(emails[i])) {
+                    results[i] = new EmailPasswordUserImportResult(null, ImportError.EMAIL_ALREADY_EXISTS);
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        while (!toInsert.isEmpty()) {
+            List<UserInfo> rows = new ArrayList<>(toInsert.size());
+            for (int i : toInsert) {
+                rows.add(newUserInfo(users.get(i), emails[i], passwordHashes[i], now));
+            }
+            try {
+                bulkInsertStorage.bulkSignUp(rows);
+                for (int j = 0; j < rows.size(); j++) {
+                    results[toInsert.get(j)] = new EmailPasswordUserImportResult(rows.get(j), null);
+                }
+                break;
+            } catch (DuplicateUserIdException ignored) {
+                // we retry with new userIds (while loop)
+            } catch (DuplicateEmailException e) {
+                // some of the emails have signed up after we looked them up. This should be rare, so we find out which
+                // ones by inserting the users one by one.
+                for (int j = 0; j < rows.size(); j++) {
+                    results[toInsert.get(j)] = signUpOrReportDuplicate(main, rows.get(j));
+                }
+                break;
+            }
+        }
+
+        batchTime.record(System.nanoTime() - batchStart);
+        Metrics.getInstance(main).getCounter("bulkImport.emailPasswordUsersWithPasswordHash")
+                .add(Arrays.stream(results).filter(r -> r.user != null).count());
+        return Arrays.asList(results);
+    }
+
+    private static UserInfo newUserInfo(EmailPasswordUserWithPasswordHash user, String email, String passwordHash,
+            long now) {
+        return new UserInfo(Utils.getUUID(), email, passwordHash, user.timeJoined == null ? now : user.timeJoined);
+    }
+
+    private static EmailPasswordUserImportResult signUpOrReportDuplicate(Main main, UserInfo user)
+            throws StorageQueryException {
+        while (true) {
+            try {
+                StorageLayer.getEmailPasswordStorage(main).signUp(user);
+                return new EmailPasswordUserImportResult(user, null);
+            } catch (DuplicateEmailException e) {
+                return new EmailPasswordUserImportResult(null, ImportError.EMAIL_ALREADY_EXISTS);
+            } catch (DuplicateUserIdException e) {
+                user = new UserInfo(Utils.getUUID(), user.email, user.passwordHash, user.timeJoined);
+            }
+        }
+    }
+
+    // creates a session for each of the userIds, the same way as Session.createNewSession
+    public static BulkImportResult<SessionInformationHolder> createNewSessions(Main main, List<String> userIds,
+            @Nonnull JsonObject userDataInJWT, @Nonnull JsonObject userDataInDatabase)
+            throws NoSuchAlgorithmException, UnsupportedEncodingException, StorageQueryException, InvalidKeyException,
+            InvalidKeySpecException, StorageTransactionLogicException, SignatureException, IllegalBlockSizeException,
+            BadPaddingException, InvalidAlgorithmParameterException, NoSuchPaddingException {
+        Histogram batchTime = Metrics.getInstance(main).getHistogram("bulkImport.sessions.batchTime");
+        long start = System.currentTimeMillis();
+
+        List<SessionInformationHolder> result = new ArrayList<>(userIds.size());
+        for (int from = 0; from < userIds.size(); from += BATCH_SIZE) {
+            List<String> batch = userIds.subList(from, Math.min(from + BATCH_SIZE, userIds.size()));
+            List<SessionInformationHolder> sessions = new ArrayList<>(batch.size());
+            List<io.supertokens.pluginInterface.session.SessionInfo> rows = new ArrayList<>(batch.size());
+            for (String userId : batch) {
+                String sessionHandle = UUID.randomUUID().toString();
+                TokenInfo refreshToken = RefreshToken.createNewRefreshToken(main, sessionHandle, userId, null, null);
+                TokenInfo accessToken = AccessToken.createNewAccessToken(main, sessionHandle, userId,
+                        Utils.hashSHA256(refreshToken.token), null, userDataInJWT, null, System.currentTimeMillis(),
+                        null);
+                rows.add(new io.supertokens.pluginInterface.session.SessionInfo(sessionHandle, userId,
+                        Utils.hashSHA256(Utils.hashSHA256(refreshToken.token)), userDataInDatabase,
+                        refreshToken.expiry, userDataInJWT, refreshToken.createdTime));
+
+                TokenInfo idRefreshToken = new TokenInfo(UUID.randomUUID().toString(), refreshToken.expiry,
+                        refreshToken.createdTime);
+                sessions.add(new SessionInformationHolder(
+                        new io.supertokens.session.info.SessionInfo(sessionHandle, userId, userDataInJWT),
+                        accessToken, refreshToken, idRefreshToken, null));
+            }
+
+            long batchStart = System.nanoTime();
+            BulkInsertStorage bulkInsertStorage = StorageLayer.getOptionalStorage(main, BulkInsertStorage.class);
+            if (bulkInsertStorage != null) {
+                bulkInsertStorage.bulkCreateNewSessions(rows);
+            } else {
+                for (io.supertokens.pluginInterface.session.SessionInfo row : rows) {
+                    StorageLayer.getSessionStorage(main).createNewSession(row.sessionHandle, row.userId,
+                            row.refreshTokenHash2, row.userDataInDatabase, row.expiry, row.userDataInJWT,
+                            row.timeCreated);
+                }
+            }
+            batchTime.record(System.nanoTime() - batchStart);
+            result.addAll(sessions);
+        }
+
+        return report(main, "sessions", result, start);
+    }
+
+    private static <T> BulkImportResult<T> report(Main main, String name, List<T> items, long start) {
+        BulkImportResult<T> result = new BulkImportResult<>(items, System.currentTimeMillis() - start);
+        Metrics.getInstance(main).getCounter("bulkImport." + name).add(items.size());
+        Logging.info(main, "Bulk import of " + name + ": " + items.size() + " in " + result.timeTakenMillis + " ms ("
+                + Math.round(result.getItemsPerSecond()) + " per second)", false);
+        return result;
+    }
+}
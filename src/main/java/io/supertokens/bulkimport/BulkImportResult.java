@@ -0,0 +1,35 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.bulkimport;
+
+import java.util.List;
+
+public class BulkImportResult<T> {
+
+    // in the same order as the input
+    public final List<T> items;
+
+    public final long timeTakenMillis;
+
+    BulkImportResult(List<T> items, long timeTakenMillis) {
+        this.items = items;
+        this.timeTakenMillis = timeTakenMillis;
+    }
+
+    public double getItemsPerSecond() {
+        return items.size() * 1000.0 / Math.max(timeTakenMillis, 1);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.bulkimport.exceptions;
+
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateEmailException;
+
+import java.util.List;
+
+// thrown when a batch has an email that already exists. The batches before it stay inserted: they are importedUsers.
+public class BulkImportDuplicateEmailException extends Exception {
+    private static final long serialVersionUID = -2830592147395811254L;
+
+    public final transient List<UserInfo> importedUsers;
+
+    public BulkImportDuplicateEmailException(List<UserInfo> importedUsers, DuplicateEmailException cause) {
+        super(importedUsers.size() + " users were imported before a batch with an email that already exists", cause);
+        this.importedUsers = importedUsers;
+    }
+}
@@ -56,6 +56,15 @@ public class CoreConfig {
     @JsonProperty
     private long passwordless_code_lifetime = 900000; // in MS
 
+    @JsonProperty
+    private long passwordless_rate_limit_window_ms = 60000;
+
+    @JsonProperty
+    private int passwordless_max_codes_per_window = 0;
+
+    @JsonProperty
+    private int passwordless_max_code_consumes_per_window = 0;
+
     private final String logDefault = "asdkfahbdfk3kjHS";
     @JsonProperty
     private String info_log_path = logDefault;
@@ -84,6 +93,15 @@ public class CoreConfig {
     @JsonProperty
     private boolean disable_telemetry = false;
 
+    @JsonProperty
+    private boolean storage_metrics_enabled = false;
+
+    @JsonProperty
+    private int expired_sessions_purge_batch_size = 1000;
+
+    @JsonProperty
+    private long expired_sessions_purge_batch_pause_ms = 100;
+
     @JsonProperty
     private String password_hashing_alg = "BCRYPT";
 
@@ -99,9 +117,21 @@ public class CoreConfig {
     @JsonProperty
     private int argon2_hashing_pool_size = 1;
 
+    @JsonProperty
+    private long argon2_hashing_queue_timeout_ms = 0;
+
     @JsonProperty
     private int bcrypt_log_rounds = 11;
 
+    @JsonProperty
+    private int bcrypt_hashing_pool_size = 0;
+
+    @JsonProperty
+    private long bcrypt_hashing_queue_timeout_ms = 0;
+
+    @JsonProperty
+    private boolean sign_in_timing_equalisation = false;
+
     // TODO: add https in later version
 //	# (OPTIONAL) boolean value (true or false). Set to true if you want to enable https requests to SuperTokens.
 //	# If you are not running SuperTokens within a closed network along with your API process, for 
@@ -172,6 +202,30 @@ public class CoreConfig {
         return Math.max(1, argon2_hashing_pool_size);
     }
 
+    // 0 means that an argon2 hash waits for as long as it takes for one of the argon2_hashing_pool_size slots
+    public long getArgon2HashingQueueTimeoutMillis() {
+        return argon2_hashing_queue_timeout_ms;
+    }
+
+    // bcrypt hashes run on the bcrypt hashing threads, one per slot. By default, there are as many as there are request
+    // threads, which is as many bcrypt hashes as could run at once before they were limited. A lower value stops a
+    // burst of sign ins from using every core and starving all the other requests.
+    public int getBcryptHashingPoolSize() {
+        if (bcrypt_hashing_pool_size == 0) {
+            return max_server_pool_size;
+        }
+        return bcrypt_hashing_pool_size;
+    }
+
+    // 0 means that a bcrypt hash waits for as long as it takes for one of the bcrypt_hashing_pool_size slots
+    public long getBcryptHashingQueueTimeoutMillis() {
+        return bcrypt_hashing_queue_timeout_ms;
+    }
+
+    public boolean isSignInTimingEqualisationEnabled() {
+        return sign_in_timing_equalisation;
+    }
+
     public int getArgon2Iterations() {
         return argon2_iterations;
     }
@@ -229,10 +283,37 @@ public class CoreConfig {
         return passwordless_code_lifetime;
     }
 
+    public long getPasswordlessRateLimitWindowMillis() {
+        return passwordless_rate_limit_window_ms;
+    }
+
+    // 0 means that the number of codes created for an email / phone number / device is not limited
+    public int getPasswordlessMaxCodesPerWindow() {
+        return passwordless_max_codes_per_window;
+    }
+
+    // 0 means that the number of attempts to consume a code of a device is not limited (other than by
+    // passwordless_max_code_input_attempts)
+    public int getPasswordlessMaxCodeConsumesPerWindow() {
+        return passwordless_max_code_consumes_per_window;
+    }
+
     public boolean isTelemetryDisabled() {
         return disable_telemetry;
     }
 
+    public boolean isStorageMetricsEnabled() {
+        return storage_metrics_enabled;
+    }
+
+    public int getExpiredSessionsPurgeBatchSize() {
+        return expired_sessions_purge_batch_size;
+    }
+
+    public long getExpiredSessionsPurgeBatchPauseMs() {
+        return expired_sessions_purge_batch_pause_ms;
+    }
+
     public String getInfoLogPath(Main main) {
         if (info_log_path == null || info_log_path.equalsIgnoreCase("null")) {
             return "null";
@@ -347,6 +428,18 @@ public class CoreConfig {
             throw new QuitProgramException("'passwordless_max_code_input_attempts' must be > 0");
         }
 
+        if (passwordless_rate_limit_window_ms <= 0) {
+            throw new QuitProgramException("'passwordless_rate_limit_window_ms' must be > 0");
+        }
+
+        if (passwordless_max_codes_per_window < 0) {
+            throw new QuitProgramException("'passwordless_max_codes_per_window' must be >= 0");
+        }
+
+        if (passwordless_max_code_consumes_per_window < 0) {
+            throw new QuitProgramException("'passwordless_max_code_consumes_per_window' must be >= 0");
+        }
+
         if (max_server_pool_size <= 0) {
             throw new QuitProgramException("'max_server_pool_size' must be >= 1. The config file can be found here: "
                     + getConfigFileLocation(main));
@@ -402,6 +495,32 @@ public class CoreConfig {
             }
         }
 
+        // checked for both algorithms, since bcrypt hashes of existing users are verified in ARGON2 mode too (and
+        // argon2 hashes in BCRYPT mode)
+        if (bcrypt_hashing_pool_size < 0) {
+            throw new QuitProgramException("'bcrypt_hashing_pool_size' must be >= 0");
+        }
+
+        if (bcrypt_hashing_pool_size > max_server_pool_size) {
+            throw new QuitProgramException("'bcrypt_hashing_pool_size' must be <= 'max_server_pool_size'");
+        }
+
+        if (bcrypt_hashing_queue_timeout_ms < 0) {
+            throw new QuitProgramException("'bcrypt_hashing_queue_timeout_ms' must be >= 0");
+        }
+
+        if (argon2_hashing_queue_timeout_ms < 0) {
+            throw new QuitProgramException("'argon2_hashing_queue_timeout_ms' must be >= 0");
+        }
+
+        if (expired_sessions_purge_batch_size <= 0) {
+            throw new QuitProgramException("'expired_sessions_purge_batch_size' must be >= 1");
+        }
+
+        if (expired_sessions_purge_batch_pause_ms < 0) {
+            throw new QuitProgramException("'expired_sessions_purge_batch_pause_ms' must be >= 0");
+        }
+
         if (base_path != null && !base_path.equals("") && !base_path.equals("/")) {
             if (base_path.contains(" ")) {
                 throw new QuitProgramException("Invalid characters in base_path config");
@@ -18,16 +18,33 @@ package io.supertokens.cronjobs.deleteExpiredSessions;
 
 import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
 import io.supertokens.cronjobs.CronTask;
 import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.storageLayer.BatchedExpiredSessionsStorage;
 import io.supertokens.storageLayer.StorageLayer;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class DeleteExpiredSessions extends CronTask {
 
     public static final String RESOURCE_KEY = "io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions";
 
+    private static final String METRIC_PREFIX = "cronjobs.deleteExpiredSessions.";
+
+    private final Counter rowsPurged;
+    private final Histogram batchTime;
+    private final AtomicLong rowsPurgedInLastRun = new AtomicLong(0);
+
     private DeleteExpiredSessions(Main main) {
         super("RemoveOldSessions", main);
+        Metrics metrics = Metrics.getInstance(main);
+        this.rowsPurged = metrics.getCounter(METRIC_PREFIX + "rowsPurged");
+        this.batchTime = metrics.getHistogram(METRIC_PREFIX + "batchTime");
+        metrics.registerGauge(METRIC_PREFIX + "rowsPurgedInLastRun", rowsPurgedInLastRun::get);
     }
 
     public static DeleteExpiredSessions getInstance(Main main) {
@@ -40,7 +57,32 @@ public class DeleteExpiredSessions extends CronTask {
 
     @Override
     protected void doTask() throws Exception {
-        StorageLayer.getSessionStorage(this.main).deleteAllExpiredSessions();
+        BatchedExpiredSessionsStorage storage = StorageLayer.getOptionalStorage(this.main,
+                BatchedExpiredSessionsStorage.class);
+        if (storage == null) {
+            StorageLayer.getSessionStorage(this.main).deleteAllExpiredSessions();
+            return;
+        }
+
+        // We delete a batch at a time, and pause in between so that the other queries on the session table get a
+        // chance to run. If a batch is slow (the db is busy), we pause for at least as long as it took, so that this
+        // job never keeps the db busy for more than about half of the time.
+        int batchSize = Config.getConfig(main).getExpiredSessionsPurgeBatchSize();
+        long pauseMillis = Config.getConfig(main).getExpiredSessionsPurgeBatchPauseMs();
+        long deletedInThisRun = 0;
+        while (true) {
+            long start = System.nanoTime();
+            int deleted = storage.deleteExpiredSessions(batchSize);
+            long batchNanos = System.nanoTime() - start;
+            batchTime.record(batchNanos);
+            rowsPurged.add(deleted);
+            deletedInThisRun += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            Thread.sleep(Math.max(pauseMillis, batchNanos / 1_000_000));
+        }
+        rowsPurgedInLastRun.set(deletedInThisRun);
     }
 
     @Override
@@ -51,7 +93,7 @@ public class DeleteExpiredSessions extends CronTask {
                 return interval;
             }
         }
-        return (12 * 3600); // twice a day.
+        return 3600; // every hour, so that each run only has a few batches to delete.
     }
 
     @Override
@@ -21,6 +21,7 @@ import io.supertokens.authRecipe.UserPaginationToken;
 import io.supertokens.config.Config;
 import io.supertokens.emailpassword.exceptions.ResetPasswordInvalidTokenException;
 import io.supertokens.emailpassword.exceptions.WrongCredentialsException;
+import io.supertokens.exceptions.ServiceUnavailableException;
 import io.supertokens.pluginInterface.emailpassword.PasswordResetTokenInfo;
 import io.supertokens.pluginInterface.emailpassword.UserInfo;
 import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateEmailException;
@@ -37,11 +38,16 @@ import org.jetbrains.annotations.TestOnly;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class EmailPassword {
 
+    // 128 characters once encoded, which is as long as the tokens that we made before
+    private static final int TOKEN_RANDOM_BYTES = 96;
+
     @TestOnly
     public static long getPasswordResetTokenLifetimeForTests(Main main) {
         return getPasswordResetTokenLifetime(main);
@@ -59,6 +65,12 @@ public class EmailPassword {
 
         String hashedPassword = PasswordHashing.getInstance(main).createHashWithSalt(password);
 
+        return signUpWithPasswordHash(main, email, hashedPassword);
+    }
+
+    // for when the password has already been hashed (see PasswordHashing.createHashWithSaltAsync)
+    public static UserInfo signUpWithPasswordHash(Main main, @Nonnull String email, @Nonnull String hashedPassword)
+            throws DuplicateEmailException, StorageQueryException {
         while (true) {
 
             String userId = Utils.getUUID();
@@ -80,45 +92,85 @@ public class EmailPassword {
             throws StorageQueryException, WrongCredentialsException {
 
         UserInfo user = StorageLayer.getEmailPasswordStorage(main).getUserInfoUsingEmail(email);
+        SignInTimingEqualiser timingEqualiser = SignInTimingEqualiser.getInstance(main);
 
         if (user == null) {
+            if (timingEqualiser.isEnabled()) {
+                try {
+                    timingEqualiser.delayLikeAVerification().join();
+                } catch (CompletionException e) {
+                    // a known email would not have got a hashing thread in time either
+                    throw (ServiceUnavailableException) e.getCause();
+                }
+            }
             throw new WrongCredentialsException();
         }
 
         try {
-            if (!PasswordHashing.getInstance(main).verifyPasswordWithHash(password, user.passwordHash)) {
+            boolean matches = PasswordHashing.getInstance(main).verifyPasswordWithHash(password, user.passwordHash);
+            if (!matches) {
                 throw new WrongCredentialsException();
             }
-        } catch (WrongCredentialsException e) {
+        } catch (WrongCredentialsException | ServiceUnavailableException e) {
+            // the password may be right, so we don't say that it's wrong if the hash was not done
             throw e;
         } catch (Exception ignored) {
             throw new WrongCredentialsException();
         }
 
+        PasswordHashUpgrader.getInstance(main).upgradeIfOutdated(user, password);
+
         return user;
     }
 
-    public static String generatePasswordResetToken(Main main, String userId)
-            throws InvalidKeySpecException, NoSuchAlgorithmException, StorageQueryException, UnknownUserIdException {
+    /*
+     * Same as signIn, except that the password is verified on the password hashing threads. The user is read on the
+     * calling thread. The future fails with a WrongCredentialsException or a ServiceUnavailableException.
+     */
+    public static CompletableFuture<UserInfo> signInAsync(Main main, @Nonnull String email, @Nonnull String password)
+            throws StorageQueryException {
 
-        while (true) {
+        UserInfo user = StorageLayer.getEmailPasswordStorage(main).getUserInfoUsingEmail(email);
+        SignInTimingEqualiser timingEqualiser = SignInTimingEqualiser.getInstance(main);
 
-            // we first generate a password reset token
-            byte[] random = new byte[64];
-            byte[] salt = new byte[64];
+        if (user == null) {
+            if (timingEqualiser.isEnabled()) {
+                return timingEqualiser.delayLikeAVerification().thenApply(ignored -> {
+                    throw new CompletionException(new WrongCredentialsException());
+                });
+            }
+            return CompletableFuture.failedFuture(new WrongCredentialsException());
+        }
 
-            new SecureRandom().nextBytes(random);
-            new SecureRandom().nextBytes(salt);
+        CompletableFuture<Boolean> verification = PasswordHashing.getInstance(main)
+                .verifyPasswordWithHashAsync(password, user.passwordHash);
+        CompletableFuture<UserInfo> result = verification.handle((matches, error) -> {
+            if (error instanceof ServiceUnavailableException) {
+                throw (ServiceUnavailableException) error;
+            }
+            if (error != null || !matches) {
+                throw new CompletionException(new WrongCredentialsException());
+            }
+            PasswordHashUpgrader.getInstance(main).upgradeIfOutdated(user, password);
+            return user;
+        });
+        // so that the hash is skipped if it has not started yet (see PasswordHashingLimiter)
+        result.whenComplete((ignored, error) -> {
+            if (error instanceof CancellationException) {
+                verification.cancel(false);
+            }
+        });
+        return result;
+    }
 
-            int iterations = 1000;
-            String token = Utils
-                    .toHex(Utils.pbkdf2(Utils.bytesToString(random).toCharArray(), salt, iterations, 64 * 6));
+    public static String generatePasswordResetToken(Main main, String userId)
+            throws InvalidKeySpecException, NoSuchAlgorithmException, StorageQueryException, UnknownUserIdException {
+
+        while (true) {
 
-            // we make it URL safe:
-            token = Utils.convertToBase64(token);
-            token = token.replace("=", "");
-            token = token.replace("/", "");
-            token = token.replace("+", "");
+            // we first generate a password reset token. It is only stored hashed, so tokens that were made
+            // differently before are still looked up the same way.
+            String token = Utils.generateUrlSafeRandomToken(TOKEN_RANDOM_BYTES);
 
             String hashedToken = Utils.hashSHA256(token);
 
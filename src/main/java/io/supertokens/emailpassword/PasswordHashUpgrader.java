@@ -0,0 +1,136 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.emailpassword;
+
+import io.supertokens.Main;
+import io.supertokens.ProcessState;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.pluginInterface.emailpassword.sqlStorage.EmailPasswordSQLStorage;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.storageLayer.StorageLayer;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Once a user has signed in, we know their password, so if their stored hash was created with an older config (see
+ * PasswordHashing.isHashOutdated), we hash the password again with the current config and store that instead. This
+ * happens in the background: the sign in does not wait for it, and if it fails (or if the hash is shed because the
+ * hashing threads are busy), the hash is upgraded on a later sign in instead. The new hash is stored from a thread of
+ * this class, so that the storage transaction does not hold up a password hashing thread or a shared pool.
+ *
+ * The number of upgraded hashes is reported in passwordHashing.upgraded.
+ */
+class PasswordHashUpgrader extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.emailpassword.PasswordHashUpgrader";
+
+    // hashes waiting to be stored past this are not upgraded this time
+    private static final int MAX_QUEUED_UPGRADES = 1000;
+
+    private final Main main;
+    private final Counter upgraded;
+    private final ThreadPoolExecutor executor;
+    // so that many sign ins of the same user at the same time only upgrade their hash once
+    private final Set<String> upgradesInProgress = ConcurrentHashMap.newKeySet();
+
+    private PasswordHashUpgrader(Main main) {
+        this.main = main;
+        this.upgraded = Metrics.getInstance(main).getCounter("passwordHashing.upgraded");
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED_UPGRADES), runnable -> {
+                    Thread thread = new Thread(runnable, "supertokens-password-hash-upgrader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    static PasswordHashUpgrader getInstance(Main main) {
+        return (PasswordHashUpgrader) main.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    // called by PasswordHashing.init
+    static void init(Main main) {
+        if (getInstance(main) != null) {
+            return;
+        }
+        main.getResourceDistributor().setResource(RESOURCE_KEY, new PasswordHashUpgrader(main));
+    }
+
+    // must only be called once password has been verified against user.passwordHash
+    void upgradeIfOutdated(UserInfo user, String password) {
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(main);
+        if (!passwordHashing.isHashOutdated(user.passwordHash) || !upgradesInProgress.add(user.id)) {
+            return;
+        }
+        String outdatedHash = user.passwordHash;
+        passwordHashing.createHashWithSaltAsync(password).thenAcceptAsync(newHash -> {
+            try {
+                if (replaceHash(user.id, outdatedHash, newHash)) {
+                    upgraded.increment();
+                    ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_HASH_UPGRADED, null);
+                }
+            } catch (Exception e) {
+                Logging.error(main, "Could not upgrade the password hash of user: " + user.id, false, e);
+            }
+        }, executor).whenComplete((ignored, error) -> {
+            upgradesInProgress.remove(user.id);
+            if (error != null) {
+                // for example, the hashing threads or this executor were too busy
+                Logging.debug(main, "Password hash of user: " + user.id + " was not upgraded: " + error.getMessage());
+            }
+        });
+    }
+
+    // the hash is only replaced if it has not been changed (for example, by a password reset) since the user signed in
+    private boolean replaceHash(String userId, String outdatedHash, String newHash)
+            throws StorageQueryException, StorageTransactionLogicException {
+        EmailPasswordSQLStorage storage = StorageLayer.getEmailPasswordStorage(main);
+        return storage.startTransaction(con -> {
+            UserInfo current = storage.getUserInfoUsingId_Transaction(con, userId);
+            if (current == null || !outdatedHash.equals(current.passwordHash)) {
+                storage.commitTransaction(con);
+                return false;
+            }
+            storage.updateUsersPassword_Transaction(con, userId, newHash);
+            storage.commitTransaction(con);
+            return true;
+        });
+    }
+
+    // upgrades whose hash is done are still stored
+    static void shutdownAndAwaitTermination(Main main) {
+        PasswordHashUpgrader instance = getInstance(main);
+        if (instance == null) {
+            return;
+        }
+        instance.executor.shutdown();
+        try {
+            instance.executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            // we are shutting down anyway
+        }
+    }
+}
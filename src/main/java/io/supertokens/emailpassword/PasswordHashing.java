@@ -26,19 +26,27 @@ import io.supertokens.config.CoreConfig;
 import org.jetbrains.annotations.TestOnly;
 import org.mindrot.jbcrypt.BCrypt;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 
 public class PasswordHashing extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.emailpassword.PasswordHashing";
     final static int ARGON2_SALT_LENGTH = 16;
     final static int ARGON2_HASH_LENGTH = 32;
-    final BlockingQueue<Object> boundedQueue;
+    final PasswordHashingLimiter argon2Limiter;
+    final PasswordHashingLimiter bcryptLimiter;
     final Main main;
 
     private PasswordHashing(Main main) {
-        this.boundedQueue = new LinkedBlockingQueue<>(Config.getConfig(main).getArgon2HashingPoolSize());
+        // as many submitted hashes can wait as there could be requests waiting on request threads, if they were run
+        // synchronously
+        int maxQueueSize = Config.getConfig(main).getMaxThreadPoolSize();
+        this.argon2Limiter = new PasswordHashingLimiter(main, "argon2",
+                Config.getConfig(main).getArgon2HashingPoolSize(),
+                Config.getConfig(main).getArgon2HashingQueueTimeoutMillis(), maxQueueSize);
+        this.bcryptLimiter = new PasswordHashingLimiter(main, "bcrypt",
+                Config.getConfig(main).getBcryptHashingPoolSize(),
+                Config.getConfig(main).getBcryptHashingQueueTimeoutMillis(), maxQueueSize);
         this.main = main;
     }
 
@@ -55,56 +63,146 @@ public class PasswordHashing extends ResourceDistributor.SingletonResource {
             return;
         }
         main.getResourceDistributor().setResource(RESOURCE_KEY, new PasswordHashing(main));
+        SignInTimingEqualiser.init(main);
+        PasswordHashUpgrader.init(main);
     }
 
     public String createHashWithSalt(String password) {
+        return getLimiterForNewHash().run(getCreateHashFunc(password));
+    }
+
+    // the hash is computed on one of the password hashing threads, so that the calling (request) thread can do other
+    // work meanwhile. The future fails with a ServiceUnavailableException if the hash could not start within the
+    // configured queue timeout.
+    public CompletableFuture<String> createHashWithSaltAsync(String password) {
+        return getLimiterForNewHash().submit(getCreateHashFunc(password));
+    }
+
+    public interface Func<T> {
+        T op();
+    }
+
+    PasswordHashingLimiter getLimiterForNewHash() {
+        if (Config.getConfig(main).getPasswordHashingAlg() == CoreConfig.PASSWORD_HASHING_ALG.BCRYPT) {
+            return this.bcryptLimiter;
+        }
+        return this.argon2Limiter;
+    }
+
+    private Func<String> getCreateHashFunc(String password) {
         if (Config.getConfig(main).getPasswordHashingAlg() == CoreConfig.PASSWORD_HASHING_ALG.BCRYPT) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_HASH_BCRYPT, null);
-            return BCrypt.hashpw(password, BCrypt.gensalt(Config.getConfig(main).getBcryptLogRounds()));
+            return () -> BCrypt.hashpw(password, BCrypt.gensalt(Config.getConfig(main).getBcryptLogRounds()));
         }
 
         ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_HASH_ARGON, null);
 
-        return withConcurrencyLimited(() -> argon2.hash(Config.getConfig(main).getArgon2Iterations(),
+        return () -> argon2.hash(Config.getConfig(main).getArgon2Iterations(),
                 Config.getConfig(main).getArgon2MemoryKb(), Config.getConfig(main).getArgon2Parallelism(),
-                password.toCharArray()));
+                password.toCharArray());
     }
 
-    public interface Func<T> {
-        T op();
+    // throws ServiceUnavailableException if the hash could not start within the configured queue timeout
+    public boolean verifyPasswordWithHash(String password, String hash) {
+        return getLimiterForHash(hash).run(getVerifyFunc(password, hash));
     }
 
-    private <T> T withConcurrencyLimited(Func<T> func) {
-        Object waiter = new Object();
-        try {
-            while (!this.boundedQueue.contains(waiter)) {
-                try {
-                    // put will wait for there to be an empty slot in the queue and return
-                    // only when there is a slot for waiter
-                    this.boundedQueue.put(waiter);
-                } catch (InterruptedException ignored) {
-                }
-            }
+    // see createHashWithSaltAsync
+    public CompletableFuture<Boolean> verifyPasswordWithHashAsync(String password, String hash) {
+        return getLimiterForHash(hash).submit(getVerifyFunc(password, hash));
+    }
 
-            return func.op();
+    private static boolean isArgon2Hash(String hash) {
+        // argon2 hash looks like $argon2id$v=..$m=..,t=..,p=..$tgSmiYOCjQ0im5U6...
+        return hash.startsWith("$argon2id");
+    }
 
-        } finally {
-            this.boundedQueue.remove(waiter);
-        }
+    private PasswordHashingLimiter getLimiterForHash(String hash) {
+        return isArgon2Hash(hash) ? this.argon2Limiter : this.bcryptLimiter;
     }
 
-    public boolean verifyPasswordWithHash(String password, String hash) {
-        if (hash.startsWith("$argon2id")) { // argon2 hash looks like $argon2id$v=..$m=..,t=..,p=..$tgSmiYOCjQ0im5U6...
+    private Func<Boolean> getVerifyFunc(String password, String hash) {
+        Func<Boolean> verify;
+        if (isArgon2Hash(hash)) {
             ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_ARGON, null);
+            verify = () -> argon2.verify(hash, password.toCharArray());
+        } else {
+            ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_BCRYPT, null);
+            verify = () -> BCrypt.checkpw(password, hash);
+        }
+        return () -> {
+            long start = System.nanoTime();
+            boolean matches = verify.op();
+            SignInTimingEqualiser timingEqualiser = SignInTimingEqualiser.getInstance(main);
+            // it is null while it verifies its first dummy hash
+            if (timingEqualiser != null) {
+                timingEqualiser.recordVerification(hash, System.nanoTime() - start);
+            }
+            return matches;
+        };
+    }
+
+    /*
+     * Whether hash was not created with the current config, either because it uses the other algorithm, or because its
+     * cost parameters (bcrypt_log_rounds / argon2_iterations, argon2_memory_kb, argon2_parallelism) have changed since.
+     * Hashes that we can't parse are left alone.
+     */
+    public boolean isHashOutdated(String hash) {
+        CoreConfig config = Config.getConfig(main);
+        boolean isArgon2 = isArgon2Hash(hash);
+        if (isArgon2 != (config.getPasswordHashingAlg() == CoreConfig.PASSWORD_HASHING_ALG.ARGON2)) {
+            return true;
+        }
+        String[] parts = hash.split("\\$");
+        try {
+            if (isArgon2) {
+                // parts look like ["", "argon2id", "v=19", "m=65536,t=10,p=1", salt, hash]
+                if (parts.length < 4) {
+                    return false;
+                }
+                int memoryKb = -1;
+                int iterations = -1;
+                int parallelism = -1;
+                for (String param : parts[3].split(",")) {
+                    if (param.startsWith("m=")) {
+                        memoryKb = Integer.parseInt(param.substring(2));
+                    } else if (param.startsWith("t=")) {
+                        iterations = Integer.parseInt(param.substring(2));
+                    } else if (param.startsWith("p=")) {
+                        parallelism = Integer.parseInt(param.substring(2));
+                    }
+                }
+                if (memoryKb == -1 || iterations == -1 || parallelism == -1) {
+                    return false;
+                }
+                return memoryKb != config.getArgon2MemoryKb() || iterations != config.getArgon2Iterations()
+                        || parallelism != config.getArgon2Parallelism();
+            }
+            // parts look like ["", "2a", "11", salt + hash]
+            if (parts.length < 4) {
+                return false;
+            }
+            return Integer.parseInt(parts[2]) != config.getBcryptLogRounds();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
 
-            return withConcurrencyLimited(() -> argon2.verify(hash, password.toCharArray()));
+    public static void shutdownAndAwaitTermination(Main main) {
+        PasswordHashing instance = getInstance(main);
+        if (instance == null) {
+            return;
         }
-        ProcessState.getInstance(main).addState(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_BCRYPT, null);
-        return BCrypt.checkpw(password, hash);
+        SignInTimingEqualiser.shutdownAndAwaitTermination(main);
+        instance.argon2Limiter.shutdownAndAwaitTermination();
+        instance.bcryptLimiter.shutdownAndAwaitTermination();
+        // after the limiters, so that no more upgrades are queued
+        PasswordHashUpgrader.shutdownAndAwaitTermination(main);
     }
 
+    // the number of argon2 hashes that are running right now
     @TestOnly
     public int getBlockedQueueSize() {
-        return this.boundedQueue.size();
+        return this.argon2Limiter.getRunningCount();
     }
 }
@@ -0,0 +1,177 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.emailpassword;
+
+import io.supertokens.Main;
+import io.supertokens.exceptions.ServiceUnavailableException;
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Caps the number of hashes of one algorithm that run at the same time. Waiters are served in the order in which they
+ * arrived (fair semaphore). If a timeout is set and a permit is not available within it, the hash is not done and a
+ * ServiceUnavailableException is thrown, so that a burst of sign ins is shed instead of piling up on request threads.
+ *
+ * Hashes can either be run on the calling thread (run), or be submitted to a pool of maxConcurrency threads owned by
+ * this limiter (submit), so that the calling request thread is free while the hash is computed. For a submitted hash,
+ * the wait (and the timeout) starts when it is submitted, and the hash is skipped if its future is cancelled before a
+ * thread picks it up. At most maxQueueSize submitted hashes can wait for a thread: since submitted requests don't hold
+ * a request thread, nothing else would stop them from piling up in memory, so submitting more than that throws a
+ * ServiceUnavailableException right away, even without a timeout.
+ *
+ * The time spent waiting for a permit and the time spent hashing are recorded separately in
+ * passwordHashing.<name>.waitTime and passwordHashing.<name>.hashTime.
+ */
+class PasswordHashingLimiter {
+
+    private final String name;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+    private final Semaphore permits;
+    private final ThreadPoolExecutor executor;
+    private final Histogram waitTime;
+    private final Histogram hashTime;
+    private final Counter rejected;
+    private volatile boolean stopped = false;
+
+    // acquireTimeoutMillis of 0 means that a hash waits for as long as it takes to get a permit
+    PasswordHashingLimiter(Main main, String name, int maxConcurrency, long acquireTimeoutMillis, int maxQueueSize) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(maxConcurrency, true);
+        AtomicInteger threadNumber = new AtomicInteger(0);
+        // the threads are only started when the first hash is submitted
+        this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(maxQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "supertokens-" + name + "-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Metrics metrics = Metrics.getInstance(main);
+        this.waitTime = metrics.getHistogram("passwordHashing." + name + ".waitTime");
+        this.hashTime = metrics.getHistogram("passwordHashing." + name + ".hashTime");
+        this.rejected = metrics.getCounter("passwordHashing." + name + ".rejected");
+        metrics.registerGauge("passwordHashing." + name + ".waiting",
+                () -> this.permits.getQueueLength() + this.executor.getQueue().size());
+        metrics.registerGauge("passwordHashing." + name + ".running", this::getRunningCount);
+    }
+
+    <T> T run(PasswordHashing.Func<T> func) {
+        return runWaitingSince(System.nanoTime(), func);
+    }
+
+    <T> CompletableFuture<T> submit(PasswordHashing.Func<T> func) {
+        long waitStart = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (result.isCancelled()) {
+                    // nobody waits for this hash any more (for example, the request has timed out)
+                    return;
+                }
+                try {
+                    result.complete(runWaitingSince(waitStart, func));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // either the queue is full, or the core is shutting down
+            rejected.increment();
+            result.completeExceptionally(stopped ? new ServiceUnavailableException("Password hashing has been stopped")
+                    : newTooManyException());
+        }
+        return result;
+    }
+
+    private <T> T runWaitingSince(long waitStart, PasswordHashing.Func<T> func) {
+        boolean acquired;
+        try {
+            if (stopped) {
+                acquired = false;
+            } else if (acquireTimeoutMillis > 0) {
+                long remainingNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMillis)
+                        - (System.nanoTime() - waitStart);
+                acquired = remainingNanos > 0 && permits.tryAcquire(remainingNanos, TimeUnit.NANOSECONDS);
+            } else {
+                permits.acquire();
+                acquired = true;
+            }
+        } catch (InterruptedException e) {
+            // the thread is being stopped (for example, the core is shutting down), so we don't hash
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        long hashStart = System.nanoTime();
+        waitTime.record(hashStart - waitStart);
+        if (!acquired) {
+            rejected.increment();
+            throw newTooManyException();
+        }
+
+        try {
+            return func.op();
+        } finally {
+            permits.release();
+            hashTime.record(System.nanoTime() - hashStart);
+        }
+    }
+
+    ServiceUnavailableException newTooManyException() {
+        return new ServiceUnavailableException("Too many " + name + " password hashing requests. Please try again");
+    }
+
+    long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    // roughly how long a hash would wait for a permit if it started waiting now, given that a hash takes hashNanos
+    long estimateWaitNanos(long hashNanos) {
+        int waiting = permits.getQueueLength() + executor.getQueue().size();
+        if (waiting == 0 && permits.availablePermits() > 0) {
+            return 0;
+        }
+        // the hashes that are waiting start maxConcurrency at a time, and this one starts after them
+        return (waiting / maxConcurrency + 1) * hashNanos;
+    }
+
+    int getRunningCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    // hashes that were submitted but have not started yet fail with a ServiceUnavailableException. Ones that have
+    // started are waited for.
+    void shutdownAndAwaitTermination() {
+        stopped = true;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            // we are shutting down anyway
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.emailpassword;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.utils.Utils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Without this, a sign in with an unknown email returns right away, whereas one with a known email takes as long as
+ * a password hash verification, so the response time tells whether an email has signed up. Instead of hashing a
+ * dummy password for unknown emails (which would double our hashing load under an enumeration attack), we delay
+ * their response by how long a verification would take right now, using a scheduler thread that does no CPU work
+ * while waiting.
+ *
+ * That is the time a verification would wait for a hashing thread (estimated from how many hashes are waiting in the
+ * hashing limiter) plus the time it takes to hash. The latter is measured per algorithm: it is first measured by
+ * verifying a dummy hash (created with the current config) when the core starts, and is then kept up to date with a
+ * moving average of the real verifications of hashes that use the current config. If the wait is longer than the
+ * hashing queue timeout, the sign in fails with a ServiceUnavailableException after the timeout, like it would for
+ * an email that has signed up.
+ */
+class SignInTimingEqualiser extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.emailpassword.SignInTimingEqualiser";
+    // weight of a new verification in the moving average is 1 / 2^VERIFY_TIME_AVERAGE_SHIFT
+    private static final int VERIFY_TIME_AVERAGE_SHIFT = 3;
+
+    private final Main main;
+    private final boolean enabled;
+    // null if not enabled
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<CoreConfig.PASSWORD_HASHING_ALG, AtomicLong> verifyTimeNanos = new ConcurrentHashMap<>();
+
+    private SignInTimingEqualiser(Main main) {
+        this.main = main;
+        this.enabled = Config.getConfig(main).isSignInTimingEqualisationEnabled();
+        if (!this.enabled) {
+            this.scheduler = null;
+            return;
+        }
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "supertokens-sign-in-timing-equaliser");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // so that the first sign ins don't have to wait for the dummy hash
+        getVerifyTimeNanos(Config.getConfig(main).getPasswordHashingAlg());
+    }
+
+    static SignInTimingEqualiser getInstance(Main main) {
+        return (SignInTimingEqualiser) main.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    // called by PasswordHashing.init
+    static void init(Main main) {
+        if (getInstance(main) != null) {
+            return;
+        }
+        main.getResourceDistributor().setResource(RESOURCE_KEY, new SignInTimingEqualiser(main));
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // hash is the one that was verified, and durationNanos does not include the time it waited for a hashing thread
+    void recordVerification(String hash, long durationNanos) {
+        if (!enabled || PasswordHashing.getInstance(main).isHashOutdated(hash)) {
+            // its cost is not the one that a hash of a new user would have
+            return;
+        }
+        // null while the first verification of this algorithm is being measured
+        AtomicLong verifyTime = verifyTimeNanos.get(Config.getConfig(main).getPasswordHashingAlg());
+        if (verifyTime != null) {
+            verifyTime.accumulateAndGet(durationNanos,
+                    (average, sample) -> average + ((sample - average) >> VERIFY_TIME_AVERAGE_SHIFT));
+        }
+    }
+
+    // completes after about as long as verifying a password hash would take right now, or fails with a
+    // ServiceUnavailableException if the verification would not get a hashing thread within the queue timeout
+    CompletableFuture<Void> delayLikeAVerification() {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        PasswordHashingLimiter limiter = PasswordHashing.getInstance(main).getLimiterForNewHash();
+        long verifyNanos = getVerifyTimeNanos(Config.getConfig(main).getPasswordHashingAlg());
+        long waitNanos = limiter.estimateWaitNanos(verifyNanos);
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(limiter.getAcquireTimeoutMillis());
+        try {
+            if (timeoutNanos > 0 && waitNanos > timeoutNanos) {
+                scheduler.schedule(() -> result.completeExceptionally(limiter.newTooManyException()), timeoutNanos,
+                        TimeUnit.NANOSECONDS);
+            } else {
+                scheduler.schedule(() -> result.complete(null), waitNanos + verifyNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // the core is shutting down
+            result.complete(null);
+        }
+        return result;
+    }
+
+    long getVerifyTimeNanos(CoreConfig.PASSWORD_HASHING_ALG alg) {
+        return getVerifyTimeNanosHolder(alg).get();
+    }
+
+    private AtomicLong getVerifyTimeNanosHolder(CoreConfig.PASSWORD_HASHING_ALG alg) {
+        // the password hashing alg only changes at runtime in tests, so this is normally measured once
+        return verifyTimeNanos.computeIfAbsent(alg, ignored -> new AtomicLong(measureDummyVerification()));
+    }
+
+    private long measureDummyVerification() {
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(main);
+        String dummyPassword = Utils.getUUID();
+        String dummyHash = passwordHashing.createHashWithSalt(dummyPassword);
+        long start = System.nanoTime();
+        // a wrong password, like most sign ins with an unknown email would have
+        passwordHashing.verifyPasswordWithHash(dummyPassword + "-", dummyHash);
+        return System.nanoTime() - start;
+    }
+
+    static void shutdownAndAwaitTermination(Main main) {
+        SignInTimingEqualiser instance = getInstance(main);
+        if (instance == null || instance.scheduler == null) {
+            return;
+        }
+        // delays that have been scheduled still complete, so that those responses are sent
+        instance.scheduler.shutdown();
+        try {
+            instance.scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            // we are shutting down anyway
+        }
+    }
+}
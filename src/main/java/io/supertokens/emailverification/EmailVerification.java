@@ -30,11 +30,13 @@ import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
 
 import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 
 public class EmailVerification {
 
+    // 128 characters once encoded, which is as long as the tokens that we made before
+    private static final int TOKEN_RANDOM_BYTES = 96;
+
     @TestOnly
     public static long getEmailVerificationTokenLifetimeForTests(Main main) {
         return getEmailVerificationTokenLifetime(main);
@@ -57,22 +59,9 @@ public class EmailVerification {
 
         while (true) {
 
-            // we first generate a email verification token
-            byte[] random = new byte[64];
-            byte[] salt = new byte[64];
-
-            new SecureRandom().nextBytes(random);
-            new SecureRandom().nextBytes(salt);
-
-            int iterations = 1000;
-            String token = Utils
-                    .toHex(Utils.pbkdf2(Utils.bytesToString(random).toCharArray(), salt, iterations, 64 * 6));
-
-            // we make it URL safe:
-            token = Utils.convertToBase64(token);
-            token = token.replace("=", "");
-            token = token.replace("/", "");
-            token = token.replace("+", "");
+            // we first generate an email verification token. It is only stored hashed, so tokens that were made
+            // differently before are still looked up the same way.
+            String token = Utils.generateUrlSafeRandomToken(TOKEN_RANDOM_BYTES);
 
             String hashedToken = getHashedToken(token);
 
@@ -16,34 +16,120 @@
 
 package io.supertokens.inmemorydb;
 
+import io.supertokens.Main;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.inmemorydb.config.Config;
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+import org.sqlite.SQLiteConfig;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/*
+ * A bounded pool of connections to the shared in memory db. Connections are created lazily (up to
+ * getConnectionPoolSize()), and are returned to the pool when the ConnectionWithLocks that wraps them is closed. If
+ * all connections are leased out, getConnection waits for up to getConnectionLeaseTimeoutMillis() for one to be
+ * returned, and then fails.
+ *
+ * If sqlite_file_path is set, the connections are to that file instead, in WAL mode (readers do not block the writer
+ * and vice versa) with synchronous=NORMAL (a commit survives the process crashing, but the last few may be lost if
+ * the OS crashes or the machine loses power). Transactions start with BEGIN IMMEDIATE, so they take SQLite's write
+ * lock up front and wait for it (busy_timeout) instead of failing with SQLITE_BUSY when upgrading from a read lock.
+ */
 public class ConnectionPool extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.ConnectionPool";
-    private static String URL = "jdbc:sqlite:file::memory:?cache=shared";
+    private static final String IN_MEMORY_URL = "jdbc:sqlite:file::memory:?cache=shared";
+    private static final String METRIC_PREFIX = "inmemorydb.connectionPool.";
 
-    // we use this to keep all the information in memory across requests.
+    private final String url;
+    // null if the db is in memory
+    private final Properties fileConnectionProperties;
+    // we use this to keep all the information in memory across requests. Not needed if the db is in a file.
     private Connection alwaysAlive = null;
-    private Lock lock = new Lock();
+    private final KeyLockManager keyLocks;
+
+    // most recently returned first, so that we keep reusing the same few connections when the load is low.
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore leases;
+    private final long leaseTimeoutMillis;
+    private final int statementCacheSize;
+    private final AtomicInteger inUse = new AtomicInteger(0);
+    private boolean closed = false;
+
+    private final Counter created;
+    private final Counter leased;
+    private final Counter leaseTimeouts;
+    private final Counter discarded;
+    private final Histogram leaseWait;
+
+    public ConnectionPool(Start start, Main main) throws SQLException {
+        if (Config.getConfig(start).isFileBacked()) {
+            this.url = "jdbc:sqlite:" + Config.getConfig(start).getFilePath();
+            this.fileConnectionProperties = getFileConnectionProperties(start);
+        } else {
+            this.url = IN_MEMORY_URL;
+            this.fileConnectionProperties = null;
+            this.alwaysAlive = DriverManager.getConnection(IN_MEMORY_URL);
+        }
+        this.leases = new Semaphore(Config.getConfig(start).getConnectionPoolSize(), true);
+        this.leaseTimeoutMillis = Config.getConfig(start).getConnectionLeaseTimeoutMillis();
+        this.statementCacheSize = Config.getConfig(start).getPreparedStatementCacheSize();
 
-    public ConnectionPool() throws SQLException {
-        this.alwaysAlive = DriverManager.getConnection(URL);
+        Metrics metrics = Metrics.getInstance(main);
+        this.keyLocks = new KeyLockManager(Config.getConfig(start).getKeyLockTimeoutMillis(), metrics);
+        this.created = metrics.getCounter(METRIC_PREFIX + "created");
+        this.leased = metrics.getCounter(METRIC_PREFIX + "leased");
+        this.leaseTimeouts = metrics.getCounter(METRIC_PREFIX + "leaseTimeouts");
+        this.discarded = metrics.getCounter(METRIC_PREFIX + "discarded");
+        this.leaseWait = metrics.getHistogram(METRIC_PREFIX + "leaseWait");
+        metrics.registerGauge(METRIC_PREFIX + "inUse", inUse::get);
+        metrics.registerGauge(METRIC_PREFIX + "idle", idleConnections::size);
+        metrics.registerGauge("inmemorydb.keyLock.held", keyLocks::getHeldCount);
+        metrics.registerGauge("inmemorydb.keyLock.waiting", keyLocks::getWaitingCount);
     }
 
-    static void initPool(Start start) throws SQLException {
-        start.getResourceDistributor().setResource(RESOURCE_KEY, new ConnectionPool());
+    static void initPool(Start start, Main main) throws SQLException {
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new ConnectionPool(start, main));
     }
 
     public static Connection getConnection(Start start) throws SQLException {
         if (!start.enabled) {
             throw new SQLException("Storage layer disabled");
         }
-        return new ConnectionWithLocks(DriverManager.getConnection(URL), ConnectionPool.getInstance(start));
+        ConnectionPool pool = ConnectionPool.getInstance(start);
+        if (pool == null) {
+            throw new SQLException("Connection pool not initialised");
+        }
+        return new ConnectionWithLocks(pool.lease(), pool, false);
+    }
+
+    // for read only transactions (see Start.startReadOnlyTransaction). The connection rejects writes, and does not take
+    // any key locks.
+    static Connection getReadOnlyConnection(Start start) throws SQLException {
+        if (!start.enabled) {
+            throw new SQLException("Storage layer disabled");
+        }
+        ConnectionPool pool = ConnectionPool.getInstance(start);
+        if (pool == null) {
+            throw new SQLException("Connection pool not initialised");
+        }
+        PooledConnection con = pool.lease();
+        try {
+            con.setReadOnly(true);
+        } catch (SQLException | RuntimeException e) {
+            pool.release(con);
+            throw e;
+        }
+        return new ConnectionWithLocks(con, pool, true);
     }
 
     private static ConnectionPool getInstance(Start start) {
@@ -54,18 +140,136 @@ public class ConnectionPool extends ResourceDistributor.SingletonResource {
         if (getInstance(start) == null) {
             return;
         }
+        getInstance(start).closeAll();
+    }
+
+    private PooledConnection lease() throws SQLException {
+        long waitStart = System.nanoTime();
         try {
-            getInstance(start).alwaysAlive.close();
-        } catch (Exception ignored) {
+            if (!leases.tryAcquire(leaseTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                leaseTimeouts.increment();
+                throw new SQLException("Timed out after " + leaseTimeoutMillis
+                        + "ms waiting for a connection to the in memory db. All connections are in use.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        leaseWait.record(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection con = idleConnections.pollFirst();
+            while (con != null && !isValid(con.connection)) {
+                discard(con);
+                con = idleConnections.pollFirst();
+            }
+            if (con == null) {
+                con = new PooledConnection(openConnection(), statementCacheSize);
+                created.increment();
+            }
+            leased.increment();
+            inUse.incrementAndGet();
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            leases.release();
+            throw e;
+        }
+    }
+
+    // the driver applies these pragmas to every connection it opens
+    private static Properties getFileConnectionProperties(Start start) {
+        SQLiteConfig sqliteConfig = new SQLiteConfig();
+        sqliteConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        sqliteConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        // a negative value is in KiB instead of in pages
+        sqliteConfig.setCacheSize(-Config.getConfig(start).getCacheSizeKb());
+        sqliteConfig.setPragma(SQLiteConfig.Pragma.MMAP_SIZE,
+                Long.toString(Config.getConfig(start).getMmapSizeBytes()));
+        sqliteConfig.setBusyTimeout(Config.getConfig(start).getBusyTimeoutMillis());
+        sqliteConfig.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+        return sqliteConfig.toProperties();
+    }
+
+    private Connection openConnection() throws SQLException {
+        if (fileConnectionProperties == null) {
+            return DriverManager.getConnection(url);
+        }
+        return DriverManager.getConnection(url, fileConnectionProperties);
+    }
+
+    // called by ConnectionWithLocks when it is closed.
+    void release(PooledConnection con) {
+        inUse.decrementAndGet();
+        try {
+            if (resetForReuse(con)) {
+                synchronized (this) {
+                    if (!closed) {
+                        idleConnections.offerFirst(con);
+                        return;
+                    }
+                }
+            }
+            discard(con);
+        } finally {
+            leases.release();
+        }
+    }
+
+    // a connection may come back in the middle of a transaction if the code using it threw before committing.
+    private static boolean resetForReuse(PooledConnection pooled) {
+        Connection con = pooled.connection;
+        try {
+            if (con.isClosed()) {
+                return false;
+            }
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+            pooled.setReadOnly(false);
+            con.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean isValid(Connection con) {
+        try {
+            return !con.isClosed();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection con) {
+        discarded.increment();
+        con.close();
+    }
+
+    private void closeAll() {
+        synchronized (this) {
+            closed = true;
+        }
+        PooledConnection con = idleConnections.pollFirst();
+        while (con != null) {
+            con.close();
+            con = idleConnections.pollFirst();
+        }
+        if (alwaysAlive != null) {
+            try {
+                alwaysAlive.close();
+            } catch (Exception ignored) {
+            }
         }
     }
 
-    public void lock(String key) {
-        this.lock.lock(key);
+    void lock(String key, ConnectionWithLocks owner) throws SQLException {
+        this.keyLocks.lock(key, owner);
     }
 
-    public void unlock(String key) {
-        this.lock.unlock(key);
+    void unlock(String key, ConnectionWithLocks owner) {
+        this.keyLocks.unlock(key, owner);
     }
 
 }
@@ -25,27 +25,56 @@ import java.util.concurrent.Executor;
 
 public class ConnectionWithLocks implements Connection {
 
+    private PooledConnection pooledConnection;
     private Connection con;
     private ConnectionPool connectionPool;
-    private Set<String> lockedKeys = new HashSet<String>();
-
-    public synchronized void lock(String key) {
+    // most connections are only used for reads, so this is only created when the first key is locked.
+    private Set<String> lockedKeys = null;
+    private final boolean readOnly;
+    private boolean closed = false;
+
+    // waits till no other connection holds the key. Throws if that takes too long, or if waiting would deadlock (see
+    // KeyLockManager).
+    //
+    // A read only connection never writes, so it does not need to keep others from changing a key that it has read.
+    // SQLite gives it a consistent view of the data for the whole transaction, so locking is a no op for it.
+    public synchronized void lock(String key) throws SQLException {
+        if (readOnly) {
+            return;
+        }
+        if (this.lockedKeys == null) {
+            this.lockedKeys = new HashSet<>();
+        }
         if (!this.lockedKeys.contains(key)) {
+            connectionPool.lock(key, this);
             this.lockedKeys.add(key);
-            connectionPool.lock(key);
         }
     }
 
     private synchronized void unlockAllLocks() {
+        if (lockedKeys == null) {
+            return;
+        }
         for (String key : lockedKeys) {
-            connectionPool.unlock(key);
+            connectionPool.unlock(key, this);
         }
         this.lockedKeys.clear();
     }
 
-    public ConnectionWithLocks(Connection con, ConnectionPool connectionPool) {
-        this.con = con;
+    ConnectionWithLocks(PooledConnection pooledConnection, ConnectionPool connectionPool, boolean readOnly) {
+        this.pooledConnection = pooledConnection;
+        this.con = pooledConnection.connection;
         this.connectionPool = connectionPool;
+        this.readOnly = readOnly;
+    }
+
+    // see PooledConnection.prepareCachedStatement. Used by QueryExecutorTemplate.
+    PreparedStatement prepareCachedStatement(String sql) throws SQLException {
+        return pooledConnection.prepareCachedStatement(sql);
+    }
+
+    void evictCachedStatement(String sql) {
+        pooledConnection.evictCachedStatement(sql);
     }
 
     @Override
@@ -96,18 +125,24 @@ public class ConnectionWithLocks implements Connection {
         }
     }
 
+    // returns the underlying connection to the pool (which rolls back any uncommitted transaction) instead of closing
+    // it. The locks are released after that so that no one else can see uncommitted changes for a locked key.
     @Override
-    public void close() throws SQLException {
+    public synchronized void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
         try {
-            con.close();
+            connectionPool.release(pooledConnection);
         } finally {
             this.unlockAllLocks();
         }
     }
 
     @Override
-    public boolean isClosed() throws SQLException {
-        return con.isClosed();
+    public synchronized boolean isClosed() throws SQLException {
+        return closed || con.isClosed();
     }
 
     @Override
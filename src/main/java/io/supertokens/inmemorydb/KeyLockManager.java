@@ -0,0 +1,231 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb;
+
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Row level locks for the in memory db (SQLite only has a database level write lock). A key is held by an owner (the
+ * ConnectionWithLocks that locked it) until the owner unlocks it.
+ *
+ * Keys are hashed onto a fixed number of stripes, and each stripe has its own mutex, so locking unrelated keys does
+ * not contend on a single monitor. Every waiter waits on its own condition, and unlock hands the key directly to the
+ * longest waiting owner and wakes only that thread, so waiters on a key are served in FIFO order and no one else is
+ * woken up.
+ *
+ * A waiter gives up after timeoutMillis (SQLTimeoutException). Before waiting, we follow the chain of
+ * "key -> owner -> key that owner is waiting for" and if it leads back to us, we fail with an
+ * SQLTransactionRollbackException instead of waiting, which makes Start.startTransaction retry the transaction.
+ */
+public class KeyLockManager {
+
+    private static final int STRIPES = 64;
+    private static final String METRIC_PREFIX = "inmemorydb.keyLock.";
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // written only while holding the key's stripe mutex, but read without it during deadlock detection.
+    private final Map<String, Object> owners = new ConcurrentHashMap<>();
+    private final Map<Object, String> waitingFor = new ConcurrentHashMap<>();
+    private final long timeoutNanos;
+
+    private final Counter contended;
+    private final Counter timeouts;
+    private final Counter deadlocks;
+    private final Histogram waitTime;
+
+    public KeyLockManager(long timeoutMillis, Metrics metrics) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.contended = metrics.getCounter(METRIC_PREFIX + "contended");
+        this.timeouts = metrics.getCounter(METRIC_PREFIX + "timeouts");
+        this.deadlocks = metrics.getCounter(METRIC_PREFIX + "deadlocks");
+        this.waitTime = metrics.getHistogram(METRIC_PREFIX + "waitTime");
+    }
+
+    // locking a key that the owner already holds does nothing. Locks are not counted, so it is released by the first
+    // unlock.
+    public void lock(String key, Object owner) throws SQLException {
+        Stripe stripe = stripeFor(key);
+        Waiter waiter;
+        stripe.mutex.lock();
+        try {
+            Object holder = owners.get(key);
+            if (holder == null) {
+                owners.put(key, owner);
+                return;
+            }
+            if (holder == owner) {
+                return;
+            }
+            waiter = new Waiter(owner, stripe.mutex.newCondition());
+            stripe.waiters.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(waiter);
+            waitingFor.put(owner, key);
+        } finally {
+            stripe.mutex.unlock();
+        }
+        contended.increment();
+        long waitStart = System.nanoTime();
+
+        // this is done without holding the stripe mutex since the chain can go through any stripe. A deadlock does
+        // not go away on its own, so whichever owner closes the cycle will see it here, since it has already
+        // published the key it is waiting for.
+        boolean deadlocked = isDeadlocked(owner, key);
+
+        stripe.mutex.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (!waiter.acquired) {
+                if (deadlocked) {
+                    abandon(stripe, key, waiter);
+                    deadlocks.increment();
+                    throw new SQLTransactionRollbackException("Deadlock found while waiting for the lock on " + key);
+                }
+                if (remaining <= 0) {
+                    abandon(stripe, key, waiter);
+                    timeouts.increment();
+                    throw new SQLTimeoutException("Timed out after " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                            + "ms waiting for the lock on " + key);
+                }
+                try {
+                    remaining = waiter.granted.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    if (waiter.acquired) {
+                        // we already own the key, so we keep it and let the caller see the interrupt
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    abandon(stripe, key, waiter);
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for the lock on " + key, e);
+                }
+            }
+        } finally {
+            waitingFor.remove(owner, key);
+            stripe.mutex.unlock();
+            waitTime.record(System.nanoTime() - waitStart);
+        }
+    }
+
+    // does nothing if the key is not held by this owner.
+    public void unlock(String key, Object owner) {
+        Stripe stripe = stripeFor(key);
+        stripe.mutex.lock();
+        try {
+            if (owners.get(key) != owner) {
+                return;
+            }
+            ArrayDeque<Waiter> queue = stripe.waiters.get(key);
+            Waiter next = queue == null ? null : queue.pollFirst();
+            if (queue != null && queue.isEmpty()) {
+                stripe.waiters.remove(key);
+            }
+            if (next == null) {
+                owners.remove(key);
+                return;
+            }
+            owners.put(key, next.owner);
+            waitingFor.remove(next.owner, key);
+            next.acquired = true;
+            next.granted.signal();
+        } finally {
+            stripe.mutex.unlock();
+        }
+    }
+
+    public boolean isLocked(String key) {
+        return owners.containsKey(key);
+    }
+
+    public int getHeldCount() {
+        return owners.size();
+    }
+
+    public int getWaitingCount() {
+        return waitingFor.size();
+    }
+
+    // must be called while holding the stripe mutex
+    private void abandon(Stripe stripe, String key, Waiter waiter) {
+        ArrayDeque<Waiter> queue = stripe.waiters.get(key);
+        if (queue != null) {
+            queue.remove(waiter);
+            if (queue.isEmpty()) {
+                stripe.waiters.remove(key);
+            }
+        }
+    }
+
+    private boolean isDeadlocked(Object owner, String key) {
+        // a cycle can have at most as many edges as there are waiters, which also stops us from going around a cycle
+        // that we are not part of forever.
+        int maxSteps = waitingFor.size() + 1;
+        String waitedOn = key;
+        for (int i = 0; i < maxSteps; i++) {
+            Object holder = owners.get(waitedOn);
+            if (holder == null) {
+                return false;
+            }
+            if (holder == owner) {
+                return true;
+            }
+            waitedOn = waitingFor.get(holder);
+            if (waitedOn == null) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private Stripe stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private static class Stripe {
+        final ReentrantLock mutex = new ReentrantLock();
+        // keys of this stripe that have someone waiting for them, with their waiters in arrival order
+        final Map<String, ArrayDeque<Waiter>> waiters = new HashMap<>();
+    }
+
+    private static class Waiter {
+        final Object owner;
+        final Condition granted;
+        // guarded by the stripe mutex
+        boolean acquired = false;
+
+        Waiter(Object owner, Condition granted) {
+            this.owner = owner;
+            this.granted = granted;
+        }
+    }
+}
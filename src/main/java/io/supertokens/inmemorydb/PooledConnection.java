@@ -0,0 +1,119 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb;
+
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteConnection;
+import org.sqlite.SQLiteConnectionConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A connection in the ConnectionPool, along with an LRU of the prepared statements created on it. It is only ever
+// used by one thread at a time (whoever has leased it), so nothing here is synchronized.
+class PooledConnection {
+
+    final Connection connection;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private boolean readOnly = false;
+    private SQLiteConfig.TransactionMode transactionModeBeforeReadOnly = null;
+
+    PooledConnection(Connection connection, int statementCacheSize) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // the returned statement must not be closed by the caller. Its result set must be closed though, since an open
+    // result set keeps the statement (and its read lock on the table) active.
+    PreparedStatement prepareCachedStatement(String sql) throws SQLException {
+        PreparedStatement pst = statements.get(sql);
+        if (pst != null && !pst.isClosed()) {
+            pst.clearParameters();
+            return pst;
+        }
+        pst = connection.prepareStatement(sql);
+        statements.put(sql, pst);
+        return pst;
+    }
+
+    // used if a statement failed, so that we do not reuse it in an unknown state.
+    void evictCachedStatement(String sql) {
+        PreparedStatement pst = statements.remove(sql);
+        if (pst != null) {
+            closeQuietly(pst);
+        }
+    }
+
+    // In read only mode, SQLite rejects any write (query_only), and a transaction starts with a plain (deferred) BEGIN,
+    // so it only takes a read lock once it reads, instead of the write lock that BEGIN IMMEDIATE takes. Must be
+    // called outside of a transaction.
+    void setReadOnly(boolean readOnly) throws SQLException {
+        if (this.readOnly == readOnly) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA query_only = " + (readOnly ? "1" : "0"));
+        }
+        SQLiteConnectionConfig config = ((SQLiteConnection) connection).getConnectionConfig();
+        if (readOnly) {
+            transactionModeBeforeReadOnly = config.getTransactionMode();
+            config.setTransactionMode(SQLiteConfig.TransactionMode.DEFERRED);
+        } else {
+            config.setTransactionMode(transactionModeBeforeReadOnly);
+        }
+        this.readOnly = readOnly;
+    }
+
+    boolean isReadOnly() {
+        return readOnly;
+    }
+
+    int getCachedStatementCount() {
+        return statements.size();
+    }
+
+    void close() {
+        for (PreparedStatement pst : statements.values()) {
+            closeQuietly(pst);
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement pst) {
+        try {
+            pst.close();
+        } catch (SQLException ignored) {
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb;
+
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Query strings that only depend on the config (table names), built once per Start instance instead of being
+// concatenated on every call. The builder should not capture anything other than the Start passed to it, so that
+// the same lambda instance is reused, and the name should be unique across all the queries (we use
+// <QueriesClass>.<method>).
+public class QueryCache {
+
+    private final Start start;
+    private final Map<String, String> queries = new ConcurrentHashMap<>();
+
+    QueryCache(Start start) {
+        this.start = start;
+    }
+
+    public String get(String name, Function<Start, String> builder) {
+        String query = queries.get(name);
+        if (query == null) {
+            query = builder.apply(start);
+            queries.putIfAbsent(name, query);
+        }
+        return query;
+    }
+
+    // null if the query has not been used yet
+    @TestOnly
+    public String getCachedQuery(String name) {
+        return queries.get(name);
+    }
+}
@@ -22,6 +22,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
 
 public interface QueryExecutorTemplate {
 
@@ -36,6 +37,20 @@ public interface QueryExecutorTemplate {
             ResultSetValueExtractor<T> mapper) throws SQLException, StorageQueryException {
         if (setter == null)
             setter = PreparedStatementValueSetter.NO_OP_SETTER;
+        if (con instanceof ConnectionWithLocks) {
+            // the statement is cached on the pooled connection, so we must not close it.
+            ConnectionWithLocks pooled = (ConnectionWithLocks) con;
+            PreparedStatement pst = pooled.prepareCachedStatement(QUERY);
+            try {
+                setter.setValues(pst);
+                try (ResultSet result = pst.executeQuery()) {
+                    return mapper.extract(result);
+                }
+            } catch (SQLException e) {
+                pooled.evictCachedStatement(QUERY);
+                throw e;
+            }
+        }
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             setter.setValues(pst);
             try (ResultSet result = pst.executeQuery()) {
@@ -53,10 +68,49 @@ public interface QueryExecutorTemplate {
 
     static int update(Connection con, String QUERY, PreparedStatementValueSetter setter)
             throws SQLException, StorageQueryException {
+        if (con instanceof ConnectionWithLocks) {
+            ConnectionWithLocks pooled = (ConnectionWithLocks) con;
+            PreparedStatement pst = pooled.prepareCachedStatement(QUERY);
+            try {
+                setter.setValues(pst);
+                return pst.executeUpdate();
+            } catch (SQLException e) {
+                pooled.evictCachedStatement(QUERY);
+                throw e;
+            }
+        }
         try (PreparedStatement pst = con.prepareStatement(QUERY)) {
             setter.setValues(pst);
             return pst.executeUpdate();
         }
     }
 
+    // Runs QUERY once for each of the rows, sending all of them to the db as one batch. This should be called within a
+    // transaction, so that all the rows are inserted (or none are) with a single commit.
+    static <T> int[] updateBatch(Connection con, String QUERY, List<T> rows,
+            BatchPreparedStatementValueSetter<T> setter) throws SQLException {
+        if (con instanceof ConnectionWithLocks) {
+            ConnectionWithLocks pooled = (ConnectionWithLocks) con;
+            PreparedStatement pst = pooled.prepareCachedStatement(QUERY);
+            try {
+                return addAndExecuteBatch(pst, rows, setter);
+            } catch (SQLException e) {
+                pooled.evictCachedStatement(QUERY);
+                throw e;
+            }
+        }
+        try (PreparedStatement pst = con.prepareStatement(QUERY)) {
+            return addAndExecuteBatch(pst, rows, setter);
+        }
+    }
+
+    private static <T> int[] addAndExecuteBatch(PreparedStatement pst, List<T> rows,
+            BatchPreparedStatementValueSetter<T> setter) throws SQLException {
+        for (T row : rows) {
+            setter.setValues(pst, row);
+            pst.addBatch();
+        }
+        return pst.executeBatch();
+    }
+
 }
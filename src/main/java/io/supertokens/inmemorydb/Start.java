@@ -20,10 +20,13 @@ import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.ResourceDistributor;
+import io.supertokens.authRecipe.ExportedUser;
 import io.supertokens.emailverification.EmailVerification;
 import io.supertokens.emailverification.exception.EmailAlreadyVerifiedException;
 import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.inmemorydb.queries.*;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.passwordless.Passwordless;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.LOG_LEVEL;
 import io.supertokens.pluginInterface.RECIPE_ID;
@@ -68,6 +71,11 @@ import io.supertokens.pluginInterface.userroles.exception.DuplicateUserRoleMappi
 import io.supertokens.pluginInterface.userroles.exception.UnknownRoleException;
 import io.supertokens.pluginInterface.userroles.sqlStorage.UserRolesSQLStorage;
 import io.supertokens.session.Session;
+import io.supertokens.storageLayer.BatchedExpiredSessionsStorage;
+import io.supertokens.storageLayer.BulkInsertStorage;
+import io.supertokens.storageLayer.PasswordlessDevicesWithCodesStorage;
+import io.supertokens.storageLayer.ReadOnlyTransactionStorage;
+import io.supertokens.storageLayer.UserExportStorage;
 import io.supertokens.usermetadata.UserMetadata;
 import io.supertokens.userroles.UserRoles;
 import org.jetbrains.annotations.NotNull;
@@ -79,7 +87,6 @@ import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.SQLTransactionRollbackException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -87,7 +94,9 @@ import java.util.Set;
 
 public class Start
         implements SessionSQLStorage, EmailPasswordSQLStorage, EmailVerificationSQLStorage, ThirdPartySQLStorage,
-        JWTRecipeSQLStorage, PasswordlessSQLStorage, UserMetadataSQLStorage, UserRolesSQLStorage, UserIdMappingStorage {
+        JWTRecipeSQLStorage, PasswordlessSQLStorage, UserMetadataSQLStorage, UserRolesSQLStorage, UserIdMappingStorage,
+        BatchedExpiredSessionsStorage, BulkInsertStorage, ReadOnlyTransactionStorage, UserExportStorage,
+        PasswordlessDevicesWithCodesStorage {
 
     private static final Object appenderLock = new Object();
     private static final String APP_ID_KEY_NAME = "app_id";
@@ -97,6 +106,8 @@ public class Start
     private static boolean silent = false;
     boolean enabled = true;
     private ResourceDistributor resourceDistributor = new ResourceDistributor();
+    private final QueryCache queryCache = new QueryCache(this);
+    private TransactionRetryPolicy transactionRetryPolicy = null;
     private String processId;
     private Main main;
 
@@ -108,6 +119,10 @@ public class Start
         return resourceDistributor;
     }
 
+    public QueryCache getQueryCache() {
+        return queryCache;
+    }
+
     public String getProcessId() {
         return this.processId;
     }
@@ -124,8 +139,8 @@ public class Start
     }
 
     @Override
-    public void loadConfig(String ignored, Set<LOG_LEVEL> logLevel) {
-        Config.loadConfig(this);
+    public void loadConfig(String configFilePath, Set<LOG_LEVEL> logLevel) {
+        Config.loadConfig(this, configFilePath);
     }
 
     @Override
@@ -141,7 +156,10 @@ public class Start
     @Override
     public void initStorage() {
         try {
-            ConnectionPool.initPool(this);
+            this.transactionRetryPolicy = new TransactionRetryPolicy(Config.getConfig(this).getTransactionMaxAttempts(),
+                    Config.getConfig(this).getTransactionRetryBaseDelayMillis(),
+                    Config.getConfig(this).getTransactionRetryMaxDelayMillis(), Metrics.getInstance(this.main));
+            ConnectionPool.initPool(this, this.main);
             GeneralQueries.createTablesIfNotExists(this, this.main);
         } catch (SQLException | StorageQueryException e) {
             throw new QuitProgramFromPluginException(e);
@@ -157,18 +175,30 @@ public class Start
     @Override
     public <T> T startTransaction(TransactionLogic<T> logic, TransactionIsolationLevel isolationLevel)
             throws StorageTransactionLogicException, StorageQueryException {
-        int tries = 0;
+        return runTransaction(logic, false);
+    }
+
+    // The connection rejects writes (PRAGMA query_only), and the *_Transaction methods don't lock the keys they read
+    // on it. In file mode, the transaction reads from a WAL snapshot, so it doesn't block writers at all.
+    @Override
+    public <T> T startReadOnlyTransaction(TransactionLogic<T> logic)
+            throws StorageTransactionLogicException, StorageQueryException {
+        return runTransaction(logic, true);
+    }
+
+    private <T> T runTransaction(TransactionLogic<T> logic, boolean readOnly)
+            throws StorageTransactionLogicException, StorageQueryException {
+        int attempt = 0;
         while (true) {
-            tries++;
+            attempt++;
             try {
-                return startTransactionHelper(logic);
+                return startTransactionHelper(logic, readOnly);
             } catch (SQLException | StorageQueryException | StorageTransactionLogicException e) {
-                if ((e instanceof SQLTransactionRollbackException
-                        || (e.getMessage() != null && e.getMessage().toLowerCase().contains("deadlock")))
-                        && tries < 3) {
+                // deadlocks and busy / locked errors are not necessarily a result of faulty logic. They can happen
+                // under contention, so we try again after a (random) backoff. See TransactionRetryPolicy
+                if (transactionRetryPolicy.shouldRetry(e, attempt)) {
                     ProcessState.getInstance(this.main).addState(ProcessState.PROCESS_STATE.DEADLOCK_FOUND, e);
-                    continue; // this because deadlocks are not necessarily a result of faulty logic. They can
-                    // happen
+                    continue;
                 }
                 if (e instanceof StorageQueryException) {
                     throw (StorageQueryException) e;
@@ -180,22 +210,31 @@ public class Start
         }
     }
 
-    private <T> T startTransactionHelper(TransactionLogic<T> logic)
+    private <T> T startTransactionHelper(TransactionLogic<T> logic, boolean readOnly)
             throws StorageQueryException, StorageTransactionLogicException, SQLException {
         Connection con = null;
         try {
-            con = ConnectionPool.getConnection(this);
+            con = readOnly ? ConnectionPool.getReadOnlyConnection(this) : ConnectionPool.getConnection(this);
             con.setAutoCommit(false);
             return logic.mainLogicAndCommit(new TransactionConnection(con));
         } catch (Exception e) {
             if (con != null) {
-                con.rollback();
+                try {
+                    con.rollback();
+                } catch (SQLException rollbackError) {
+                    // the retry policy decides based on e, so it must not be replaced
+                    e.addSuppressed(rollbackError);
+                }
             }
             throw e;
         } finally {
             if (con != null) {
-                con.setAutoCommit(true);
-                con.close();
+                try {
+                    con.setAutoCommit(true);
+                } finally {
+                    // otherwise, the pool's lease of this connection is never given back
+                    con.close();
+                }
             }
         }
     }
@@ -306,6 +345,15 @@ public class Start
         }
     }
 
+    @Override
+    public void bulkCreateNewSessions(List<SessionInfo> sessions) throws StorageQueryException {
+        try {
+            SessionQueries.bulkCreateNewSessions(this, sessions);
+        } catch (StorageTransactionLogicException e) {
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
     @Override
     public void deleteSessionsOfUser(String userId) throws StorageQueryException {
         try {
@@ -351,6 +399,15 @@ public class Start
         }
     }
 
+    @Override
+    public int deleteExpiredSessions(int limit) throws StorageQueryException {
+        try {
+            return SessionQueries.deleteExpiredSessions(this, limit);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public KeyValueInfo getKeyValue(String key) throws StorageQueryException {
         try {
@@ -418,6 +475,16 @@ public class Start
         }
     }
 
+    @Override
+    public ExportedUser[] getUsersForExport(int limit, @Nullable RECIPE_ID[] includeRecipeIds,
+            @Nullable Long afterTimeJoined, @Nullable String afterUserId) throws StorageQueryException {
+        try {
+            return GeneralQueries.getUsersForExport(this, limit, includeRecipeIds, afterTimeJoined, afterUserId);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public boolean doesUserIdExist(String userId) throws StorageQueryException {
         try {
@@ -493,6 +560,39 @@ public class Start
         }
     }
 
+    @Override
+    public void bulkSignUp(List<UserInfo> users)
+            throws StorageQueryException, DuplicateUserIdException, DuplicateEmailException {
+        try {
+            EmailPasswordQueries.bulkSignUp(this, users);
+        } catch (StorageTransactionLogicException eTemp) {
+            Exception e = eTemp.actualException;
+            // batched statements report constraint violations with a different prefix than single ones, so we only
+            // match the end of the message.
+            if (isUniqueConstraintViolation(e, Config.getConfig(this).getEmailPasswordUsersTable() + ".email")) {
+                throw new DuplicateEmailException();
+            } else if (isUniqueConstraintViolation(e,
+                    Config.getConfig(this).getEmailPasswordUsersTable() + ".user_id")
+                    || isUniqueConstraintViolation(e, Config.getConfig(this).getUsersTable() + ".user_id")) {
+                throw new DuplicateUserIdException();
+            }
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public Set<String> getExistingEmails(List<String> emails) throws StorageQueryException {
+        try {
+            return EmailPasswordQueries.getExistingEmails(this, emails);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    private static boolean isUniqueConstraintViolation(Exception e, String column) {
+        return e.getMessage() != null && e.getMessage().endsWith("(UNIQUE constraint failed: " + column + ")");
+    }
+
     @Override
     public void deleteEmailPasswordUser(String userId) throws StorageQueryException {
         try {
@@ -960,6 +1060,25 @@ public class Start
         }
     }
 
+    @Override
+    public Passwordless.DeviceWithCodes[] getDevicesWithCodesByEmail(String email) throws StorageQueryException {
+        try {
+            return PasswordlessQueries.getDevicesWithCodesByEmail(this, email);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
+    @Override
+    public Passwordless.DeviceWithCodes[] getDevicesWithCodesByPhoneNumber(String phoneNumber)
+            throws StorageQueryException {
+        try {
+            return PasswordlessQueries.getDevicesWithCodesByPhoneNumber(this, phoneNumber);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public PasswordlessCode[] getCodesOfDevice(String deviceIdHash) throws StorageQueryException {
         try {
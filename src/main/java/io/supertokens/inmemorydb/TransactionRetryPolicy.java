@@ -0,0 +1,108 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.inmemorydb;
+
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Decides whether Start.startTransaction should run a failed transaction again, and how long to wait before that.
+ *
+ * A transaction is retried if it failed because of contention, and not because of its own logic:
+ * - SQLTransactionRollbackException: thrown by KeyLockManager if waiting for a row lock would deadlock.
+ * - SQLITE_BUSY / SQLITE_LOCKED (including their extended codes): another connection holds the database / table lock.
+ * These are found by their type and result code, also if the transaction logic wrapped them in another exception.
+ *
+ * Before the n-th retry, we wait for a random time between 0 and min(maxDelay, baseDelay * 2^(n-1)) ms ("full
+ * jitter"), so that transactions that failed together don't all retry at the same moment again.
+ */
+public class TransactionRetryPolicy {
+
+    private static final String METRIC_PREFIX = "inmemorydb.transaction.";
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    private final Counter retries;
+    private final Counter giveUps;
+
+    public TransactionRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Metrics metrics) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retries = metrics.getCounter(METRIC_PREFIX + "retries");
+        this.giveUps = metrics.getCounter(METRIC_PREFIX + "giveUps");
+    }
+
+    // attempt starts from 1. If this returns true, it has already waited for the backoff delay.
+    public boolean shouldRetry(Exception e, int attempt) {
+        if (!isRetryable(e)) {
+            return false;
+        }
+        if (attempt >= maxAttempts) {
+            giveUps.increment();
+            return false;
+        }
+        retries.increment();
+        try {
+            Thread.sleep(getBackoffMillis(attempt));
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    long getBackoffMillis(int attempt) {
+        // the shift is capped so that it can't overflow
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 30));
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public static boolean isRetryable(Throwable e) {
+        // the transaction logic usually wraps the SQLException, so we look at what caused it as well
+        for (int depth = 0; e != null && depth < 10; depth++) {
+            if (e instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            if (e instanceof SQLiteException) {
+                int primaryCode = ((SQLiteException) e).getResultCode().code & 0xff;
+                if (primaryCode == SQLiteErrorCode.SQLITE_BUSY.code
+                        || primaryCode == SQLiteErrorCode.SQLITE_LOCKED.code) {
+                    return true;
+                }
+            }
+            if (e instanceof StorageTransactionLogicException
+                    && ((StorageTransactionLogicException) e).actualException != e) {
+                e = ((StorageTransactionLogicException) e).actualException;
+            } else {
+                e = e.getCause();
+            }
+        }
+        return false;
+    }
+}
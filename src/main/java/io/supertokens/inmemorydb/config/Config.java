@@ -16,28 +16,43 @@
 
 package io.supertokens.inmemorydb.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.supertokens.ResourceDistributor;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.pluginInterface.exceptions.QuitProgramFromPluginException;
 
+import java.io.File;
+import java.io.IOException;
+
 public class Config extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.inmemorydb.config.Config";
     private final SQLiteConfig config;
 
-    private Config() {
-        this.config = new SQLiteConfig();
+    private Config(String configFilePath) {
+        if (configFilePath == null || !new File(configFilePath).isFile()) {
+            this.config = new SQLiteConfig();
+        } else {
+            try {
+                final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+                this.config = mapper.readValue(new File(configFilePath), SQLiteConfig.class);
+            } catch (IOException e) {
+                throw new QuitProgramFromPluginException(e);
+            }
+        }
+        this.config.validateAndInitialise(configFilePath == null ? null : new File(configFilePath));
     }
 
     private static Config getInstance(Start start) {
         return (Config) start.getResourceDistributor().getResource(RESOURCE_KEY);
     }
 
-    public static void loadConfig(Start start) {
+    public static void loadConfig(Start start, String configFilePath) {
         if (getInstance(start) != null) {
             return;
         }
-        start.getResourceDistributor().setResource(RESOURCE_KEY, new Config());
+        start.getResourceDistributor().setResource(RESOURCE_KEY, new Config(configFilePath));
     }
 
     public static SQLiteConfig getConfig(Start start) {
@@ -16,8 +16,128 @@
 
 package io.supertokens.inmemorydb.config;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.supertokens.pluginInterface.exceptions.QuitProgramFromPluginException;
+
+import java.io.File;
+
+// the in memory storage reads these from the core's config.yaml (all other values in there are ignored here).
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class SQLiteConfig {
 
+    // if set, the data is kept in this file (in WAL mode) instead of in memory, so that it survives a restart.
+    @JsonProperty
+    private String sqlite_file_path = null;
+
+    // only used if sqlite_file_path is set. Both are per connection.
+    @JsonProperty
+    private int sqlite_cache_size_mb = 64;
+
+    @JsonProperty
+    private int sqlite_mmap_size_mb = 256;
+
+    // see TransactionRetryPolicy
+    @JsonProperty
+    private int sqlite_transaction_max_attempts = 5;
+
+    @JsonProperty
+    private long sqlite_transaction_retry_base_delay_ms = 5;
+
+    @JsonProperty
+    private long sqlite_transaction_retry_max_delay_ms = 200;
+
+    void validateAndInitialise(File configFile) {
+        if (sqlite_file_path != null) {
+            sqlite_file_path = sqlite_file_path.trim();
+            if (sqlite_file_path.isEmpty()) {
+                sqlite_file_path = null;
+            } else if (!new File(sqlite_file_path).isAbsolute() && configFile != null
+                    && configFile.getAbsoluteFile().getParentFile() != null) {
+                // relative to the folder that has the config file (the installation folder)
+                sqlite_file_path = new File(configFile.getAbsoluteFile().getParentFile(), sqlite_file_path)
+                        .getPath();
+            }
+        }
+        String configFileLocation = configFile == null ? "" : configFile.getAbsolutePath();
+        if (sqlite_cache_size_mb < 0) {
+            throw new QuitProgramFromPluginException(
+                    "'sqlite_cache_size_mb' must be >= 0. The config file can be found here: "
+                            + configFileLocation);
+        }
+        if (sqlite_mmap_size_mb < 0) {
+            throw new QuitProgramFromPluginException(
+                    "'sqlite_mmap_size_mb' must be >= 0. The config file can be found here: "
+                            + configFileLocation);
+        }
+        if (sqlite_transaction_max_attempts < 1) {
+            throw new QuitProgramFromPluginException(
+                    "'sqlite_transaction_max_attempts' must be >= 1. The config file can be found here: "
+                            + configFileLocation);
+        }
+        if (sqlite_transaction_retry_base_delay_ms < 0) {
+            throw new QuitProgramFromPluginException(
+                    "'sqlite_transaction_retry_base_delay_ms' must be >= 0. The config file can be found here: "
+                            + configFileLocation);
+        }
+        if (sqlite_transaction_retry_max_delay_ms < sqlite_transaction_retry_base_delay_ms) {
+            throw new QuitProgramFromPluginException(
+                    "'sqlite_transaction_retry_max_delay_ms' must be >= 'sqlite_transaction_retry_base_delay_ms'. The "
+                            + "config file can be found here: " + configFileLocation);
+        }
+    }
+
+    public boolean isFileBacked() {
+        return sqlite_file_path != null;
+    }
+
+    public String getFilePath() {
+        return sqlite_file_path;
+    }
+
+    public int getCacheSizeKb() {
+        return sqlite_cache_size_mb * 1024;
+    }
+
+    public long getMmapSizeBytes() {
+        return (long) sqlite_mmap_size_mb * 1024 * 1024;
+    }
+
+    public int getTransactionMaxAttempts() {
+        return sqlite_transaction_max_attempts;
+    }
+
+    public long getTransactionRetryBaseDelayMillis() {
+        return sqlite_transaction_retry_base_delay_ms;
+    }
+
+    public long getTransactionRetryMaxDelayMillis() {
+        return sqlite_transaction_retry_max_delay_ms;
+    }
+
+    // how long a connection to the file waits for another one to finish writing
+    public int getBusyTimeoutMillis() {
+        return 10000;
+    }
+
+    public int getConnectionPoolSize() {
+        return 20;
+    }
+
+    public long getConnectionLeaseTimeoutMillis() {
+        return 10000;
+    }
+
+    // how long a transaction waits for a row lock held by another one
+    public long getKeyLockTimeoutMillis() {
+        return 10000;
+    }
+
+    // per pooled connection
+    public int getPreparedStatementCacheSize() {
+        return 100;
+    }
+
     public String getKeyValueTable() {
         return "key_value";
     }
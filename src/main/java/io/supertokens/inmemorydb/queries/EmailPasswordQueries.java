@@ -34,11 +34,14 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static io.supertokens.inmemorydb.PreparedStatementValueSetter.NO_OP_SETTER;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.updateBatch;
 import static io.supertokens.inmemorydb.config.Config.getConfig;
 import static io.supertokens.pluginInterface.RECIPE_ID.EMAIL_PASSWORD;
 import static java.lang.System.currentTimeMillis;
@@ -66,21 +69,24 @@ public class EmailPasswordQueries {
     }
 
     public static void deleteExpiredPasswordResetTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getPasswordResetTokensTable() + " WHERE token_expiry < ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteExpiredPasswordResetTokens",
+                s -> "DELETE FROM " + getConfig(s).getPasswordResetTokensTable() + " WHERE token_expiry < ?");
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
     public static void deleteExpiredEmailVerificationTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE token_expiry < ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteExpiredEmailVerificationTokens",
+                s -> "DELETE FROM " + getConfig(s).getEmailVerificationTokensTable() + " WHERE token_expiry < ?");
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
     public static void updateUsersPassword_Transaction(Start start, Connection con, String userId, String newPassword)
             throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getEmailPasswordUsersTable()
-                + " SET password_hash = ? WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.updateUsersPassword_Transaction",
+                s -> "UPDATE " + getConfig(s).getEmailPasswordUsersTable()
+                        + " SET password_hash = ? WHERE user_id = ?");
 
         update(con, QUERY, pst -> {
             pst.setString(1, newPassword);
@@ -90,15 +96,17 @@ public class EmailPasswordQueries {
 
     public static void deleteAllPasswordResetTokensForUser_Transaction(Start start, Connection con, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getPasswordResetTokensTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteAllPasswordResetTokensForUser_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getPasswordResetTokensTable() + " WHERE user_id = ?");
 
         update(con, QUERY, pst -> pst.setString(1, userId));
     }
 
     public static PasswordResetTokenInfo[] getAllPasswordResetTokenInfoForUser(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id, token, token_expiry FROM "
-                + Config.getConfig(start).getPasswordResetTokensTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.getAllPasswordResetTokenInfoForUser",
+                s -> "SELECT user_id, token, token_expiry FROM "
+                        + getConfig(s).getPasswordResetTokensTable() + " WHERE user_id = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, userId), EmailPasswordQueries::getPasswordResetTokenInfos);
     }
@@ -122,16 +130,18 @@ public class EmailPasswordQueries {
 
         ((ConnectionWithLocks) con).lock(userId + getConfig(start).getPasswordResetTokensTable());
 
-        String QUERY = "SELECT user_id, token, token_expiry FROM " + getConfig(start).getPasswordResetTokensTable()
-                + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.getAllPasswordResetTokenInfoForUser_Transaction",
+                s -> "SELECT user_id, token, token_expiry FROM " + getConfig(s).getPasswordResetTokensTable()
+                        + " WHERE user_id = ?");
 
         return execute(con, QUERY, pst -> pst.setString(1, userId), EmailPasswordQueries::getPasswordResetTokenInfos);
     }
 
     public static PasswordResetTokenInfo getPasswordResetTokenInfo(Start start, String token)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id, token, token_expiry FROM " + getConfig(start).getPasswordResetTokensTable()
-                + " WHERE token = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.getPasswordResetTokenInfo",
+                s -> "SELECT user_id, token, token_expiry FROM " + getConfig(s).getPasswordResetTokensTable()
+                        + " WHERE token = ?");
         return execute(start, QUERY, pst -> pst.setString(1, token), result -> {
             if (result.next()) {
                 return PasswordResetTokenInfoRowMapper.getInstance().mapOrThrow(result);
@@ -142,8 +152,9 @@ public class EmailPasswordQueries {
 
     public static void addPasswordResetToken(Start start, String userId, String tokenHash, long expiry)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getPasswordResetTokensTable()
-                + "(user_id, token, token_expiry)" + " VALUES(?, ?, ?)";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.addPasswordResetToken",
+                s -> "INSERT INTO " + getConfig(s).getPasswordResetTokensTable()
+                        + "(user_id, token, token_expiry)" + " VALUES(?, ?, ?)");
 
         update(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -152,14 +163,26 @@ public class EmailPasswordQueries {
         });
     }
 
+    // the two queries below are used by both signUp and bulkSignUp, so that they can't insert users differently
+    private static String getQueryToSignUpUser(Start start) {
+        return start.getQueryCache().get("EmailPasswordQueries.signUp",
+                s -> "INSERT INTO " + getConfig(s).getUsersTable() + "(user_id, recipe_id, time_joined)"
+                        + " VALUES(?, ?, ?)");
+    }
+
+    private static String getQueryToSignUpEmailPasswordUser(Start start) {
+        return start.getQueryCache().get("EmailPasswordQueries.signUp2",
+                s -> "INSERT INTO " + getConfig(s).getEmailPasswordUsersTable()
+                        + "(user_id, email, password_hash, time_joined)" + " VALUES(?, ?, ?, ?)");
+    }
+
     public static void signUp(Start start, String userId, String email, String passwordHash, long timeJoined)
             throws StorageQueryException, StorageTransactionLogicException {
         start.startTransaction(con -> {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "INSERT INTO " + getConfig(start).getUsersTable()
-                            + "(user_id, recipe_id, time_joined)" + " VALUES(?, ?, ?)";
+                    String QUERY = getQueryToSignUpUser(start);
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
                         pst.setString(2, EMAIL_PASSWORD.toString());
@@ -168,8 +191,7 @@ public class EmailPasswordQueries {
                 }
 
                 {
-                    String QUERY = "INSERT INTO " + getConfig(start).getEmailPasswordUsersTable()
-                            + "(user_id, email, password_hash, time_joined)" + " VALUES(?, ?, ?, ?)";
+                    String QUERY = getQueryToSignUpEmailPasswordUser(start);
 
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
@@ -187,14 +209,48 @@ public class EmailPasswordQueries {
         });
     }
 
+    // inserts all the users in one transaction, so either all of them are signed up, or none are.
+    public static void bulkSignUp(Start start, List<UserInfo> users)
+            throws StorageQueryException, StorageTransactionLogicException {
+        start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                {
+                    String QUERY = getQueryToSignUpUser(start);
+                    updateBatch(sqlCon, QUERY, users, (pst, user) -> {
+                        pst.setString(1, user.id);
+                        pst.setString(2, EMAIL_PASSWORD.toString());
+                        pst.setLong(3, user.timeJoined);
+                    });
+                }
+
+                {
+                    String QUERY = getQueryToSignUpEmailPasswordUser(start);
+                    updateBatch(sqlCon, QUERY, users, (pst, user) -> {
+                        pst.setString(1, user.id);
+                        pst.setString(2, user.email);
+                        pst.setString(3, user.passwordHash);
+                        pst.setLong(4, user.timeJoined);
+                    });
+                }
+
+                sqlCon.commit();
+            } catch (SQLException throwables) {
+                throw new StorageTransactionLogicException(throwables);
+            }
+            return null;
+        });
+    }
+
     public static void deleteUser(Start start, String userId)
             throws StorageQueryException, StorageTransactionLogicException {
         start.startTransaction(con -> {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUsersTable()
-                            + " WHERE user_id = ? AND recipe_id = ?";
+                    String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteUser",
+                            s -> "DELETE FROM " + getConfig(s).getUsersTable()
+                                    + " WHERE user_id = ? AND recipe_id = ?");
 
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
@@ -204,8 +260,9 @@ public class EmailPasswordQueries {
                 // Since SQLite does not enforce foreign key constraints we have to manually delete the mapping for the
                 // user.
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUserIdMappingTable()
-                            + " WHERE supertokens_user_id = ?";
+                    String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteUser2",
+                            s -> "DELETE FROM " + getConfig(s).getUserIdMappingTable()
+                                    + " WHERE supertokens_user_id = ?");
 
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
@@ -213,16 +270,18 @@ public class EmailPasswordQueries {
                 }
 
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getEmailPasswordUsersTable()
-                            + " WHERE user_id = ?";
+                    String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteUser3",
+                            s -> "DELETE FROM " + getConfig(s).getEmailPasswordUsersTable()
+                                    + " WHERE user_id = ?");
 
                     update(sqlCon, QUERY, pst -> pst.setString(1, userId));
                 }
 
                 {
                     // This will be done by cascading delete where it's supported
-                    String QUERY = "DELETE FROM " + getConfig(start).getPasswordResetTokensTable()
-                            + " WHERE user_id = ?";
+                    String QUERY = start.getQueryCache().get("EmailPasswordQueries.deleteUser4",
+                            s -> "DELETE FROM " + getConfig(s).getPasswordResetTokensTable()
+                                    + " WHERE user_id = ?");
 
                     update(sqlCon, QUERY, pst -> pst.setString(1, userId));
                 }
@@ -277,13 +336,44 @@ public class EmailPasswordQueries {
         return Collections.emptyList();
     }
 
+    // sqlite allows at most 999 parameters in a query (in the version that we use), so we look the emails up in chunks
+    private static final int MAX_EMAILS_PER_QUERY = 500;
+
+    public static Set<String> getExistingEmails(Start start, List<String> emails)
+            throws SQLException, StorageQueryException {
+        Set<String> existingEmails = new HashSet<>();
+        for (int from = 0; from < emails.size(); from += MAX_EMAILS_PER_QUERY) {
+            List<String> chunk = emails.subList(from, Math.min(from + MAX_EMAILS_PER_QUERY, emails.size()));
+            StringBuilder QUERY = new StringBuilder(
+                    "SELECT email FROM " + getConfig(start).getEmailPasswordUsersTable() + " WHERE email IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                QUERY.append(i == 0 ? "?" : ",?");
+            }
+            QUERY.append(")");
+
+            execute(start, QUERY.toString(), pst -> {
+                for (int i = 0; i < chunk.size(); i++) {
+                    // i+1 cause this starts with 1 and not 0
+                    pst.setString(i + 1, chunk.get(i));
+                }
+            }, result -> {
+                while (result.next()) {
+                    existingEmails.add(result.getString("email"));
+                }
+                return null;
+            });
+        }
+        return existingEmails;
+    }
+
     public static UserInfo getUserInfoUsingId_Transaction(Start start, Connection con, String id)
             throws SQLException, StorageQueryException {
 
         ((ConnectionWithLocks) con).lock(id + getConfig(start).getEmailPasswordUsersTable());
 
-        String QUERY = "SELECT user_id, email, password_hash, time_joined FROM "
-                + getConfig(start).getEmailPasswordUsersTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.getUserInfoUsingId_Transaction",
+                s -> "SELECT user_id, email, password_hash, time_joined FROM "
+                        + getConfig(s).getEmailPasswordUsersTable() + " WHERE user_id = ?");
         return execute(con, QUERY, pst -> {
             pst.setString(1, id);
         }, result -> {
@@ -295,8 +385,9 @@ public class EmailPasswordQueries {
     }
 
     public static UserInfo getUserInfoUsingEmail(Start start, String email) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id, email, password_hash, time_joined FROM "
-                + getConfig(start).getEmailPasswordUsersTable() + " WHERE email = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.getUserInfoUsingEmail",
+                s -> "SELECT user_id, email, password_hash, time_joined FROM "
+                        + getConfig(s).getEmailPasswordUsersTable() + " WHERE email = ?");
         return execute(start, QUERY, pst -> pst.setString(1, email), result -> {
             if (result.next()) {
                 return UserInfoRowMapper.getInstance().mapOrThrow(result);
@@ -334,7 +425,8 @@ public class EmailPasswordQueries {
 
     @Deprecated
     public static long getUsersCount(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT COUNT(*) as total FROM " + getConfig(start).getEmailPasswordUsersTable();
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.getUsersCount",
+                s -> "SELECT COUNT(*) as total FROM " + getConfig(s).getEmailPasswordUsersTable());
         return execute(start, QUERY, NO_OP_SETTER, result -> {
             if (result.next()) {
                 return result.getLong("total");
@@ -345,7 +437,8 @@ public class EmailPasswordQueries {
 
     public static void updateUsersEmail_Transaction(Start start, Connection conn, String userId, String email)
             throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getEmailPasswordUsersTable() + " SET email = ? WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailPasswordQueries.updateUsersEmail_Transaction",
+                s -> "UPDATE " + getConfig(s).getEmailPasswordUsersTable() + " SET email = ? WHERE user_id = ?");
 
         update(conn, QUERY, pst -> {
             pst.setString(1, email);
@@ -57,7 +57,8 @@ public class EmailVerificationQueries {
     }
 
     public static void deleteExpiredEmailVerificationTokens(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE token_expiry < ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.deleteExpiredEmailVerificationTokens",
+                s -> "DELETE FROM " + getConfig(s).getEmailVerificationTokensTable() + " WHERE token_expiry < ?");
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
@@ -66,16 +67,18 @@ public class EmailVerificationQueries {
             boolean isEmailVerified) throws SQLException, StorageQueryException {
 
         if (isEmailVerified) {
-            String QUERY = "INSERT INTO " + getConfig(start).getEmailVerificationTable()
-                    + "(user_id, email) VALUES(?, ?)";
+            String QUERY = start.getQueryCache().get("EmailVerificationQueries.updateUsersIsEmailVerified_Transaction",
+                    s -> "INSERT INTO " + getConfig(s).getEmailVerificationTable()
+                            + "(user_id, email) VALUES(?, ?)");
 
             update(con, QUERY, pst -> {
                 pst.setString(1, userId);
                 pst.setString(2, email);
             });
         } else {
-            String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTable()
-                    + " WHERE user_id = ? AND email = ?";
+            String QUERY = start.getQueryCache().get("EmailVerificationQueries.updateUsersIsEmailVerified_Transaction2",
+                    s -> "DELETE FROM " + getConfig(s).getEmailVerificationTable()
+                            + " WHERE user_id = ? AND email = ?");
 
             update(con, QUERY, pst -> {
                 pst.setString(1, userId);
@@ -86,8 +89,10 @@ public class EmailVerificationQueries {
 
     public static void deleteAllEmailVerificationTokensForUser_Transaction(Start start, Connection con, String userId,
             String email) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable()
-                + " WHERE user_id = ? AND email = ?";
+        String QUERY = start.getQueryCache().get(
+                "EmailVerificationQueries.deleteAllEmailVerificationTokensForUser_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getEmailVerificationTokensTable()
+                        + " WHERE user_id = ? AND email = ?");
 
         update(con, QUERY, pst -> {
             pst.setString(1, userId);
@@ -97,8 +102,9 @@ public class EmailVerificationQueries {
 
     public static EmailVerificationTokenInfo getEmailVerificationTokenInfo(Start start, String token)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id, token, token_expiry, email FROM "
-                + getConfig(start).getEmailVerificationTokensTable() + " WHERE token = ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.getEmailVerificationTokenInfo",
+                s -> "SELECT user_id, token, token_expiry, email FROM "
+                        + getConfig(s).getEmailVerificationTokensTable() + " WHERE token = ?");
         return execute(start, QUERY, pst -> pst.setString(1, token), result -> {
             if (result.next()) {
                 return EmailVerificationTokenInfoRowMapper.getInstance().mapOrThrow(result);
@@ -109,8 +115,9 @@ public class EmailVerificationQueries {
 
     public static void addEmailVerificationToken(Start start, String userId, String tokenHash, long expiry,
             String email) throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getEmailVerificationTokensTable()
-                + "(user_id, token, token_expiry, email)" + " VALUES(?, ?, ?, ?)";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.addEmailVerificationToken",
+                s -> "INSERT INTO " + getConfig(s).getEmailVerificationTokensTable()
+                        + "(user_id, token, token_expiry, email)" + " VALUES(?, ?, ?, ?)");
 
         update(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -125,8 +132,10 @@ public class EmailVerificationQueries {
 
         ((ConnectionWithLocks) con).lock(userId + getConfig(start).getEmailVerificationTokensTable());
 
-        String QUERY = "SELECT user_id, token, token_expiry, email FROM "
-                + getConfig(start).getEmailVerificationTokensTable() + " WHERE user_id = ? AND email = ?";
+        String QUERY = start.getQueryCache().get(
+                "EmailVerificationQueries.getAllEmailVerificationTokenInfoForUser_Transaction",
+                s -> "SELECT user_id, token, token_expiry, email FROM "
+                        + getConfig(s).getEmailVerificationTokensTable() + " WHERE user_id = ? AND email = ?");
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, userId);
@@ -146,8 +155,9 @@ public class EmailVerificationQueries {
 
     public static EmailVerificationTokenInfo[] getAllEmailVerificationTokenInfoForUser(Start start, String userId,
             String email) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id, token, token_expiry, email FROM "
-                + getConfig(start).getEmailVerificationTokensTable() + " WHERE user_id = ? AND email = ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.getAllEmailVerificationTokenInfoForUser",
+                s -> "SELECT user_id, token, token_expiry, email FROM "
+                        + getConfig(s).getEmailVerificationTokensTable() + " WHERE user_id = ? AND email = ?");
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -163,8 +173,9 @@ public class EmailVerificationQueries {
 
     public static boolean isEmailVerified(Start start, String userId, String email)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + getConfig(start).getEmailVerificationTable()
-                + " WHERE user_id = ? AND email = ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.isEmailVerified",
+                s -> "SELECT * FROM " + getConfig(s).getEmailVerificationTable()
+                        + " WHERE user_id = ? AND email = ?");
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -174,7 +185,8 @@ public class EmailVerificationQueries {
 
     public static boolean isUserIdBeingUsedForEmailVerification(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + getConfig(start).getEmailVerificationTokensTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.isUserIdBeingUsedForEmailVerification",
+                s -> "SELECT * FROM " + getConfig(s).getEmailVerificationTokensTable() + " WHERE user_id = ?");
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -183,8 +195,9 @@ public class EmailVerificationQueries {
 
     public static void unverifyEmail(Start start, String userId, String email)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTable()
-                + " WHERE user_id = ? AND email = ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.unverifyEmail",
+                s -> "DELETE FROM " + getConfig(s).getEmailVerificationTable()
+                        + " WHERE user_id = ? AND email = ?");
 
         update(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -198,13 +211,15 @@ public class EmailVerificationQueries {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTable() + " WHERE user_id = ?";
+                    String QUERY = start.getQueryCache().get("EmailVerificationQueries.deleteUserInfo",
+                            s -> "DELETE FROM " + getConfig(s).getEmailVerificationTable() + " WHERE user_id = ?");
                     update(sqlCon, QUERY, pst -> pst.setString(1, userId));
                 }
 
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable()
-                            + " WHERE user_id = ?";
+                    String QUERY = start.getQueryCache().get("EmailVerificationQueries.deleteUserInfo2",
+                            s -> "DELETE FROM " + getConfig(s).getEmailVerificationTokensTable()
+                                    + " WHERE user_id = ?");
 
                     update(sqlCon, QUERY, pst -> pst.setString(1, userId));
                 }
@@ -219,8 +234,9 @@ public class EmailVerificationQueries {
 
     public static void revokeAllTokens(Start start, String userId, String email)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getEmailVerificationTokensTable()
-                + " WHERE user_id = ? AND email = ?";
+        String QUERY = start.getQueryCache().get("EmailVerificationQueries.revokeAllTokens",
+                s -> "DELETE FROM " + getConfig(s).getEmailVerificationTokensTable()
+                        + " WHERE user_id = ? AND email = ?");
 
         update(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -17,6 +17,7 @@
 package io.supertokens.inmemorydb.queries;
 
 import io.supertokens.Main;
+import io.supertokens.authRecipe.ExportedUser;
 import io.supertokens.inmemorydb.ConnectionPool;
 import io.supertokens.inmemorydb.ConnectionWithLocks;
 import io.supertokens.inmemorydb.Start;
@@ -32,10 +33,12 @@ import javax.annotation.Nullable;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static io.supertokens.ProcessState.PROCESS_STATE.CREATING_NEW_TABLE;
 import static io.supertokens.ProcessState.getInstance;
@@ -64,6 +67,69 @@ public class GeneralQueries {
         }
     }
 
+    /*
+     * Schema changes on top of the tables created by createTablesIfNotExists. They matter for a db file
+     * (sqlite_file_path) created by an older version of the core, since an in memory db always starts empty. A new db
+     * gets all the tables and then goes through all of these as well. The version that a db is at is kept in SQLite's
+     * user_version. A released migration must not be changed; add a new one at the end instead.
+     */
+    private static final SchemaMigration[] MIGRATIONS = {
+            // lookups of sessions by user / expiry, and of third party users by email, were full table scans
+            new SchemaMigration(1, start -> new String[] {
+                    SessionQueries.getQueryToCreateSessionInfoUserIdIndex(start),
+                    SessionQueries.getQueryToCreateSessionInfoExpiresAtIndex(start),
+                    ThirdPartyQueries.getQueryToCreateUserEmailIndex(start) }),
+            // the codes of a passwordless device were read with a full table scan
+            new SchemaMigration(2, start -> new String[] {
+                    PasswordlessQueries.getQueryToCreateCodeDeviceIdHashIndex(start) }) };
+
+    private static class SchemaMigration {
+        final int version;
+        final Function<Start, String[]> statements;
+
+        SchemaMigration(int version, Function<Start, String[]> statements) {
+            this.version = version;
+            this.statements = statements;
+        }
+    }
+
+    public static int getLatestSchemaVersion() {
+        return MIGRATIONS[MIGRATIONS.length - 1].version;
+    }
+
+    public static int getSchemaVersion(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement();
+                ResultSet result = statement.executeQuery("PRAGMA user_version")) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    // each migration is applied in its own transaction, together with the update of the version.
+    private static void migrateSchema(Start start) throws SQLException {
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            int currentVersion = getSchemaVersion(con);
+            for (SchemaMigration migration : MIGRATIONS) {
+                if (migration.version <= currentVersion) {
+                    continue;
+                }
+                con.setAutoCommit(false);
+                try (Statement statement = con.createStatement()) {
+                    for (String sql : migration.statements.apply(start)) {
+                        statement.execute(sql);
+                    }
+                    // pragmas do not take bind parameters
+                    statement.execute("PRAGMA user_version = " + migration.version);
+                    con.commit();
+                } catch (SQLException e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+        }
+    }
+
     static String getQueryToCreateUsersTable(Start start) {
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getUsersTable() + " ("
                 + "user_id CHAR(36) NOT NULL," + "recipe_id VARCHAR(128) NOT NULL,"
@@ -186,14 +252,16 @@ public class GeneralQueries {
             update(start, UserIdMappingQueries.getQueryToCreateUserIdMappingTable(start), NO_OP_SETTER);
         }
 
+        migrateSchema(start);
     }
 
     public static void setKeyValue_Transaction(Start start, Connection con, String key, KeyValueInfo info)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "INSERT INTO " + getConfig(start).getKeyValueTable()
-                + "(name, value, created_at_time) VALUES(?, ?, ?) "
-                + "ON CONFLICT(name) DO UPDATE SET value = ?, created_at_time = ?";
+        String QUERY = start.getQueryCache().get("GeneralQueries.setKeyValue_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getKeyValueTable()
+                        + "(name, value, created_at_time) VALUES(?, ?, ?) "
+                        + "ON CONFLICT(name) DO UPDATE SET value = ?, created_at_time = ?");
 
         update(con, QUERY, pst -> {
             pst.setString(1, key);
@@ -214,7 +282,8 @@ public class GeneralQueries {
     public static void deleteKeyValue_Transaction(Start start, Connection con, String key)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "DELETE FROM " + getConfig(start).getKeyValueTable() + " WHERE name = ?";
+        String QUERY = start.getQueryCache().get("GeneralQueries.deleteKeyValue_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getKeyValueTable() + " WHERE name = ?");
 
         update(con, QUERY, pst -> pst.setString(1, key));
     }
@@ -226,7 +295,8 @@ public class GeneralQueries {
     }
 
     public static KeyValueInfo getKeyValue(Start start, String key) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT value, created_at_time FROM " + getConfig(start).getKeyValueTable() + " WHERE name = ?";
+        String QUERY = start.getQueryCache().get("GeneralQueries.getKeyValue",
+                s -> "SELECT value, created_at_time FROM " + getConfig(s).getKeyValueTable() + " WHERE name = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, key), result -> {
             if (result.next()) {
@@ -241,7 +311,8 @@ public class GeneralQueries {
 
         ((ConnectionWithLocks) con).lock(key);
 
-        String QUERY = "SELECT value, created_at_time FROM " + getConfig(start).getKeyValueTable() + " WHERE name = ?";
+        String QUERY = start.getQueryCache().get("GeneralQueries.getKeyValue_Transaction",
+                s -> "SELECT value, created_at_time FROM " + getConfig(s).getKeyValueTable() + " WHERE name = ?");
 
         return execute(con, QUERY, pst -> {
             pst.setString(1, key);
@@ -394,9 +465,74 @@ public class GeneralQueries {
         return finalResult;
     }
 
+    public static ExportedUser[] getUsersForExport(Start start, int limit, @Nullable RECIPE_ID[] includeRecipeIds,
+            @Nullable Long afterTimeJoined, @Nullable String afterUserId) throws SQLException, StorageQueryException {
+        List<String> conditions = new ArrayList<>();
+        if (includeRecipeIds != null && includeRecipeIds.length > 0) {
+            StringBuilder recipeIdCondition = new StringBuilder("u.recipe_id IN (");
+            for (int i = 0; i < includeRecipeIds.length; i++) {
+                if (i != 0) {
+                    recipeIdCondition.append(",");
+                }
+                recipeIdCondition.append("'").append(includeRecipeIds[i].toString()).append("'");
+            }
+            conditions.add(recipeIdCondition.append(")").toString());
+        }
+        boolean hasCursor = afterTimeJoined != null && afterUserId != null;
+        if (hasCursor) {
+            // the row value comparison lets sqlite seek to the cursor in all_auth_recipe_users_pagination_index
+            // instead of scanning the index from the start
+            conditions.add("(u.time_joined, u.user_id) < (?, ?)");
+        }
+
+        // each user has a row in at most one of the recipe tables, so the joins don't add rows
+        String QUERY = "SELECT u.user_id, u.recipe_id, u.time_joined, ep.email AS ep_email, tp.email AS tp_email, "
+                + "tp.third_party_id, tp.third_party_user_id, pl.email AS pl_email, pl.phone_number, "
+                + "m.external_user_id FROM " + getConfig(start).getUsersTable() + " u LEFT JOIN "
+                + getConfig(start).getEmailPasswordUsersTable() + " ep ON u.recipe_id = '"
+                + RECIPE_ID.EMAIL_PASSWORD + "' AND ep.user_id = u.user_id LEFT JOIN "
+                + getConfig(start).getThirdPartyUsersTable() + " tp ON u.recipe_id = '" + RECIPE_ID.THIRD_PARTY
+                + "' AND tp.user_id = u.user_id LEFT JOIN " + getConfig(start).getPasswordlessUsersTable()
+                + " pl ON u.recipe_id = '" + RECIPE_ID.PASSWORDLESS + "' AND pl.user_id = u.user_id LEFT JOIN "
+                + getConfig(start).getUserIdMappingTable() + " m ON m.supertokens_user_id = u.user_id"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY u.time_joined DESC, u.user_id DESC LIMIT ?";
+
+        return execute(start, QUERY, pst -> {
+            int index = 1;
+            if (hasCursor) {
+                pst.setLong(index++, afterTimeJoined);
+                pst.setString(index++, afterUserId);
+            }
+            pst.setInt(index, limit);
+        }, result -> {
+            List<ExportedUser> users = new ArrayList<>();
+            while (result.next()) {
+                String recipeIdString = result.getString("recipe_id");
+                RECIPE_ID recipeId = RECIPE_ID.getEnumFromString(recipeIdString);
+                if (recipeId == null) {
+                    throw new SQLException("Unrecognised recipe ID in database: " + recipeIdString);
+                }
+                String email;
+                if (recipeId == RECIPE_ID.EMAIL_PASSWORD) {
+                    email = result.getString("ep_email");
+                } else if (recipeId == RECIPE_ID.THIRD_PARTY) {
+                    email = result.getString("tp_email");
+                } else {
+                    email = result.getString("pl_email");
+                }
+                users.add(new ExportedUser(result.getString("user_id"), result.getString("external_user_id"),
+                        recipeId, result.getLong("time_joined"), email, result.getString("phone_number"),
+                        result.getString("third_party_id"), result.getString("third_party_user_id")));
+            }
+            return users.toArray(ExportedUser[]::new);
+        });
+    }
+
     public static boolean doesUserIdExist(Start start, String userId) throws SQLException, StorageQueryException {
 
-        String QUERY = "SELECT 1 FROM " + getConfig(start).getUsersTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("GeneralQueries.doesUserIdExist",
+                s -> "SELECT 1 FROM " + getConfig(s).getUsersTable() + " WHERE user_id = ?");
         return execute(start, QUERY, pst -> pst.setString(1, userId), ResultSet::next);
 
     }
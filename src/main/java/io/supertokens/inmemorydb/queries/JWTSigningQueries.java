@@ -57,7 +57,8 @@ public class JWTSigningQueries {
 
         ((ConnectionWithLocks) con).lock(LOCK_STRING);
 
-        String QUERY = "SELECT * FROM " + getConfig(start).getJWTSigningKeysTable() + " ORDER BY created_at DESC;";
+        String QUERY = start.getQueryCache().get("JWTSigningQueries.getJWTSigningKeys_Transaction",
+                s -> "SELECT * FROM " + getConfig(s).getJWTSigningKeysTable() + " ORDER BY created_at DESC;");
 
         return execute(con, QUERY, NO_OP_SETTER, result -> {
             List<JWTSigningKeyInfo> keys = new ArrayList<>();
@@ -97,8 +98,9 @@ public class JWTSigningQueries {
     public static void setJWTSigningKeyInfo_Transaction(Start start, Connection con, JWTSigningKeyInfo info)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "INSERT INTO " + getConfig(start).getJWTSigningKeysTable()
-                + "(key_id, key_string, created_at, algorithm) VALUES(?, ?, ?, ?)";
+        String QUERY = start.getQueryCache().get("JWTSigningQueries.setJWTSigningKeyInfo_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getJWTSigningKeysTable()
+                        + "(key_id, key_string, created_at, algorithm) VALUES(?, ?, ?, ?)");
 
         update(con, QUERY, pst -> {
             pst.setString(1, info.keyId);
@@ -20,6 +20,7 @@ import io.supertokens.inmemorydb.ConnectionPool;
 import io.supertokens.inmemorydb.ConnectionWithLocks;
 import io.supertokens.inmemorydb.Start;
 import io.supertokens.inmemorydb.config.Config;
+import io.supertokens.passwordless.Passwordless;
 import io.supertokens.pluginInterface.RowMapper;
 import io.supertokens.pluginInterface.emailpassword.exceptions.UnknownUserIdException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -80,14 +81,20 @@ public class PasswordlessQueries {
                 + Config.getConfig(start).getPasswordlessCodesTable() + "(created_at);";
     }
 
+    static String getQueryToCreateCodeDeviceIdHashIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS passwordless_codes_device_id_hash_index ON "
+                + Config.getConfig(start).getPasswordlessCodesTable() + "(device_id_hash);";
+    }
+
     public static void createDeviceWithCode(Start start, String email, String phoneNumber, String linkCodeSalt,
             PasswordlessCode code) throws StorageTransactionLogicException, StorageQueryException {
         start.startTransaction(con -> {
             Connection sqlCon = (Connection) con.getConnection();
             try {
-                String QUERY = "INSERT INTO " + getConfig(start).getPasswordlessDevicesTable()
-                        + "(device_id_hash, email, phone_number, link_code_salt, failed_attempts)"
-                        + " VALUES(?, ?, ?, ?, 0)";
+                String QUERY = start.getQueryCache().get("PasswordlessQueries.createDeviceWithCode",
+                        s -> "INSERT INTO " + getConfig(s).getPasswordlessDevicesTable()
+                                + "(device_id_hash, email, phone_number, link_code_salt, failed_attempts)"
+                                + " VALUES(?, ?, ?, ?, 0)");
                 update(sqlCon, QUERY, pst -> {
                     pst.setString(1, code.deviceIdHash);
                     pst.setString(2, email);
@@ -110,8 +117,9 @@ public class PasswordlessQueries {
         // intended for production use.
         ((ConnectionWithLocks) con).lock(getConfig(start).getPasswordlessDevicesTable());
 
-        String QUERY = "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
-                + getConfig(start).getPasswordlessDevicesTable() + " WHERE device_id_hash = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getDevice_Transaction",
+                s -> "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
+                        + getConfig(s).getPasswordlessDevicesTable() + " WHERE device_id_hash = ?");
         return execute(con, QUERY, pst -> pst.setString(1, deviceIdHash), result -> {
             if (result.next()) {
                 return PasswordlessDeviceRowMapper.getInstance().mapOrThrow(result);
@@ -122,8 +130,9 @@ public class PasswordlessQueries {
 
     public static void incrementDeviceFailedAttemptCount_Transaction(Start start, Connection con, String deviceIdHash)
             throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getPasswordlessDevicesTable()
-                + " SET failed_attempts = failed_attempts + 1 WHERE device_id_hash = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.incrementDeviceFailedAttemptCount_Transaction",
+                s -> "UPDATE " + getConfig(s).getPasswordlessDevicesTable()
+                        + " SET failed_attempts = failed_attempts + 1 WHERE device_id_hash = ?");
 
         update(con, QUERY, pst -> pst.setString(1, deviceIdHash));
     }
@@ -133,12 +142,14 @@ public class PasswordlessQueries {
         // SQLite is not compiled with foreign key constraint and so we must implement
         // cascading deletes here
         {
-            String QUERY = "DELETE FROM " + getConfig(start).getPasswordlessDevicesTable()
-                    + " WHERE device_id_hash = ?";
+            String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteDevice_Transaction",
+                    s -> "DELETE FROM " + getConfig(s).getPasswordlessDevicesTable()
+                            + " WHERE device_id_hash = ?");
             update(con, QUERY, pst -> pst.setString(1, deviceIdHash));
         }
         {
-            String QUERY = "DELETE FROM " + getConfig(start).getPasswordlessCodesTable() + " WHERE device_id_hash = ?";
+            String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteDevice_Transaction2",
+                    s -> "DELETE FROM " + getConfig(s).getPasswordlessCodesTable() + " WHERE device_id_hash = ?");
             update(con, QUERY, pst -> pst.setString(1, deviceIdHash));
         }
     }
@@ -151,8 +162,9 @@ public class PasswordlessQueries {
 
         // SQLite is not compiled with foreign key constraint and so we must implement
         // cascading deletes here
-        String QUERY = "SELECT device_id_hash FROM " + getConfig(start).getPasswordlessDevicesTable()
-                + " WHERE phone_number = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteDevicesByPhoneNumber_Transaction",
+                s -> "SELECT device_id_hash FROM " + getConfig(s).getPasswordlessDevicesTable()
+                        + " WHERE phone_number = ?");
 
         List<String> deviceIdHashes = execute(con, QUERY, pst -> pst.setString(1, phoneNumber), result -> {
             List<String> temp = new ArrayList<>();
@@ -174,8 +186,9 @@ public class PasswordlessQueries {
 
         // SQLite is not compiled with foreign key constraint and so we must implement
         // cascading deletes here
-        String QUERY = "SELECT device_id_hash FROM " + getConfig(start).getPasswordlessDevicesTable()
-                + " WHERE email = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteDevicesByEmail_Transaction",
+                s -> "SELECT device_id_hash FROM " + getConfig(s).getPasswordlessDevicesTable()
+                        + " WHERE email = ?");
 
         List<String> deviceIdHashes = execute(con, QUERY, pst -> pst.setString(1, email), result -> {
             List<String> temp = new ArrayList<>();
@@ -193,8 +206,9 @@ public class PasswordlessQueries {
 
     private static void createCode_Transaction(Start start, Connection con, PasswordlessCode code)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getPasswordlessCodesTable()
-                + "(code_id, device_id_hash, link_code_hash, created_at)" + " VALUES(?, ?, ?, ?)";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.createCode_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getPasswordlessCodesTable()
+                        + "(code_id, device_id_hash, link_code_hash, created_at)" + " VALUES(?, ?, ?, ?)");
         update(con, QUERY, pst -> {
             pst.setString(1, code.id);
             pst.setString(2, code.deviceIdHash);
@@ -208,13 +222,13 @@ public class PasswordlessQueries {
         start.startTransaction(con -> {
             Connection sqlCon = (Connection) con.getConnection();
 
-            // We lock the whole table instead of the individual devices. This is not
-            // intended for production use.
-            ((ConnectionWithLocks) sqlCon).lock(Config.getConfig(start).getPasswordlessDevicesTable());
-
             // SQLite is not compiled with foreign key constraint and so we must check for
             // the deviceIdHash manually
             try {
+                // We lock the whole table instead of the individual devices. This is not
+                // intended for production use.
+                ((ConnectionWithLocks) sqlCon).lock(Config.getConfig(start).getPasswordlessDevicesTable());
+
                 if (PasswordlessQueries.getDevice_Transaction(start, sqlCon, code.deviceIdHash) == null) {
                     throw new UnknownDeviceIdHash();
                 }
@@ -231,8 +245,9 @@ public class PasswordlessQueries {
             throws StorageQueryException, SQLException {
         // We do not lock here, since the device is already locked earlier in the
         // transaction.
-        String QUERY = "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
-                + getConfig(start).getPasswordlessCodesTable() + " WHERE device_id_hash = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getCodesOfDevice_Transaction",
+                s -> "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
+                        + getConfig(s).getPasswordlessCodesTable() + " WHERE device_id_hash = ?");
 
         return execute(con, QUERY, pst -> pst.setString(1, deviceIdHash), result -> {
             List<PasswordlessCode> temp = new ArrayList<>();
@@ -251,8 +266,9 @@ public class PasswordlessQueries {
             throws StorageQueryException, SQLException {
         // We do not lock here, since the device is already locked earlier in the
         // transaction.
-        String QUERY = "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
-                + getConfig(start).getPasswordlessCodesTable() + " WHERE link_code_hash = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getCodeByLinkCodeHash_Transaction",
+                s -> "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
+                        + getConfig(s).getPasswordlessCodesTable() + " WHERE link_code_hash = ?");
 
         return execute(con, QUERY, pst -> pst.setString(1, linkCodeHash), result -> {
             if (result.next()) {
@@ -264,7 +280,8 @@ public class PasswordlessQueries {
 
     public static void deleteCode_Transaction(Start start, Connection con, String codeId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getPasswordlessCodesTable() + " WHERE code_id = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteCode_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getPasswordlessCodesTable() + " WHERE code_id = ?");
 
         update(con, QUERY, pst -> pst.setString(1, codeId));
     }
@@ -275,8 +292,9 @@ public class PasswordlessQueries {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "INSERT INTO " + getConfig(start).getUsersTable()
-                            + "(user_id, recipe_id, time_joined)" + " VALUES(?, ?, ?)";
+                    String QUERY = start.getQueryCache().get("PasswordlessQueries.createUser",
+                            s -> "INSERT INTO " + getConfig(s).getUsersTable()
+                                    + "(user_id, recipe_id, time_joined)" + " VALUES(?, ?, ?)");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, user.id);
                         pst.setString(2, PASSWORDLESS.toString());
@@ -285,8 +303,9 @@ public class PasswordlessQueries {
                 }
 
                 {
-                    String QUERY = "INSERT INTO " + getConfig(start).getPasswordlessUsersTable()
-                            + "(user_id, email, phone_number, time_joined)" + " VALUES(?, ?, ?, ?)";
+                    String QUERY = start.getQueryCache().get("PasswordlessQueries.createUser2",
+                            s -> "INSERT INTO " + getConfig(s).getPasswordlessUsersTable()
+                                    + "(user_id, email, phone_number, time_joined)" + " VALUES(?, ?, ?, ?)");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, user.id);
                         pst.setString(2, user.email);
@@ -308,8 +327,9 @@ public class PasswordlessQueries {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUsersTable()
-                            + " WHERE user_id = ? AND recipe_id = ?";
+                    String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteUser",
+                            s -> "DELETE FROM " + getConfig(s).getUsersTable()
+                                    + " WHERE user_id = ? AND recipe_id = ?");
 
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
@@ -320,8 +340,9 @@ public class PasswordlessQueries {
                 // Since SQLite does not enforce foreign key constraints we have to manually delete the mapping for the
                 // user.
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUserIdMappingTable()
-                            + " WHERE supertokens_user_id = ?";
+                    String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteUser2",
+                            s -> "DELETE FROM " + getConfig(s).getUserIdMappingTable()
+                                    + " WHERE supertokens_user_id = ?");
 
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
@@ -332,7 +353,8 @@ public class PasswordlessQueries {
                 // we'd only leave devices that will be cleaned up later automatically when they expire.
                 UserInfo user = getUserById(start, userId);
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getPasswordlessUsersTable() + " WHERE user_id = ?";
+                    String QUERY = start.getQueryCache().get("PasswordlessQueries.deleteUser3",
+                            s -> "DELETE FROM " + getConfig(s).getPasswordlessUsersTable() + " WHERE user_id = ?");
 
                     update(sqlCon, QUERY, pst -> pst.setString(1, userId));
                 }
@@ -356,7 +378,8 @@ public class PasswordlessQueries {
 
     public static void updateUserEmail_Transaction(Start start, Connection con, String userId, String email)
             throws SQLException, UnknownUserIdException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getPasswordlessUsersTable() + " SET email = ? WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.updateUserEmail_Transaction",
+                s -> "UPDATE " + getConfig(s).getPasswordlessUsersTable() + " SET email = ? WHERE user_id = ?");
 
         final var rowsAffected = update(con, QUERY, pst -> {
             pst.setString(1, email);
@@ -369,8 +392,9 @@ public class PasswordlessQueries {
 
     public static void updateUserPhoneNumber_Transaction(Start start, Connection con, String userId, String phoneNumber)
             throws SQLException, UnknownUserIdException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getPasswordlessUsersTable()
-                + " SET phone_number = ? WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.updateUserPhoneNumber_Transaction",
+                s -> "UPDATE " + getConfig(s).getPasswordlessUsersTable()
+                        + " SET phone_number = ? WHERE user_id = ?");
 
         final var rowsAffected = update(con, QUERY, pst -> {
             pst.setString(1, phoneNumber);
@@ -384,8 +408,9 @@ public class PasswordlessQueries {
     public static PasswordlessDevice getDevice(Start start, String deviceIdHash)
             throws StorageQueryException, SQLException {
         try (Connection con = ConnectionPool.getConnection(start)) {
-            String QUERY = "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
-                    + getConfig(start).getPasswordlessDevicesTable() + " WHERE device_id_hash = ?";
+            String QUERY = start.getQueryCache().get("PasswordlessQueries.getDevice",
+                    s -> "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
+                            + getConfig(s).getPasswordlessDevicesTable() + " WHERE device_id_hash = ?");
             return execute(con, QUERY, pst -> pst.setString(1, deviceIdHash), result -> {
                 if (result.next()) {
                     return PasswordlessDeviceRowMapper.getInstance().mapOrThrow(result);
@@ -397,8 +422,9 @@ public class PasswordlessQueries {
 
     public static PasswordlessDevice[] getDevicesByEmail(Start start, @Nonnull String email)
             throws StorageQueryException, SQLException {
-        String QUERY = "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
-                + getConfig(start).getPasswordlessDevicesTable() + " WHERE email = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getDevicesByEmail",
+                s -> "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
+                        + getConfig(s).getPasswordlessDevicesTable() + " WHERE email = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, email), result -> {
             List<PasswordlessDevice> temp = new ArrayList<>();
@@ -411,8 +437,9 @@ public class PasswordlessQueries {
 
     public static PasswordlessDevice[] getDevicesByPhoneNumber(Start start, @Nonnull String phoneNumber)
             throws StorageQueryException, SQLException {
-        String QUERY = "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
-                + getConfig(start).getPasswordlessDevicesTable() + " WHERE phone_number = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getDevicesByPhoneNumber",
+                s -> "SELECT device_id_hash, email, phone_number, link_code_salt, failed_attempts FROM "
+                        + getConfig(s).getPasswordlessDevicesTable() + " WHERE phone_number = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, phoneNumber), result -> {
             List<PasswordlessDevice> temp = new ArrayList<>();
@@ -423,6 +450,56 @@ public class PasswordlessQueries {
         });
     }
 
+    public static Passwordless.DeviceWithCodes[] getDevicesWithCodesByEmail(Start start, @Nonnull String email)
+            throws StorageQueryException, SQLException {
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getDevicesWithCodesByEmail",
+                s -> getDevicesWithCodesQuery(s, "email"));
+
+        return execute(start, QUERY, pst -> pst.setString(1, email), PasswordlessQueries::mapDevicesWithCodes);
+    }
+
+    public static Passwordless.DeviceWithCodes[] getDevicesWithCodesByPhoneNumber(Start start,
+            @Nonnull String phoneNumber) throws StorageQueryException, SQLException {
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getDevicesWithCodesByPhoneNumber",
+                s -> getDevicesWithCodesQuery(s, "phone_number"));
+
+        return execute(start, QUERY, pst -> pst.setString(1, phoneNumber), PasswordlessQueries::mapDevicesWithCodes);
+    }
+
+    // one row per code, with the columns of its device. The rows of a device come one after the other (ORDER BY), and a
+    // device without codes has one row with null code columns.
+    private static String getDevicesWithCodesQuery(Start start, String deviceColumn) {
+        return "SELECT d.device_id_hash, d.email, d.phone_number, d.link_code_salt, d.failed_attempts, c.code_id, "
+                + "c.link_code_hash, c.created_at FROM " + getConfig(start).getPasswordlessDevicesTable() + " AS d"
+                + " LEFT JOIN " + getConfig(start).getPasswordlessCodesTable()
+                + " AS c ON c.device_id_hash = d.device_id_hash WHERE d." + deviceColumn + " = ?"
+                + " ORDER BY d.device_id_hash";
+    }
+
+    private static Passwordless.DeviceWithCodes[] mapDevicesWithCodes(ResultSet result) throws SQLException {
+        List<Passwordless.DeviceWithCodes> devices = new ArrayList<>();
+        PasswordlessDevice device = null;
+        List<PasswordlessCode> codes = new ArrayList<>();
+        while (result.next()) {
+            String deviceIdHash = result.getString("device_id_hash");
+            if (device == null || !device.deviceIdHash.equals(deviceIdHash)) {
+                if (device != null) {
+                    devices.add(new Passwordless.DeviceWithCodes(device, codes.toArray(PasswordlessCode[]::new)));
+                    codes.clear();
+                }
+                device = PasswordlessDeviceRowMapper.getInstance().mapOrThrow(result);
+            }
+            if (result.getString("code_id") != null) {
+                // device_id_hash is the device's, which is the same as the code's
+                codes.add(PasswordlessCodeRowMapper.getInstance().mapOrThrow(result));
+            }
+        }
+        if (device != null) {
+            devices.add(new Passwordless.DeviceWithCodes(device, codes.toArray(PasswordlessCode[]::new)));
+        }
+        return devices.toArray(Passwordless.DeviceWithCodes[]::new);
+    }
+
     public static PasswordlessCode[] getCodesOfDevice(Start start, String deviceIdHash)
             throws StorageQueryException, SQLException {
         try (Connection con = ConnectionPool.getConnection(start)) {
@@ -432,8 +509,9 @@ public class PasswordlessQueries {
     }
 
     public static PasswordlessCode[] getCodesBefore(Start start, long time) throws StorageQueryException, SQLException {
-        String QUERY = "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
-                + getConfig(start).getPasswordlessCodesTable() + " WHERE created_at < ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getCodesBefore",
+                s -> "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
+                        + getConfig(s).getPasswordlessCodesTable() + " WHERE created_at < ?");
 
         return execute(start, QUERY, pst -> pst.setLong(1, time), result -> {
             List<PasswordlessCode> temp = new ArrayList<>();
@@ -445,8 +523,9 @@ public class PasswordlessQueries {
     }
 
     public static PasswordlessCode getCode(Start start, String codeId) throws StorageQueryException, SQLException {
-        String QUERY = "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
-                + getConfig(start).getPasswordlessCodesTable() + " WHERE code_id = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getCode",
+                s -> "SELECT code_id, device_id_hash, link_code_hash, created_at FROM "
+                        + getConfig(s).getPasswordlessCodesTable() + " WHERE code_id = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, codeId), result -> {
             if (result.next()) {
@@ -509,8 +588,9 @@ public class PasswordlessQueries {
 
     public static UserInfo getUserByEmail(Start start, @Nonnull String email)
             throws StorageQueryException, SQLException {
-        String QUERY = "SELECT user_id, email, phone_number, time_joined FROM "
-                + getConfig(start).getPasswordlessUsersTable() + " WHERE email = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getUserByEmail",
+                s -> "SELECT user_id, email, phone_number, time_joined FROM "
+                        + getConfig(s).getPasswordlessUsersTable() + " WHERE email = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, email), result -> {
             if (result.next()) {
@@ -522,8 +602,9 @@ public class PasswordlessQueries {
 
     public static UserInfo getUserByPhoneNumber(Start start, @Nonnull String phoneNumber)
             throws StorageQueryException, SQLException {
-        String QUERY = "SELECT user_id, email, phone_number, time_joined FROM "
-                + getConfig(start).getPasswordlessUsersTable() + " WHERE phone_number = ?";
+        String QUERY = start.getQueryCache().get("PasswordlessQueries.getUserByPhoneNumber",
+                s -> "SELECT user_id, email, phone_number, time_joined FROM "
+                        + getConfig(s).getPasswordlessUsersTable() + " WHERE phone_number = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, phoneNumber), result -> {
             if (result.next()) {
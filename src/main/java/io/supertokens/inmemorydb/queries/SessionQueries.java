@@ -25,6 +25,7 @@ import io.supertokens.inmemorydb.config.Config;
 import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.RowMapper;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
 import io.supertokens.pluginInterface.session.SessionInfo;
 
 import java.sql.Connection;
@@ -36,6 +37,7 @@ import java.util.List;
 import static io.supertokens.inmemorydb.PreparedStatementValueSetter.NO_OP_SETTER;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.execute;
 import static io.supertokens.inmemorydb.QueryExecutorTemplate.update;
+import static io.supertokens.inmemorydb.QueryExecutorTemplate.updateBatch;
 import static io.supertokens.inmemorydb.config.Config.getConfig;
 import static java.lang.System.currentTimeMillis;
 
@@ -49,17 +51,35 @@ public class SessionQueries {
                 + "jwt_user_payload TEXT," + "PRIMARY KEY(session_handle)" + " );";
     }
 
+    // for deleteSessionsOfUser and getAllNonExpiredSessionHandlesForUser
+    static String getQueryToCreateSessionInfoUserIdIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS session_info_user_id_index ON "
+                + Config.getConfig(start).getSessionInfoTable() + "(user_id, expires_at);";
+    }
+
+    // for deleteAllExpiredSessions
+    static String getQueryToCreateSessionInfoExpiresAtIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS session_info_expires_at_index ON "
+                + Config.getConfig(start).getSessionInfoTable() + "(expires_at);";
+    }
+
     static String getQueryToCreateAccessTokenSigningKeysTable(Start start) {
         return "CREATE TABLE IF NOT EXISTS " + Config.getConfig(start).getAccessTokenSigningKeysTable() + " ("
                 + "created_at_time BIGINT UNSIGNED NOT NULL," + "value TEXT," + "PRIMARY KEY(created_at_time)" + " );";
     }
 
+    // used by both createNewSession and bulkCreateNewSessions, so that they can't insert sessions differently
+    private static String getQueryToCreateNewSession(Start start) {
+        return start.getQueryCache().get("SessionQueries.createNewSession",
+                s -> "INSERT INTO " + getConfig(s).getSessionInfoTable()
+                        + "(session_handle, user_id, refresh_token_hash_2, session_data, expires_at, jwt_user_payload, "
+                        + "created_at_time)" + " VALUES(?, ?, ?, ?, ?, ?, ?)");
+    }
+
     public static void createNewSession(Start start, String sessionHandle, String userId, String refreshTokenHash2,
             JsonObject userDataInDatabase, long expiry, JsonObject userDataInJWT, long createdAtTime)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getSessionInfoTable()
-                + "(session_handle, user_id, refresh_token_hash_2, session_data, expires_at, jwt_user_payload, "
-                + "created_at_time)" + " VALUES(?, ?, ?, ?, ?, ?, ?)";
+        String QUERY = getQueryToCreateNewSession(start);
 
         update(start, QUERY, pst -> {
             pst.setString(1, sessionHandle);
@@ -72,14 +92,40 @@ public class SessionQueries {
         });
     }
 
+    // inserts all the sessions in one transaction, so either all of them are created, or none are.
+    public static void bulkCreateNewSessions(Start start, List<SessionInfo> sessions)
+            throws StorageQueryException, StorageTransactionLogicException {
+        String QUERY = getQueryToCreateNewSession(start);
+
+        start.startTransaction(con -> {
+            Connection sqlCon = (Connection) con.getConnection();
+            try {
+                updateBatch(sqlCon, QUERY, sessions, (pst, session) -> {
+                    pst.setString(1, session.sessionHandle);
+                    pst.setString(2, session.userId);
+                    pst.setString(3, session.refreshTokenHash2);
+                    pst.setString(4, session.userDataInDatabase.toString());
+                    pst.setLong(5, session.expiry);
+                    pst.setString(6, session.userDataInJWT.toString());
+                    pst.setLong(7, session.timeCreated);
+                });
+                sqlCon.commit();
+            } catch (SQLException throwables) {
+                throw new StorageTransactionLogicException(throwables);
+            }
+            return null;
+        });
+    }
+
     public static SessionInfo getSessionInfo_Transaction(Start start, Connection con, String sessionHandle)
             throws SQLException, StorageQueryException {
 
         ((ConnectionWithLocks) con).lock(sessionHandle);
 
-        String QUERY = "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
-                + "created_at_time, jwt_user_payload FROM " + getConfig(start).getSessionInfoTable()
-                + " WHERE session_handle = ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.getSessionInfo_Transaction",
+                s -> "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
+                        + "created_at_time, jwt_user_payload FROM " + getConfig(s).getSessionInfoTable()
+                        + " WHERE session_handle = ?");
         return QueryExecutorTemplate.execute(con, QUERY, pst -> {
             pst.setString(1, sessionHandle);
         }, result -> {
@@ -92,8 +138,9 @@ public class SessionQueries {
 
     public static void updateSessionInfo_Transaction(Start start, Connection con, String sessionHandle,
             String refreshTokenHash2, long expiry) throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getSessionInfoTable()
-                + " SET refresh_token_hash_2 = ?, expires_at = ?" + " WHERE session_handle = ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.updateSessionInfo_Transaction",
+                s -> "UPDATE " + getConfig(s).getSessionInfoTable()
+                        + " SET refresh_token_hash_2 = ?, expires_at = ?" + " WHERE session_handle = ?");
 
         update(con, QUERY, pst -> {
             pst.setString(1, refreshTokenHash2);
@@ -103,7 +150,8 @@ public class SessionQueries {
     }
 
     public static int getNumberOfSessions(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT count(*) as num FROM " + getConfig(start).getSessionInfoTable();
+        String QUERY = start.getQueryCache().get("SessionQueries.getNumberOfSessions",
+                s -> "SELECT count(*) as num FROM " + getConfig(s).getSessionInfoTable());
 
         return execute(start, QUERY, NO_OP_SETTER, result -> {
             if (result.next()) {
@@ -135,15 +183,17 @@ public class SessionQueries {
     }
 
     public static void deleteSessionsOfUser(Start start, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getSessionInfoTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.deleteSessionsOfUser",
+                s -> "DELETE FROM " + getConfig(s).getSessionInfoTable() + " WHERE user_id = ?");
 
         update(start, QUERY.toString(), pst -> pst.setString(1, userId));
     }
 
     public static String[] getAllNonExpiredSessionHandlesForUser(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle FROM " + getConfig(start).getSessionInfoTable()
-                + " WHERE user_id = ? AND expires_at >= ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.getAllNonExpiredSessionHandlesForUser",
+                s -> "SELECT session_handle FROM " + getConfig(s).getSessionInfoTable()
+                        + " WHERE user_id = ? AND expires_at >= ?");
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -158,15 +208,29 @@ public class SessionQueries {
     }
 
     public static void deleteAllExpiredSessions(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getSessionInfoTable() + " WHERE expires_at <= ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.deleteAllExpiredSessions",
+                s -> "DELETE FROM " + getConfig(s).getSessionInfoTable() + " WHERE expires_at <= ?");
 
         update(start, QUERY, pst -> pst.setLong(1, currentTimeMillis()));
     }
 
+    public static int deleteExpiredSessions(Start start, int limit) throws SQLException, StorageQueryException {
+        String QUERY = start.getQueryCache().get("SessionQueries.deleteExpiredSessions",
+                s -> "DELETE FROM " + getConfig(s).getSessionInfoTable() + " WHERE session_handle IN ("
+                        + "SELECT session_handle FROM " + getConfig(s).getSessionInfoTable()
+                        + " WHERE expires_at <= ? LIMIT ?)");
+
+        return update(start, QUERY, pst -> {
+            pst.setLong(1, currentTimeMillis());
+            pst.setInt(2, limit);
+        });
+    }
+
     public static SessionInfo getSession(Start start, String sessionHandle) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
-                + "created_at_time, jwt_user_payload FROM " + Config.getConfig(start).getSessionInfoTable()
-                + " WHERE session_handle = ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.getSession",
+                s -> "SELECT session_handle, user_id, refresh_token_hash_2, session_data, expires_at, "
+                        + "created_at_time, jwt_user_payload FROM " + getConfig(s).getSessionInfoTable()
+                        + " WHERE session_handle = ?");
         return execute(start, QUERY, pst -> pst.setString(1, sessionHandle), result -> {
             if (result.next()) {
                 return SessionInfoRowMapper.getInstance().mapOrThrow(result);
@@ -182,7 +246,8 @@ public class SessionQueries {
             throw new SQLException("sessionData and jwtPayload are null when updating session info");
         }
 
-        String QUERY = "UPDATE " + Config.getConfig(start).getSessionInfoTable() + " SET";
+        String QUERY = start.getQueryCache().get("SessionQueries.updateSession",
+                s -> "UPDATE " + getConfig(s).getSessionInfoTable() + " SET");
         boolean somethingBefore = false;
         if (sessionData != null) {
             QUERY += " session_data = ?";
@@ -209,8 +274,9 @@ public class SessionQueries {
 
     public static void addAccessTokenSigningKey_Transaction(Start start, Connection con, long createdAtTime,
             String value) throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getAccessTokenSigningKeysTable() + "(created_at_time, value)"
-                + " VALUES(?, ?)";
+        String QUERY = start.getQueryCache().get("SessionQueries.addAccessTokenSigningKey_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getAccessTokenSigningKeysTable() + "(created_at_time, value)"
+                        + " VALUES(?, ?)");
 
         update(con, QUERY, pst -> {
             pst.setLong(1, createdAtTime);
@@ -242,8 +308,9 @@ public class SessionQueries {
 
     public static void removeAccessTokenSigningKeysBefore(Start start, long time)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getAccessTokenSigningKeysTable()
-                + " WHERE created_at_time < ?";
+        String QUERY = start.getQueryCache().get("SessionQueries.removeAccessTokenSigningKeysBefore",
+                s -> "DELETE FROM " + getConfig(s).getAccessTokenSigningKeysTable()
+                        + " WHERE created_at_time < ?");
         update(start, QUERY, pst -> pst.setLong(1, time));
     }
 
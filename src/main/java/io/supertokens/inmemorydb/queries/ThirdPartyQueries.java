@@ -49,14 +49,21 @@ public class ThirdPartyQueries {
                 + "time_joined BIGINT UNSIGNED NOT NULL," + "PRIMARY KEY (third_party_id, third_party_user_id));";
     }
 
+    // for getThirdPartyUsersByEmail
+    static String getQueryToCreateUserEmailIndex(Start start) {
+        return "CREATE INDEX IF NOT EXISTS thirdparty_users_email_index ON "
+                + Config.getConfig(start).getThirdPartyUsersTable() + "(email);";
+    }
+
     public static void signUp(Start start, io.supertokens.pluginInterface.thirdparty.UserInfo userInfo)
             throws StorageQueryException, StorageTransactionLogicException {
         start.startTransaction(con -> {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "INSERT INTO " + getConfig(start).getUsersTable()
-                            + "(user_id, recipe_id, time_joined)" + " VALUES(?, ?, ?)";
+                    String QUERY = start.getQueryCache().get("ThirdPartyQueries.signUp",
+                            s -> "INSERT INTO " + getConfig(s).getUsersTable()
+                                    + "(user_id, recipe_id, time_joined)" + " VALUES(?, ?, ?)");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userInfo.id);
                         pst.setString(2, THIRD_PARTY.toString());
@@ -65,9 +72,10 @@ public class ThirdPartyQueries {
                 }
 
                 {
-                    String QUERY = "INSERT INTO " + getConfig(start).getThirdPartyUsersTable()
-                            + "(third_party_id, third_party_user_id, user_id, email, time_joined)"
-                            + " VALUES(?, ?, ?, ?, ?)";
+                    String QUERY = start.getQueryCache().get("ThirdPartyQueries.signUp2",
+                            s -> "INSERT INTO " + getConfig(s).getThirdPartyUsersTable()
+                                    + "(third_party_id, third_party_user_id, user_id, email, time_joined)"
+                                    + " VALUES(?, ?, ?, ?, ?)");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userInfo.thirdParty.id);
                         pst.setString(2, userInfo.thirdParty.userId);
@@ -91,8 +99,9 @@ public class ThirdPartyQueries {
             Connection sqlCon = (Connection) con.getConnection();
             try {
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUsersTable()
-                            + " WHERE user_id = ? AND recipe_id = ?";
+                    String QUERY = start.getQueryCache().get("ThirdPartyQueries.deleteUser",
+                            s -> "DELETE FROM " + getConfig(s).getUsersTable()
+                                    + " WHERE user_id = ? AND recipe_id = ?");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
                         pst.setString(2, THIRD_PARTY.toString());
@@ -101,8 +110,9 @@ public class ThirdPartyQueries {
                 // Since SQLite does not enforce foreign key constraints we have to manually delete the mapping for the
                 // user.
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUserIdMappingTable()
-                            + " WHERE supertokens_user_id = ?";
+                    String QUERY = start.getQueryCache().get("ThirdPartyQueries.deleteUser2",
+                            s -> "DELETE FROM " + getConfig(s).getUserIdMappingTable()
+                                    + " WHERE supertokens_user_id = ?");
 
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
@@ -110,7 +120,8 @@ public class ThirdPartyQueries {
                 }
 
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getThirdPartyUsersTable() + " WHERE user_id = ? ";
+                    String QUERY = start.getQueryCache().get("ThirdPartyQueries.deleteUser3",
+                            s -> "DELETE FROM " + getConfig(s).getThirdPartyUsersTable() + " WHERE user_id = ? ");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, userId);
                     });
@@ -172,8 +183,10 @@ public class ThirdPartyQueries {
     public static UserInfo getThirdPartyUserInfoUsingId(Start start, String thirdPartyId, String thirdPartyUserId)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "SELECT user_id, third_party_id, third_party_user_id, email, time_joined FROM "
-                + getConfig(start).getThirdPartyUsersTable() + " WHERE third_party_id = ? AND third_party_user_id = ?";
+        String QUERY = start.getQueryCache().get("ThirdPartyQueries.getThirdPartyUserInfoUsingId",
+                s -> "SELECT user_id, third_party_id, third_party_user_id, email, time_joined FROM "
+                        + getConfig(s).getThirdPartyUsersTable()
+                        + " WHERE third_party_id = ? AND third_party_user_id = ?");
         return execute(start, QUERY, pst -> {
             pst.setString(1, thirdPartyId);
             pst.setString(2, thirdPartyUserId);
@@ -187,8 +200,9 @@ public class ThirdPartyQueries {
 
     public static void updateUserEmail_Transaction(Start start, Connection con, String thirdPartyId,
             String thirdPartyUserId, String newEmail) throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getThirdPartyUsersTable()
-                + " SET email = ? WHERE third_party_id = ? AND third_party_user_id = ?";
+        String QUERY = start.getQueryCache().get("ThirdPartyQueries.updateUserEmail_Transaction",
+                s -> "UPDATE " + getConfig(s).getThirdPartyUsersTable()
+                        + " SET email = ? WHERE third_party_id = ? AND third_party_user_id = ?");
 
         update(con, QUERY, pst -> {
             pst.setString(1, newEmail);
@@ -203,8 +217,10 @@ public class ThirdPartyQueries {
         ((ConnectionWithLocks) con)
                 .lock(thirdPartyId + "," + thirdPartyUserId + getConfig(start).getThirdPartyUsersTable());
 
-        String QUERY = "SELECT user_id, third_party_id, third_party_user_id, email, time_joined FROM "
-                + getConfig(start).getThirdPartyUsersTable() + " WHERE third_party_id = ? AND third_party_user_id = ?";
+        String QUERY = start.getQueryCache().get("ThirdPartyQueries.getUserInfoUsingId_Transaction",
+                s -> "SELECT user_id, third_party_id, third_party_user_id, email, time_joined FROM "
+                        + getConfig(s).getThirdPartyUsersTable()
+                        + " WHERE third_party_id = ? AND third_party_user_id = ?");
         return execute(con, QUERY, pst -> {
             pst.setString(1, thirdPartyId);
             pst.setString(2, thirdPartyUserId);
@@ -263,8 +279,9 @@ public class ThirdPartyQueries {
     public static UserInfo[] getThirdPartyUsersByEmail(Start start, @Nonnull String email)
             throws SQLException, StorageQueryException {
 
-        String sqlQuery = "SELECT user_id, third_party_id, third_party_user_id, email, time_joined FROM "
-                + Config.getConfig(start).getThirdPartyUsersTable() + " WHERE email = ?";
+        String sqlQuery = start.getQueryCache().get("ThirdPartyQueries.getThirdPartyUsersByEmail",
+                s -> "SELECT user_id, third_party_id, third_party_user_id, email, time_joined FROM "
+                        + getConfig(s).getThirdPartyUsersTable() + " WHERE email = ?");
 
         return execute(start, sqlQuery, pst -> pst.setString(1, email), result -> {
             List<UserInfo> users = new ArrayList<>();
@@ -279,7 +296,8 @@ public class ThirdPartyQueries {
 
     @Deprecated
     public static long getUsersCount(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT COUNT(*) as total FROM " + getConfig(start).getThirdPartyUsersTable();
+        String QUERY = start.getQueryCache().get("ThirdPartyQueries.getUsersCount",
+                s -> "SELECT COUNT(*) as total FROM " + getConfig(s).getThirdPartyUsersTable());
         return execute(start, QUERY, NO_OP_SETTER, result -> {
             if (result.next()) {
                 return result.getLong("total");
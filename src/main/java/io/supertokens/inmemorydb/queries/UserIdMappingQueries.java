@@ -50,8 +50,9 @@ public class UserIdMappingQueries {
 
     public static void createUserIdMapping(Start start, String superTokensUserId, String externalUserId,
             String externalUserIdInfo) throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + Config.getConfig(start).getUserIdMappingTable()
-                + " (supertokens_user_id, external_user_id, external_user_id_info)" + " VALUES(?, ?, ?)";
+        String QUERY = start.getQueryCache().get("UserIdMappingQueries.createUserIdMapping",
+                s -> "INSERT INTO " + getConfig(s).getUserIdMappingTable()
+                        + " (supertokens_user_id, external_user_id, external_user_id_info)" + " VALUES(?, ?, ?)");
 
         update(start, QUERY, pst -> {
             pst.setString(1, superTokensUserId);
@@ -62,8 +63,9 @@ public class UserIdMappingQueries {
 
     public static UserIdMapping getUserIdMappingWithSuperTokensUserId(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE supertokens_user_id = ?";
+        String QUERY = start.getQueryCache().get("UserIdMappingQueries.getUserIdMappingWithSuperTokensUserId",
+                s -> "SELECT * FROM " + getConfig(s).getUserIdMappingTable()
+                        + " WHERE supertokens_user_id = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, userId), result -> {
             if (result.next()) {
@@ -75,8 +77,9 @@ public class UserIdMappingQueries {
 
     public static UserIdMapping getUserIdMappingWithExternalUserId(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE external_user_id = ?";
+        String QUERY = start.getQueryCache().get("UserIdMappingQueries.getUserIdMappingWithExternalUserId",
+                s -> "SELECT * FROM " + getConfig(s).getUserIdMappingTable()
+                        + " WHERE external_user_id = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, userId), result -> {
             if (result.next()) {
@@ -88,8 +91,10 @@ public class UserIdMappingQueries {
 
     public static UserIdMapping[] getUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(Start start,
             String userId) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT * FROM " + Config.getConfig(start).getUserIdMappingTable()
-                + " WHERE supertokens_user_id = ? OR external_user_id = ? ";
+        String QUERY = start.getQueryCache().get(
+                "UserIdMappingQueries.getUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId",
+                s -> "SELECT * FROM " + getConfig(s).getUserIdMappingTable()
+                        + " WHERE supertokens_user_id = ? OR external_user_id = ? ");
 
         return execute(start, QUERY, pst -> {
             pst.setString(1, userId);
@@ -106,7 +111,8 @@ public class UserIdMappingQueries {
 
     public static boolean deleteUserIdMappingWithSuperTokensUserId(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserIdMappingTable() + " WHERE supertokens_user_id = ?";
+        String QUERY = start.getQueryCache().get("UserIdMappingQueries.deleteUserIdMappingWithSuperTokensUserId",
+                s -> "DELETE FROM " + getConfig(s).getUserIdMappingTable() + " WHERE supertokens_user_id = ?");
 
         // store the number of rows updated
         int rowUpdatedCount = update(start, QUERY, pst -> pst.setString(1, userId));
@@ -116,7 +122,8 @@ public class UserIdMappingQueries {
 
     public static boolean deleteUserIdMappingWithExternalUserId(Start start, String userId)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserIdMappingTable() + " WHERE external_user_id = ?";
+        String QUERY = start.getQueryCache().get("UserIdMappingQueries.deleteUserIdMappingWithExternalUserId",
+                s -> "DELETE FROM " + getConfig(s).getUserIdMappingTable() + " WHERE external_user_id = ?");
 
         // store the number of rows updated
         int rowUpdatedCount = update(start, QUERY, pst -> pst.setString(1, userId));
@@ -126,8 +133,10 @@ public class UserIdMappingQueries {
 
     public static boolean updateOrDeleteExternalUserIdInfoWithSuperTokensUserId(Start start, String userId,
             @Nullable String externalUserIdInfo) throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getUserIdMappingTable()
-                + " SET external_user_id_info = ? WHERE supertokens_user_id = ?";
+        String QUERY = start.getQueryCache().get(
+                "UserIdMappingQueries.updateOrDeleteExternalUserIdInfoWithSuperTokensUserId",
+                s -> "UPDATE " + getConfig(s).getUserIdMappingTable()
+                        + " SET external_user_id_info = ? WHERE supertokens_user_id = ?");
 
         int rowUpdated = update(start, QUERY, pst -> {
             pst.setString(1, externalUserIdInfo);
@@ -139,8 +148,10 @@ public class UserIdMappingQueries {
 
     public static boolean updateOrDeleteExternalUserIdInfoWithExternalUserId(Start start, String userId,
             @Nullable String externalUserIdInfo) throws SQLException, StorageQueryException {
-        String QUERY = "UPDATE " + getConfig(start).getUserIdMappingTable()
-                + " SET external_user_id_info = ? WHERE external_user_id = ?";
+        String QUERY = start.getQueryCache().get(
+                "UserIdMappingQueries.updateOrDeleteExternalUserIdInfoWithExternalUserId",
+                s -> "UPDATE " + getConfig(s).getUserIdMappingTable()
+                        + " SET external_user_id_info = ? WHERE external_user_id = ?");
 
         int rowUpdated = update(start, QUERY, pst -> {
             pst.setString(1, externalUserIdInfo);
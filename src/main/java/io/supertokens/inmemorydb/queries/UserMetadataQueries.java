@@ -45,7 +45,8 @@ public class UserMetadataQueries {
     }
 
     public static int deleteUserMetadata(Start start, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserMetadataTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("UserMetadataQueries.deleteUserMetadata",
+                s -> "DELETE FROM " + getConfig(s).getUserMetadataTable() + " WHERE user_id = ?");
 
         return update(start, QUERY.toString(), pst -> pst.setString(1, userId));
     }
@@ -53,9 +54,10 @@ public class UserMetadataQueries {
     public static int setUserMetadata_Transaction(Start start, Connection con, String userId, JsonObject metadata)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "INSERT INTO " + getConfig(start).getUserMetadataTable()
-                + "(user_id, user_metadata) VALUES(?, ?) "
-                + "ON CONFLICT(user_id) DO UPDATE SET user_metadata=excluded.user_metadata;";
+        String QUERY = start.getQueryCache().get("UserMetadataQueries.setUserMetadata_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getUserMetadataTable()
+                        + "(user_id, user_metadata) VALUES(?, ?) "
+                        + "ON CONFLICT(user_id) DO UPDATE SET user_metadata=excluded.user_metadata;");
 
         return update(con, QUERY, pst -> {
             pst.setString(1, userId);
@@ -67,7 +69,8 @@ public class UserMetadataQueries {
             throws SQLException, StorageQueryException {
         ((ConnectionWithLocks) con).lock(userId + getConfig(start).getUserMetadataTable());
 
-        String QUERY = "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("UserMetadataQueries.getUserMetadata_Transaction",
+                s -> "SELECT user_metadata FROM " + getConfig(s).getUserMetadataTable() + " WHERE user_id = ?");
 
         return execute(con, QUERY, pst -> pst.setString(1, userId), result -> {
             if (result.next()) {
@@ -79,7 +82,8 @@ public class UserMetadataQueries {
     }
 
     public static JsonObject getUserMetadata(Start start, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_metadata FROM " + getConfig(start).getUserMetadataTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("UserMetadataQueries.getUserMetadata",
+                s -> "SELECT user_metadata FROM " + getConfig(s).getUserMetadataTable() + " WHERE user_id = ?");
         return execute(start, QUERY, pst -> pst.setString(1, userId), result -> {
             if (result.next()) {
                 JsonParser jp = new JsonParser();
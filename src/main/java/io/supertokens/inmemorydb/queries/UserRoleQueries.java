@@ -80,7 +80,8 @@ public class UserRoleQueries {
 
     public static int addRoleToUser(Start start, String userId, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getUserRolesTable() + "(user_id, role) VALUES(?, ?);";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.addRoleToUser",
+                s -> "INSERT INTO " + getConfig(s).getUserRolesTable() + "(user_id, role) VALUES(?, ?);");
         return update(start, QUERY, pst -> {
             pst.setString(1, userId);
             pst.setString(2, role);
@@ -88,7 +89,8 @@ public class UserRoleQueries {
     }
 
     public static String[] getRolesForUser(Start start, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + getConfig(start).getUserRolesTable() + " WHERE user_id = ? ;";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.getRolesForUser",
+                s -> "SELECT role FROM " + getConfig(s).getUserRolesTable() + " WHERE user_id = ? ;");
         return execute(start, QUERY, pst -> pst.setString(1, userId), result -> {
             ArrayList<String> roles = new ArrayList<>();
             while (result.next()) {
@@ -99,7 +101,8 @@ public class UserRoleQueries {
     }
 
     public static String[] getUsersForRole(Start start, String role) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT user_id FROM " + getConfig(start).getUserRolesTable() + " WHERE role = ? ";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.getUsersForRole",
+                s -> "SELECT user_id FROM " + getConfig(s).getUserRolesTable() + " WHERE role = ? ");
 
         return execute(start, QUERY, pst -> pst.setString(1, role), result -> {
             ArrayList<String> permissions = new ArrayList<>();
@@ -111,8 +114,9 @@ public class UserRoleQueries {
     }
 
     public static String[] getPermissionsForRole(Start start, String role) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT permission FROM " + getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE role = ? ;";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.getPermissionsForRole",
+                s -> "SELECT permission FROM " + getConfig(s).getUserRolesPermissionsTable()
+                        + " WHERE role = ? ;");
 
         return execute(start, QUERY, pst -> pst.setString(1, role), result -> {
             ArrayList<String> permissions = new ArrayList<>();
@@ -125,7 +129,8 @@ public class UserRoleQueries {
 
     public static String[] getRolesThatHavePermission(Start start, String permission)
             throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + getConfig(start).getUserRolesPermissionsTable() + " WHERE permission = ? ";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.getRolesThatHavePermission",
+                s -> "SELECT role FROM " + getConfig(s).getUserRolesPermissionsTable() + " WHERE permission = ? ");
         return execute(start, QUERY, pst -> pst.setString(1, permission), result -> {
             ArrayList<String> roles = new ArrayList<>();
             while (result.next()) {
@@ -144,24 +149,27 @@ public class UserRoleQueries {
             boolean response;
 
             Connection sqlCon = (Connection) con.getConnection();
-            ((ConnectionWithLocks) sqlCon).lock(role + getConfig(start).getRolesTable());
             try {
+                ((ConnectionWithLocks) sqlCon).lock(role + getConfig(start).getRolesTable());
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getRolesTable() + " WHERE role = ? ;";
+                    String QUERY = start.getQueryCache().get("UserRoleQueries.deleteRole",
+                            s -> "DELETE FROM " + getConfig(s).getRolesTable() + " WHERE role = ? ;");
                     response = update(sqlCon, QUERY, pst -> {
                         pst.setString(1, role);
                     }) == 1;
                 }
 
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUserRolesPermissionsTable()
-                            + " WHERE role = ? ;";
+                    String QUERY = start.getQueryCache().get("UserRoleQueries.deleteRole2",
+                            s -> "DELETE FROM " + getConfig(s).getUserRolesPermissionsTable()
+                                    + " WHERE role = ? ;");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, role);
                     });
                 }
                 {
-                    String QUERY = "DELETE FROM " + getConfig(start).getUserRolesTable() + " WHERE role = ?";
+                    String QUERY = start.getQueryCache().get("UserRoleQueries.deleteRole3",
+                            s -> "DELETE FROM " + getConfig(s).getUserRolesTable() + " WHERE role = ?");
                     update(sqlCon, QUERY, pst -> {
                         pst.setString(1, role);
                     });
@@ -176,7 +184,8 @@ public class UserRoleQueries {
     }
 
     public static String[] getRoles(Start start) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT role FROM " + getConfig(start).getRolesTable();
+        String QUERY = start.getQueryCache().get("UserRoleQueries.getRoles",
+                s -> "SELECT role FROM " + getConfig(s).getRolesTable());
 
         return execute(start, QUERY, PreparedStatementValueSetter.NO_OP_SETTER, result -> {
             ArrayList<String> roles = new ArrayList<>();
@@ -188,19 +197,22 @@ public class UserRoleQueries {
     }
 
     public static boolean doesRoleExist(Start start, String role) throws SQLException, StorageQueryException {
-        String QUERY = "SELECT 1 FROM " + getConfig(start).getRolesTable() + " WHERE role = ?";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.doesRoleExist",
+                s -> "SELECT 1 FROM " + getConfig(s).getRolesTable() + " WHERE role = ?");
 
         return execute(start, QUERY, pst -> pst.setString(1, role), ResultSet::next);
     }
 
     public static int deleteAllRolesForUser(Start start, String userId) throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserRolesTable() + " WHERE user_id = ?";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.deleteAllRolesForUser",
+                s -> "DELETE FROM " + getConfig(s).getUserRolesTable() + " WHERE user_id = ?");
         return update(start, QUERY, pst -> pst.setString(1, userId));
     }
 
     public static boolean deleteRoleForUser_Transaction(Start start, Connection con, String userId, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "DELETE FROM " + getConfig(start).getUserRolesTable() + " WHERE user_id = ? AND role = ? ;";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.deleteRoleForUser_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getUserRolesTable() + " WHERE user_id = ? AND role = ? ;");
 
         // store the number of rows updated
         int rowUpdatedCount = update(con, QUERY, pst -> {
@@ -213,7 +225,8 @@ public class UserRoleQueries {
 
     public static boolean createNewRoleOrDoNothingIfExists_Transaction(Start start, Connection con, String role)
             throws SQLException, StorageQueryException {
-        String QUERY = "INSERT INTO " + getConfig(start).getRolesTable() + " VALUES(?) ON CONFLICT(role) DO NOTHING;";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.createNewRoleOrDoNothingIfExists_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getRolesTable() + " VALUES(?) ON CONFLICT(role) DO NOTHING;");
 
         // store the number of rows updated
         int rowUpdatedCount = update(con, QUERY, pst -> {
@@ -226,8 +239,9 @@ public class UserRoleQueries {
     public static void addPermissionToRoleOrDoNothingIfExists_Transaction(Start start, Connection con, String role,
             String permission) throws SQLException, StorageQueryException {
 
-        String QUERY = "INSERT INTO " + getConfig(start).getUserRolesPermissionsTable()
-                + " (role, permission) VALUES(?, ?) ON CONFLICT(role, permission) DO NOTHING";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.addPermissionToRoleOrDoNothingIfExists_Transaction",
+                s -> "INSERT INTO " + getConfig(s).getUserRolesPermissionsTable()
+                        + " (role, permission) VALUES(?, ?) ON CONFLICT(role, permission) DO NOTHING");
         update(con, QUERY, pst -> {
             pst.setString(1, role);
             pst.setString(2, permission);
@@ -239,7 +253,8 @@ public class UserRoleQueries {
 
         ((ConnectionWithLocks) con).lock(role + getConfig(start).getRolesTable());
 
-        String QUERY = "SELECT 1 FROM " + getConfig(start).getRolesTable() + " WHERE role = ?";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.doesRoleExist_transaction",
+                s -> "SELECT 1 FROM " + getConfig(s).getRolesTable() + " WHERE role = ?");
 
         return execute(con, QUERY, pst -> pst.setString(1, role), ResultSet::next);
     }
@@ -247,8 +262,9 @@ public class UserRoleQueries {
     public static boolean deletePermissionForRole_Transaction(Start start, Connection con, String role,
             String permission) throws SQLException, StorageQueryException {
 
-        String QUERY = "DELETE FROM " + getConfig(start).getUserRolesPermissionsTable()
-                + " WHERE role = ? AND permission = ? ";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.deletePermissionForRole_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getUserRolesPermissionsTable()
+                        + " WHERE role = ? AND permission = ? ");
         // store the number of rows updated
         int rowUpdatedCount = update(con, QUERY, pst -> {
             pst.setString(1, role);
@@ -261,7 +277,8 @@ public class UserRoleQueries {
     public static int deleteAllPermissionsForRole_Transaction(Start start, Connection con, String role)
             throws SQLException, StorageQueryException {
 
-        String QUERY = "DELETE FROM " + getConfig(start).getUserRolesPermissionsTable() + " WHERE role = ? ";
+        String QUERY = start.getQueryCache().get("UserRoleQueries.deleteAllPermissionsForRole_Transaction",
+                s -> "DELETE FROM " + getConfig(s).getUserRolesPermissionsTable() + " WHERE role = ? ");
         // return the number of rows updated
         return update(con, QUERY, pst -> {
             pst.setString(1, role);
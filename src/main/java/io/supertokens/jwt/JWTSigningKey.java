@@ -30,6 +30,7 @@ import io.supertokens.pluginInterface.jwt.JWTSymmetricSigningKeyInfo;
 import io.supertokens.pluginInterface.jwt.exceptions.DuplicateKeyIdException;
 import io.supertokens.pluginInterface.jwt.nosqlstorage.JWTRecipeNoSQLStorage_1;
 import io.supertokens.pluginInterface.jwt.sqlstorage.JWTRecipeSQLStorage;
+import io.supertokens.storageLayer.ReadOnlyTransactionStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 
@@ -104,6 +105,14 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
         if (storage.getType() == STORAGE_TYPE.SQL) {
             JWTRecipeSQLStorage sqlStorage = (JWTRecipeSQLStorage) storage;
 
+            // this only reads, so if the storage can, we don't lock the keys (which would make all the concurrent
+            // calls to this wait for each other).
+            ReadOnlyTransactionStorage readOnlyStorage = StorageLayer.getOptionalStorage(main,
+                    ReadOnlyTransactionStorage.class);
+            if (readOnlyStorage != null) {
+                return readOnlyStorage.startReadOnlyTransaction(sqlStorage::getJWTSigningKeys_Transaction);
+            }
+
             return sqlStorage.startTransaction(con -> {
                 List<JWTSigningKeyInfo> keys = sqlStorage.getJWTSigningKeys_Transaction(con);
 
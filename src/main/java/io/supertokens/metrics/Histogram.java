@@ -0,0 +1,115 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.metrics;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram with fixed buckets, so that recording is lock free and cheap enough to do on every request.
+// Percentiles are approximate: they are reported as the upper bound of the bucket they fall in.
+public class Histogram {
+
+    // upper bounds of the buckets, in milliseconds. The last bucket has no upper bound.
+    private static final double[] BUCKET_BOUNDS_MS = { 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000,
+            2500, 5000, 10000 };
+    private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_MS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            BUCKET_BOUNDS_NANOS[i] = (long) (BUCKET_BOUNDS_MS[i] * 1_000_000);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long durationNanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_NANOS.length && durationNanos > BUCKET_BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(durationNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    // returns -1 if nothing has been recorded, and Double.POSITIVE_INFINITY if the percentile is in the last bucket.
+    public double getPercentileMs(double fraction) {
+        long[] snapshot = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            snapshot[i] = buckets[i].sum();
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return BUCKET_BOUNDS_MS[i];
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    public JsonObject toJson() {
+        JsonObject result = new JsonObject();
+        long total = getCount();
+        result.addProperty("count", total);
+        result.addProperty("sumMs", sumNanos.sum() / 1_000_000.0);
+        if (total > 0) {
+            addPercentile(result, "p50Ms", 0.5);
+            addPercentile(result, "p99Ms", 0.99);
+            addPercentile(result, "p999Ms", 0.999);
+        }
+        JsonArray bucketsJson = new JsonArray();
+        for (int i = 0; i < buckets.length; i++) {
+            JsonObject bucket = new JsonObject();
+            bucket.addProperty("le", i < BUCKET_BOUNDS_MS.length ? Double.toString(BUCKET_BOUNDS_MS[i]) : "+Inf");
+            bucket.addProperty("count", buckets[i].sum());
+            bucketsJson.add(bucket);
+        }
+        result.add("buckets", bucketsJson);
+        return result;
+    }
+
+    private void addPercentile(JsonObject result, String name, double fraction) {
+        double value = getPercentileMs(fraction);
+        if (Double.isInfinite(value)) {
+            // gson cannot serialise infinity
+            result.addProperty(name, "+Inf");
+        } else {
+            result.addProperty(name, value);
+        }
+    }
+}
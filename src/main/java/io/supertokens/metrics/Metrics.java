@@ -0,0 +1,82 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.metrics;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+// In process counters and latency histograms, keyed by name. They are exposed via the /metrics API. Callers on hot
+// paths should keep a reference to the Counter / Histogram they get from here instead of looking it up each time.
+public class Metrics extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.metrics.Metrics";
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance(Main main) {
+        ResourceDistributor.SingletonResource instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+        if (instance == null) {
+            synchronized (Metrics.class) {
+                instance = main.getResourceDistributor().getResource(RESOURCE_KEY);
+                if (instance == null) {
+                    instance = main.getResourceDistributor().setResource(RESOURCE_KEY, new Metrics());
+                }
+            }
+        }
+        return (Metrics) instance;
+    }
+
+    public Counter getCounter(String name) {
+        return counters.computeIfAbsent(name, k -> new Counter());
+    }
+
+    public Histogram getHistogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    // a gauge is a value that is read only when the metrics are queried (for example, the size of a pool). Registering
+    // a gauge with the same name again replaces the previous one.
+    public void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public JsonObject toJson() {
+        JsonObject countersJson = new JsonObject();
+        new TreeMap<>(counters).forEach((name, counter) -> countersJson.addProperty(name, counter.get()));
+        JsonObject gaugesJson = new JsonObject();
+        new TreeMap<>(gauges).forEach((name, gauge) -> gaugesJson.addProperty(name, gauge.getAsLong()));
+        JsonObject histogramsJson = new JsonObject();
+        new TreeMap<>(histograms).forEach((name, histogram) -> histogramsJson.add(name, histogram.toJson()));
+
+        JsonObject result = new JsonObject();
+        result.add("counters", countersJson);
+        result.add("gauges", gaugesJson);
+        result.add("histograms", histogramsJson);
+        return result;
+    }
+}
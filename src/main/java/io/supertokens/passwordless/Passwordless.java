@@ -21,6 +21,7 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
@@ -49,6 +50,7 @@ import io.supertokens.pluginInterface.passwordless.exception.DuplicateLinkCodeHa
 import io.supertokens.pluginInterface.passwordless.exception.DuplicatePhoneNumberException;
 import io.supertokens.pluginInterface.passwordless.exception.UnknownDeviceIdHash;
 import io.supertokens.pluginInterface.passwordless.sqlStorage.PasswordlessSQLStorage;
+import io.supertokens.storageLayer.PasswordlessDevicesWithCodesStorage;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 
@@ -64,6 +66,7 @@ public class Passwordless {
             StorageQueryException, NoSuchAlgorithmException, InvalidKeyException, IOException, Base64EncodingException {
         PasswordlessSQLStorage passwordlessStorage = StorageLayer.getPasswordlessStorage(main);
         if (deviceId == null) {
+            PasswordlessRateLimiter.getInstance(main).checkCreateCode(email, phoneNumber, null);
             while (true) {
                 CreateCodeInfo info = CreateCodeInfo.generate(userInputCode);
                 try {
@@ -78,6 +81,7 @@ public class Passwordless {
             }
         } else {
             PasswordlessDeviceId parsedDeviceId = PasswordlessDeviceId.decodeString(deviceId);
+            PasswordlessRateLimiter.getInstance(main).checkCreateCode(null, null, parsedDeviceId.getHash().encode());
 
             PasswordlessDevice device = passwordlessStorage.getDevice(parsedDeviceId.getHash().encode());
             if (device == null) {
@@ -136,6 +140,12 @@ public class Passwordless {
 
     public static List<DeviceWithCodes> getDevicesWithCodesByEmail(Main main, String email)
             throws StorageQueryException, StorageTransactionLogicException {
+        PasswordlessDevicesWithCodesStorage devicesWithCodesStorage = StorageLayer
+                .getOptionalStorage(main, PasswordlessDevicesWithCodesStorage.class);
+        if (devicesWithCodesStorage != null) {
+            return Arrays.asList(devicesWithCodesStorage.getDevicesWithCodesByEmail(email));
+        }
+
         PasswordlessSQLStorage passwordlessStorage = StorageLayer.getPasswordlessStorage(main);
 
         PasswordlessDevice[] devices = passwordlessStorage.getDevicesByEmail(email);
@@ -150,6 +160,12 @@ public class Passwordless {
 
     public static List<DeviceWithCodes> getDevicesWithCodesByPhoneNumber(Main main, String phoneNumber)
             throws StorageQueryException, StorageTransactionLogicException {
+        PasswordlessDevicesWithCodesStorage devicesWithCodesStorage = StorageLayer
+                .getOptionalStorage(main, PasswordlessDevicesWithCodesStorage.class);
+        if (devicesWithCodesStorage != null) {
+            return Arrays.asList(devicesWithCodesStorage.getDevicesWithCodesByPhoneNumber(phoneNumber));
+        }
+
         PasswordlessSQLStorage passwordlessStorage = StorageLayer.getPasswordlessStorage(main);
 
         PasswordlessDevice[] devices = passwordlessStorage.getDevicesByPhoneNumber(phoneNumber);
@@ -186,6 +202,8 @@ public class Passwordless {
             PasswordlessDeviceId parsedDeviceId = PasswordlessDeviceId.decodeString(deviceId);
 
             deviceIdHash = parsedDeviceId.getHash();
+            // only user input codes are limited, since a link code can't be guessed
+            PasswordlessRateLimiter.getInstance(main).checkConsumeCode(deviceIdHash.encode());
             PasswordlessDevice device = passwordlessStorage.getDevice(deviceIdHash.encode());
             if (device == null) {
                 throw new RestartFlowException();
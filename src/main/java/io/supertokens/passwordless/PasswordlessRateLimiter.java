@@ -0,0 +1,87 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.passwordless;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.exceptions.TooManyRequestsException;
+import io.supertokens.metrics.Metrics;
+
+/*
+ * In process limits on how often codes can be created for an email / phone number / device, and on how often a
+ * device's user input code can be tried (see passwordless_max_codes_per_window and
+ * passwordless_max_code_consumes_per_window). These are checked before the storage is queried, so that abuse does not
+ * cost a transaction per request. The limits are per core instance: with several instances behind a load balancer,
+ * a client can get up to the limit from each of them.
+ *
+ * Rejections are reported in passwordless.rateLimit.createCode.rejected and passwordless.rateLimit.consumeCode.rejected
+ */
+public class PasswordlessRateLimiter extends ResourceDistributor.SingletonResource {
+
+    private static final String RESOURCE_KEY = "io.supertokens.passwordless.PasswordlessRateLimiter";
+    // per limit. A key takes about 150 bytes
+    private static final int MAX_KEYS = 100000;
+
+    private final SlidingWindowCounter createCode;
+    private final SlidingWindowCounter consumeCode;
+
+    private PasswordlessRateLimiter(Main main) {
+        CoreConfig config = Config.getConfig(main);
+        Metrics metrics = Metrics.getInstance(main);
+        this.createCode = new SlidingWindowCounter(metrics, "passwordless.rateLimit.createCode",
+                config.getPasswordlessMaxCodesPerWindow(), config.getPasswordlessRateLimitWindowMillis(), MAX_KEYS);
+        this.consumeCode = new SlidingWindowCounter(metrics, "passwordless.rateLimit.consumeCode",
+                config.getPasswordlessMaxCodeConsumesPerWindow(), config.getPasswordlessRateLimitWindowMillis(),
+                MAX_KEYS);
+    }
+
+    public static PasswordlessRateLimiter getInstance(Main main) {
+        return (PasswordlessRateLimiter) main.getResourceDistributor().getResource(RESOURCE_KEY);
+    }
+
+    public static void init(Main main) {
+        if (getInstance(main) != null) {
+            return;
+        }
+        main.getResourceDistributor().setResource(RESOURCE_KEY, new PasswordlessRateLimiter(main));
+    }
+
+    // called by the RemoveIdlePasswordlessRateLimitKeys cronjob
+    public void removeIdleKeys() {
+        long now = System.currentTimeMillis();
+        createCode.removeIdleKeys(now);
+        consumeCode.removeIdleKeys(now);
+    }
+
+    // exactly one of the arguments is not null
+    void checkCreateCode(String email, String phoneNumber, String deviceIdHash) {
+        String key = email != null ? "email:" + email
+                : phoneNumber != null ? "phone:" + phoneNumber : "device:" + deviceIdHash;
+        if (!createCode.tryAcquire(key, System.currentTimeMillis())) {
+            throw new TooManyRequestsException("Too many passwordless codes created, please try again later");
+        }
+    }
+
+    void checkConsumeCode(String deviceIdHash) {
+        if (!consumeCode.tryAcquire(deviceIdHash, System.currentTimeMillis())) {
+            throw new TooManyRequestsException("Too many attempts to consume a passwordless code, please try again "
+                    + "later");
+        }
+    }
+}
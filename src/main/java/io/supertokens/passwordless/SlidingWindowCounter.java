@@ -0,0 +1,136 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.passwordless;
+
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Counts events per key over a sliding window, and lets an event through only if there have been less than limit of
+ * them for its key in the window. The window is split into BUCKETS buckets, and each key only keeps a count per
+ * bucket, so the memory used per key does not depend on the limit. The window slides one bucket at a time, so an
+ * event is counted for between BUCKETS - 1 and BUCKETS bucket lengths.
+ *
+ * At most maxKeys keys are tracked. Keys that have had no events for a whole window are removed by removeIdleKeys,
+ * which is called by a cronjob (RemoveIdlePasswordlessRateLimitKeys) rather than on a request thread. If there are
+ * maxKeys keys, events of a new key are let through without being counted: otherwise, someone sending events for many
+ * keys could stop everyone else. Those are reported in <name>.untracked, rejected events in <name>.rejected, and the
+ * number of keys in <name>.keys.
+ */
+class SlidingWindowCounter {
+
+    static final int BUCKETS = 10;
+
+    private final int limit;
+    private final long bucketMillis;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+    private final Counter rejected;
+    private final Counter untracked;
+
+    // limit of 0 means that all events are let through (and not counted)
+    SlidingWindowCounter(Metrics metrics, String name, int limit, long windowMillis, int maxKeys) {
+        this.limit = limit;
+        this.bucketMillis = Math.max(1, windowMillis / BUCKETS);
+        this.maxKeys = maxKeys;
+        this.rejected = metrics.getCounter(name + ".rejected");
+        this.untracked = metrics.getCounter(name + ".untracked");
+        metrics.registerGauge(name + ".keys", windows::size);
+    }
+
+    boolean tryAcquire(String key, long nowMillis) {
+        if (limit == 0) {
+            return true;
+        }
+        long bucket = nowMillis / bucketMillis;
+
+        boolean[] acquired = new boolean[1];
+        boolean[] tracked = { true };
+        // compute runs under the map's lock for this key, so it can't race with removeIdleKeys
+        windows.compute(key, (k, window) -> {
+            if (window == null) {
+                if (windows.size() >= maxKeys) {
+                    tracked[0] = false;
+                    acquired[0] = true;
+                    return null;
+                }
+                window = new Window(bucket);
+            }
+            acquired[0] = window.tryAcquire(bucket, limit);
+            return window;
+        });
+        if (!tracked[0]) {
+            untracked.increment();
+        } else if (!acquired[0]) {
+            rejected.increment();
+        }
+        return acquired[0];
+    }
+
+    void removeIdleKeys(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        for (String key : windows.keySet()) {
+            windows.computeIfPresent(key, (k, window) -> window.isIdle(bucket) ? null : window);
+        }
+    }
+
+    private static class Window {
+        private final int[] counts = new int[BUCKETS];
+        private int total = 0;
+        private long lastBucket;
+
+        Window(long bucket) {
+            this.lastBucket = bucket;
+        }
+
+        boolean tryAcquire(long bucket, int limit) {
+            slideTo(bucket);
+            if (total >= limit) {
+                return false;
+            }
+            counts[(int) (lastBucket % BUCKETS)]++;
+            total++;
+            return true;
+        }
+
+        boolean isIdle(long bucket) {
+            return bucket - lastBucket >= BUCKETS;
+        }
+
+        // forgets the counts of the buckets that are no longer in the window. If the clock goes back, the events are
+        // counted in the latest bucket instead.
+        private void slideTo(long bucket) {
+            if (bucket <= lastBucket) {
+                return;
+            }
+            if (bucket - lastBucket >= BUCKETS) {
+                Arrays.fill(counts, 0);
+                total = 0;
+            } else {
+                for (long b = lastBucket + 1; b <= bucket; b++) {
+                    int index = (int) (b % BUCKETS);
+                    total -= counts[index];
+                    counts[index] = 0;
+                }
+            }
+            lastBucket = bucket;
+        }
+    }
+}
@@ -173,6 +173,31 @@ public class Session {
 
         if (StorageLayer.getSessionStorage(main).getType() == STORAGE_TYPE.SQL) {
             SessionSQLStorage storage = (SessionSQLStorage) StorageLayer.getSessionStorage(main);
+
+            // We only need to lock the session (in a serializable transaction) if the refresh token has to be
+            // promoted. So we first check that without locking, and in all other cases we can answer from that read
+            // alone. The session's refresh token only ever moves from parent to child, so if the parent has already
+            // been promoted by the time we read, it won't have to be promoted again.
+            io.supertokens.pluginInterface.session.SessionInfo sessionInfoWithoutLock = sessionInfoForBlacklisting;
+            if (sessionInfoWithoutLock == null) {
+                sessionInfoWithoutLock = storage.getSession(accessToken.sessionHandle);
+            }
+            if (sessionInfoWithoutLock == null) {
+                throw new UnauthorisedException("Session missing in db");
+            }
+            boolean needsPromotion = accessToken.parentRefreshTokenHash1 != null
+                    && sessionInfoWithoutLock.refreshTokenHash2
+                            .equals(Utils.hashSHA256(accessToken.parentRefreshTokenHash1));
+            if (!needsPromotion) {
+                try {
+                    return getSessionWithoutPromotion(main, accessToken, sessionInfoWithoutLock,
+                            JWTPayloadNeedsUpdating);
+                } catch (NoSuchAlgorithmException | UnsupportedEncodingException | InvalidKeyException
+                        | InvalidKeySpecException | SignatureException e) {
+                    throw new StorageTransactionLogicException(e);
+                }
+            }
+
             try {
                 return storage.startTransaction(con -> {
                     try {
@@ -187,42 +212,17 @@ public class Session {
 
                         boolean promote = accessToken.parentRefreshTokenHash1 != null && sessionInfo.refreshTokenHash2
                                 .equals(Utils.hashSHA256(accessToken.parentRefreshTokenHash1));
-                        if (promote
-                                || sessionInfo.refreshTokenHash2.equals(Utils.hashSHA256(accessToken.refreshTokenHash1))
-                                || JWTPayloadNeedsUpdating) {
-                            if (promote) {
-                                storage.updateSessionInfo_Transaction(con, accessToken.sessionHandle,
-                                        Utils.hashSHA256(accessToken.refreshTokenHash1),
-                                        System.currentTimeMillis() + Config.getConfig(main).getRefreshTokenValidity());
-                            }
-                            storage.commitTransaction(con);
-
-                            TokenInfo newAccessToken;
-                            if (AccessToken.getAccessTokenVersion(accessToken) == AccessToken.VERSION.V1) {
-                                newAccessToken = AccessToken.createNewAccessTokenV1(main, accessToken.sessionHandle,
-                                        accessToken.userId, accessToken.refreshTokenHash1, null,
-                                        sessionInfo.userDataInJWT, accessToken.antiCsrfToken);
-                            } else {
-                                assert accessToken.lmrt != null;
-                                newAccessToken = AccessToken.createNewAccessToken(main, accessToken.sessionHandle,
-                                        accessToken.userId, accessToken.refreshTokenHash1, null,
-                                        sessionInfo.userDataInJWT, accessToken.antiCsrfToken, accessToken.lmrt, null);
-                            }
-
-                            return new SessionInformationHolder(
-                                    new SessionInfo(accessToken.sessionHandle, accessToken.userId,
-                                            sessionInfo.userDataInJWT),
-                                    new TokenInfo(newAccessToken.token, newAccessToken.expiry,
-                                            newAccessToken.createdTime),
-                                    null, null, null);
+                        if (promote) {
+                            storage.updateSessionInfo_Transaction(con, accessToken.sessionHandle,
+                                    Utils.hashSHA256(accessToken.refreshTokenHash1),
+                                    System.currentTimeMillis() + Config.getConfig(main).getRefreshTokenValidity());
                         }
-
                         storage.commitTransaction(con);
-                        return new SessionInformationHolder(
-                                new SessionInfo(accessToken.sessionHandle, accessToken.userId, accessToken.userData),
-                                // here we purposely use accessToken.userData instead of sessionInfo.userDataInJWT
-                                // because we are not returning a new access token
-                                null, null, null, null);
+
+                        // sessionInfo still has the parent's refresh token hash, so we ask for a new access token
+                        // explicitly if it has just been promoted
+                        return getSessionWithoutPromotion(main, accessToken, sessionInfo,
+                                promote || JWTPayloadNeedsUpdating);
                     } catch (UnauthorisedException | NoSuchAlgorithmException | UnsupportedEncodingException
                             | InvalidKeyException | InvalidKeySpecException | SignatureException e) {
                         throw new StorageTransactionLogicException(e);
@@ -294,6 +294,40 @@ public class Session {
         }
     }
 
+    // the part of getSession's SQL branch for after the refresh token has been promoted, if it had to be, so nothing in
+    // the db needs to change. A new access token is created if its refresh token is the session's current one, or if
+    // newAccessTokenNeeded.
+    private static SessionInformationHolder getSessionWithoutPromotion(Main main, AccessTokenInfo accessToken,
+            io.supertokens.pluginInterface.session.SessionInfo sessionInfo, boolean newAccessTokenNeeded)
+            throws NoSuchAlgorithmException, UnsupportedEncodingException, InvalidKeyException,
+            InvalidKeySpecException, SignatureException {
+        if (sessionInfo.refreshTokenHash2.equals(Utils.hashSHA256(accessToken.refreshTokenHash1))
+                || newAccessTokenNeeded) {
+            TokenInfo newAccessToken;
+            if (AccessToken.getAccessTokenVersion(accessToken) == AccessToken.VERSION.V1) {
+                newAccessToken = AccessToken.createNewAccessTokenV1(main, accessToken.sessionHandle,
+                        accessToken.userId, accessToken.refreshTokenHash1, null, sessionInfo.userDataInJWT,
+                        accessToken.antiCsrfToken);
+            } else {
+                assert accessToken.lmrt != null;
+                newAccessToken = AccessToken.createNewAccessToken(main, accessToken.sessionHandle, accessToken.userId,
+                        accessToken.refreshTokenHash1, null, sessionInfo.userDataInJWT, accessToken.antiCsrfToken,
+                        accessToken.lmrt, null);
+            }
+
+            return new SessionInformationHolder(
+                    new SessionInfo(accessToken.sessionHandle, accessToken.userId, sessionInfo.userDataInJWT),
+                    new TokenInfo(newAccessToken.token, newAccessToken.expiry, newAccessToken.createdTime), null,
+                    null, null);
+        }
+
+        return new SessionInformationHolder(
+                new SessionInfo(accessToken.sessionHandle, accessToken.userId, accessToken.userData),
+                // here we purposely use accessToken.userData instead of sessionInfo.userDataInJWT
+                // because we are not returning a new access token
+                null, null, null, null);
+    }
+
     public static SessionInformationHolder refreshSession(Main main, @Nonnull String refreshToken,
             @Nullable String antiCsrfToken, boolean enableAntiCsrf) throws StorageTransactionLogicException,
             UnauthorisedException, StorageQueryException, TokenTheftDetectedException {
@@ -0,0 +1,30 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+
+/*
+ * Optional capability of a storage (on top of SessionStorage) to delete expired sessions a few at a time, so that the
+ * DeleteExpiredSessions cronjob does not hold the session table's locks for a long time. The in memory storage
+ * implements it. For storages that don't, the cronjob falls back to SessionStorage.deleteAllExpiredSessions.
+ */
+public interface BatchedExpiredSessionsStorage {
+
+    // deletes at most limit sessions that have expired, and returns the number of sessions deleted
+    int deleteExpiredSessions(int limit) throws StorageQueryException;
+}
@@ -0,0 +1,44 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateEmailException;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateUserIdException;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.session.SessionInfo;
+
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Optional capability of a storage to insert many users or sessions with a single batched statement and a single
+ * commit, instead of one transaction per row. The in memory storage implements it. For storages that don't,
+ * BulkImport falls back to inserting one row at a time.
+ *
+ * Each call is atomic: if any of the rows can't be inserted, none of them are.
+ */
+public interface BulkInsertStorage {
+
+    void bulkSignUp(List<UserInfo> users)
+            throws StorageQueryException, DuplicateEmailException, DuplicateUserIdException;
+
+    // returns the ones among the given (normalised) emails that an emailpassword user has already signed up with
+    Set<String> getExistingEmails(List<String> emails) throws StorageQueryException;
+
+    void bulkCreateNewSessions(List<SessionInfo> sessions) throws StorageQueryException;
+}
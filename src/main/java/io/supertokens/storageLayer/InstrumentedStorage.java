@@ -0,0 +1,133 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.Main;
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.sqlStorage.SQLStorage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Wraps the storage plugin in a proxy that implements all of its (plugin interface) interfaces, and records, for each
+ * storage method, the number of calls, the number of calls that threw, and a latency histogram. For startTransaction,
+ * it also counts how many times the transaction logic had to be re-run by the plugin (for example due to deadlocks).
+ *
+ * This is only used if storage_metrics_enabled is set in the config. Otherwise the plugin's object is handed out
+ * as is, so there is no overhead at all.
+ */
+class InstrumentedStorage implements InvocationHandler {
+
+    private static final String METRIC_PREFIX = "storage.";
+
+    private final Storage storage;
+    private final Metrics metrics;
+    private final Map<Method, MethodMetrics> methodMetrics = new ConcurrentHashMap<>();
+    private final Counter transactionRetries;
+
+    private InstrumentedStorage(Main main, Storage storage) {
+        this.storage = storage;
+        this.metrics = Metrics.getInstance(main);
+        this.transactionRetries = metrics.getCounter(METRIC_PREFIX + "transaction.retries");
+    }
+
+    static Storage wrap(Main main, Storage storage) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> c = storage.getClass(); c != null; c = c.getSuperclass()) {
+            addInterfaces(c, interfaces);
+        }
+        // the proxy class is generated once per set of interfaces (and class loader), and then reused.
+        return (Storage) Proxy.newProxyInstance(storage.getClass().getClassLoader(),
+                interfaces.toArray(new Class<?>[0]), new InstrumentedStorage(main, storage));
+    }
+
+    private static void addInterfaces(Class<?> c, Set<Class<?>> interfaces) {
+        for (Class<?> i : c.getInterfaces()) {
+            if (interfaces.add(i)) {
+                addInterfaces(i, interfaces);
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeOnStorage(method, args);
+        }
+        MethodMetrics metricsForMethod = methodMetrics.computeIfAbsent(method, MethodMetrics::new);
+
+        if (args != null && method.getName().equals("startTransaction")) {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] instanceof SQLStorage.TransactionLogic) {
+                    args[i] = countAttempts((SQLStorage.TransactionLogic<?>) args[i]);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        try {
+            return invokeOnStorage(method, args);
+        } catch (Throwable e) {
+            metricsForMethod.errors.increment();
+            throw e;
+        } finally {
+            metricsForMethod.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private <T> SQLStorage.TransactionLogic<T> countAttempts(SQLStorage.TransactionLogic<T> logic) {
+        boolean[] isFirstAttempt = { true };
+        return con -> {
+            if (isFirstAttempt[0]) {
+                isFirstAttempt[0] = false;
+            } else {
+                transactionRetries.increment();
+            }
+            return logic.mainLogicAndCommit(con);
+        };
+    }
+
+    private Object invokeOnStorage(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(storage, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class MethodMetrics {
+        final Histogram latency;
+        final Counter errors;
+
+        MethodMetrics(Method method) {
+            // for example: storage.SessionStorage.getSession
+            String name = METRIC_PREFIX + method.getDeclaringClass().getSimpleName() + "." + method.getName();
+            this.latency = metrics.getHistogram(name);
+            this.errors = metrics.getCounter(name + ".errors");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.passwordless.Passwordless;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+
+import javax.annotation.Nonnull;
+
+/*
+ * Optional capability of a storage to read the devices of an email / phone number together with their codes in one
+ * query, instead of one query for the devices and then one per device for its codes. The in memory storage implements
+ * it. For storages that don't, Passwordless.getDevicesWithCodesByEmail / ByPhoneNumber query the codes per device.
+ */
+public interface PasswordlessDevicesWithCodesStorage {
+
+    Passwordless.DeviceWithCodes[] getDevicesWithCodesByEmail(@Nonnull String email) throws StorageQueryException;
+
+    Passwordless.DeviceWithCodes[] getDevicesWithCodesByPhoneNumber(@Nonnull String phoneNumber)
+            throws StorageQueryException;
+}
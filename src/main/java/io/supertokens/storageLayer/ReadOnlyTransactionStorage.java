@@ -0,0 +1,33 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.storageLayer;
+
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.sqlStorage.SQLStorage;
+
+/*
+ * Optional capability of an SQL storage to run a transaction that only reads. The logic can use the storage's
+ * *_Transaction read methods, and sees a consistent view of the data, but does not lock the rows it reads (so it
+ * doesn't wait for, or hold up, transactions that write them). Trying to write in it fails. The in memory storage
+ * implements it. For storages that don't, use SQLStorage.startTransaction.
+ */
+public interface ReadOnlyTransactionStorage {
+
+    <T> T startReadOnlyTransaction(SQLStorage.TransactionLogic<T> logic)
+            throws StorageQueryException, StorageTransactionLogicException;
+}
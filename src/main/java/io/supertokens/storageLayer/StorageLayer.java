@@ -49,15 +49,18 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
 
     private static final String RESOURCE_KEY = "io.supertokens.storageLayer.StorageLayer";
     private final Storage storage;
+    // the plugin's own object. Same as storage unless storage metrics are enabled, in which case storage is a proxy.
+    private final Storage rawStorage;
     private static Storage static_ref_to_storage = null;
     private static URLClassLoader ucl = null;
 
     private StorageLayer(Main main, String pluginFolderPath, String configFilePath) throws MalformedURLException {
         Logging.info(main, "Loading storage layer.", true);
+        Storage loadedStorage;
         if (static_ref_to_storage != null && Main.isTesting) {
             // we reuse the storage layer during testing so that we do not waste
             // time reconnecting to the db.
-            this.storage = StorageLayer.static_ref_to_storage;
+            loadedStorage = StorageLayer.static_ref_to_storage;
         } else {
             File loc = new File(pluginFolderPath);
             Storage storageLayerTemp = null;
@@ -95,20 +98,26 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
 
             if (storageLayerTemp != null && !main.isForceInMemoryDB()
                     && (storageLayerTemp.canBeUsed(configFilePath) || CLIOptions.get(main).isForceNoInMemoryDB())) {
-                this.storage = storageLayerTemp;
+                loadedStorage = storageLayerTemp;
             } else {
                 Logging.info(main, "Using in memory storage.", true);
-                this.storage = new Start(main);
+                loadedStorage = new Start(main);
             }
         }
-        this.storage.constructor(main.getProcessId(), Main.makeConsolePrintSilent);
-        this.storage.loadConfig(configFilePath, Config.getConfig(main).getLogLevels(main));
-        if (Main.isTesting && !(this.storage instanceof Start)) {
+        loadedStorage.constructor(main.getProcessId(), Main.makeConsolePrintSilent);
+        loadedStorage.loadConfig(configFilePath, Config.getConfig(main).getLogLevels(main));
+        if (Main.isTesting && !(loadedStorage instanceof Start)) {
             // we save the storage layer for testing (if it's not an in mem db) purposes so that
             // next time, we can just reuse this.
             // StorageLayer.static_ref_to_storage is set to null by the testing framework in case
             // something in the config or CLI args change.
-            StorageLayer.static_ref_to_storage = this.storage;
+            StorageLayer.static_ref_to_storage = loadedStorage;
+        }
+        this.rawStorage = loadedStorage;
+        if (Config.getConfig(main).isStorageMetricsEnabled()) {
+            this.storage = InstrumentedStorage.wrap(main, loadedStorage);
+        } else {
+            this.storage = loadedStorage;
         }
     }
 
@@ -179,6 +188,21 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
         return (SessionStorage) getInstance(main).storage;
     }
 
+    /*
+     * For the optional abilities that only some storages have, for example BatchedExpiredSessionsStorage. Returns null
+     * if the storage doesn't have the ability, in which case callers fall back to the queries that every storage has.
+     */
+    public static <T> T getOptionalStorage(Main main, Class<T> ability) {
+        if (getInstance(main) == null) {
+            throw new QuitProgramException("please call init() before calling getStorageLayer");
+        }
+        Storage storage = getInstance(main).storage;
+        if (ability.isInstance(storage)) {
+            return ability.cast(storage);
+        }
+        return null;
+    }
+
     public static EmailPasswordSQLStorage getEmailPasswordStorage(Main main) {
         if (getInstance(main) == null) {
             throw new QuitProgramException("please call init() before calling getStorageLayer");
@@ -265,6 +289,6 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
     }
 
     public boolean isInMemDb() {
-        return this.storage instanceof Start;
+        return this.rawStorage instanceof Start;
     }
 }
@@ -0,0 +1,35 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.storageLayer;
+
+import io.supertokens.authRecipe.ExportedUser;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+
+import javax.annotation.Nullable;
+
+/*
+ * Optional capability of a storage to read users for an export in one query per page: the page is found with a keyset
+ * cursor on (time_joined, user_id) and the recipe specific columns and the user id mapping are joined into the same
+ * query. The in memory storage implements it. For storages that don't, AuthRecipe.exportUsers pages through getUsers.
+ */
+public interface UserExportStorage {
+
+    // returns up to limit users, ordered by time_joined DESC, user_id DESC, that come strictly after the given
+    // cursor. Pass null for afterTimeJoined and afterUserId to get the first page.
+    ExportedUser[] getUsersForExport(int limit, @Nullable RECIPE_ID[] includeRecipeIds,
+            @Nullable Long afterTimeJoined, @Nullable String afterUserId) throws StorageQueryException;
+}
@@ -30,7 +30,6 @@ import io.supertokens.session.accessToken.AccessTokenSigningKey.KeyInfo;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
-import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
@@ -102,6 +101,19 @@ public class Utils {
         return mac.doFinal(stringToBytes(data));
     }
 
+    // creating (and seeding) a SecureRandom is far more expensive than using one, and a shared one would be contended
+    private static final ThreadLocal<SecureRandom> SECURE_RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private static final Encoder URL_SAFE_BASE64_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    // numberOfBytes random bytes, base64url encoded without padding, so the result only has [A-Za-z0-9_-] characters.
+    // If numberOfBytes is a multiple of 3, the result is numberOfBytes * 4 / 3 characters long.
+    public static String generateUrlSafeRandomToken(int numberOfBytes) {
+        byte[] random = new byte[numberOfBytes];
+        SECURE_RANDOM.get().nextBytes(random);
+        return URL_SAFE_BASE64_ENCODER.encodeToString(random);
+    }
+
     public static String generateNewSigningKey() throws NoSuchAlgorithmException, InvalidKeySpecException {
 
         byte[] random = new byte[64];
@@ -115,12 +127,16 @@ public class Utils {
                 + toHex(pbkdf2(bytesToString(random).toCharArray(), salt, iterations, 64 * 8));
     }
 
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // lower case hex, two characters per byte
     public static String bytesToString(byte[] bArr) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bArr) {
-            sb.append(String.format("%02x", b));
+        char[] hex = new char[bArr.length * 2];
+        for (int i = 0; i < bArr.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(bArr[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[bArr[i] & 0xf];
         }
-        return sb.toString();
+        return new String(hex);
     }
 
     private static byte[] stringToBytes(String str) {
@@ -128,14 +144,11 @@ public class Utils {
     }
 
     public static String toHex(byte[] array) {
-        BigInteger bi = new BigInteger(1, array);
-        String hex = bi.toString(16);
-        int paddingLength = (array.length * 2) - hex.length();
-        if (paddingLength > 0) {
-            return String.format("%0" + paddingLength + "d", 0) + hex;
-        } else {
-            return hex;
+        if (array.length == 0) {
+            // this used to be BigInteger.toString(16), which gives "0" for no bytes
+            return "0";
         }
+        return bytesToString(array);
     }
 
     public static String encrypt(String plaintext, String masterKey)
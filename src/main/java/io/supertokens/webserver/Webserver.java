@@ -46,6 +46,7 @@ import io.supertokens.webserver.api.usermetadata.UserMetadataAPI;
 import io.supertokens.webserver.api.userroles.*;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
+import org.apache.catalina.Wrapper;
 import org.apache.catalina.connector.Connector;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
@@ -171,6 +172,7 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new SignInAPI(main));
         addAPI(new GeneratePasswordResetTokenAPI(main));
         addAPI(new ResetPasswordAPI(main));
+        addAPI(new ImportUsersAPI(main));
         addAPI(new RecipeRouter(main, new UserAPI(main), new io.supertokens.webserver.api.thirdparty.UserAPI(main),
                 new io.supertokens.webserver.api.passwordless.UserAPI(main)));
         addAPI(new GenerateEmailVerificationTokenAPI(main));
@@ -183,8 +185,10 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         addAPI(new CreateCodeAPI(main));
         addAPI(new ConsumeCodeAPI(main));
         addAPI(new TelemetryAPI(main));
+        addAPI(new MetricsAPI(main));
         addAPI(new UsersCountAPI(main));
         addAPI(new UsersAPI(main));
+        addAPI(new ExportUsersAPI(main));
         addAPI(new DeleteUserAPI(main));
         addAPI(new RevokeAllTokensForUserAPI(main));
         addAPI(new UnverifyEmailAPI(main));
@@ -216,7 +220,9 @@ public class Webserver extends ResourceDistributor.SingletonResource {
         StandardContext context = tomcatReference.getContext();
         Tomcat tomcat = tomcatReference.getTomcat();
 
-        tomcat.addServlet(CONTEXT_PATH, api.getPath(), api);
+        // async support lets an API free its request thread while waiting for slow work (see WebserverAPI.respondAsync)
+        Wrapper wrapper = tomcat.addServlet(CONTEXT_PATH, api.getPath(), api);
+        wrapper.setAsyncSupported(true);
         context.addServletMappingDecoded(api.getPath(), api.getPath());
     }
 
@@ -20,8 +20,13 @@ import com.google.gson.JsonElement;
 import io.supertokens.Main;
 import io.supertokens.config.Config;
 import io.supertokens.exceptions.QuitProgramException;
+import io.supertokens.exceptions.ServiceUnavailableException;
+import io.supertokens.exceptions.TooManyRequestsException;
 import io.supertokens.output.Logging;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -29,10 +34,17 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class WebserverAPI extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
+    // see respondAsync
+    private static final long ASYNC_RESPONSE_TIMEOUT_MILLIS = 60000;
     protected final Main main;
     public static final Set<String> supportedVersions = new HashSet<>();
     private String rid;
@@ -163,25 +175,129 @@ public abstract class WebserverAPI extends HttpServlet {
             }
             super.service(req, resp);
         } catch (Exception e) {
-            Logging.error(main, "API threw an exception: " + req.getMethod() + " " + this.getPath(), Main.isTesting, e);
-
-            if (e instanceof QuitProgramException) {
-                main.wakeUpMainThreadToShutdown();
-            } else if (e instanceof ServletException) {
-                ServletException se = (ServletException) e;
-                Throwable rootCause = se.getRootCause();
-                if (rootCause instanceof BadRequestException) {
-                    sendTextResponse(400, rootCause.getMessage(), resp);
-                } else if (rootCause instanceof APIKeyUnauthorisedException) {
-                    sendTextResponse(401, "Invalid API key", resp);
-                } else {
-                    sendTextResponse(500, "Internal Error", resp);
-                }
+            handleException(req, resp, e);
+        }
+        if (!req.isAsyncStarted()) {
+            // otherwise, this is logged when the response is written (see respondAsync)
+            Logging.info(main, "API ended: " + this.getPath() + ". Method: " + req.getMethod(), false);
+        }
+    }
+
+    private void handleException(HttpServletRequest req, HttpServletResponse resp, Exception e) throws IOException {
+        Logging.error(main, "API threw an exception: " + req.getMethod() + " " + this.getPath(), Main.isTesting, e);
+
+        if (e instanceof QuitProgramException) {
+            main.wakeUpMainThreadToShutdown();
+        } else if (e instanceof ServiceUnavailableException) {
+            sendTextResponse(503, e.getMessage(), resp);
+        } else if (e instanceof TooManyRequestsException) {
+            sendTextResponse(429, e.getMessage(), resp);
+        } else if (e instanceof ServletException) {
+            ServletException se = (ServletException) e;
+            Throwable rootCause = se.getRootCause();
+            if (rootCause instanceof BadRequestException) {
+                sendTextResponse(400, rootCause.getMessage(), resp);
+            } else if (rootCause instanceof APIKeyUnauthorisedException) {
+                sendTextResponse(401, "Invalid API key", resp);
+            } else if (rootCause instanceof ServiceUnavailableException) {
+                sendTextResponse(503, rootCause.getMessage(), resp);
+            } else if (rootCause instanceof TooManyRequestsException) {
+                sendTextResponse(429, rootCause.getMessage(), resp);
             } else {
                 sendTextResponse(500, "Internal Error", resp);
             }
+        } else {
+            sendTextResponse(500, "Internal Error", resp);
         }
-        Logging.info(main, "API ended: " + this.getPath() + ". Method: " + req.getMethod(), false);
+    }
+
+    public interface AsyncResponder<T> {
+        // error is the exception that the future failed with (unwrapped from a CompletionException), or null
+        void respond(T result, Throwable error) throws Exception;
+    }
+
+    /*
+     * Lets the request thread go back to the pool while future is being computed (for example, a password hash on
+     * the password hashing threads). Once it's done, the responder is called on a request thread to write the
+     * response. Anything that it throws is turned into a response the same way as for a synchronous API.
+     *
+     * If the future is not done within ASYNC_RESPONSE_TIMEOUT_MILLIS, the request is answered with a 503 instead and
+     * the future is cancelled (a password hash that has not started yet is then skipped), so that a request can't stay
+     * open forever if the core is overloaded. If the responder is already running when the timeout fires, its response
+     * is sent instead.
+     */
+    protected <T> void respondAsync(HttpServletRequest req, HttpServletResponse resp, CompletableFuture<T> future,
+            AsyncResponder<T> responder) {
+        AsyncContext asyncContext = req.startAsync();
+        // whichever of the future and the timeout comes first writes the response
+        AtomicBoolean responded = new AtomicBoolean(false);
+        // once onTimeout has been called, only it may complete the async context: if it returns without completing it,
+        // the container sends an error response of its own. So the responder only completes it if it claims this
+        // first, and else leaves it to onTimeout.
+        AtomicBoolean completionClaimed = new AtomicBoolean(false);
+        CountDownLatch responseWritten = new CountDownLatch(1);
+        asyncContext.setTimeout(ASYNC_RESPONSE_TIMEOUT_MILLIS);
+        asyncContext.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (responded.compareAndSet(false, true)) {
+                    future.cancel(false);
+                    try {
+                        sendTextResponse(503, "Request timed out. Please try again", resp);
+                    } finally {
+                        completionClaimed.set(true);
+                        asyncContext.complete();
+                        Logging.info(main, "API timed out: " + getPath() + ". Method: " + req.getMethod(), false);
+                    }
+                    return;
+                }
+                if (completionClaimed.compareAndSet(false, true)) {
+                    // the responder is writing the response right now, so we wait for it and complete for it
+                    try {
+                        responseWritten.await(ASYNC_RESPONSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        asyncContext.complete();
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (!responded.compareAndSet(false, true)) {
+                return;
+            }
+            asyncContext.start(() -> {
+                try {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    responder.respond(result, cause);
+                } catch (Exception e) {
+                    try {
+                        handleException(req, resp, e);
+                    } catch (IOException ignored) {
+                        // the client has gone away
+                    }
+                } finally {
+                    responseWritten.countDown();
+                    if (completionClaimed.compareAndSet(false, true)) {
+                        asyncContext.complete();
+                    }
+                    Logging.info(main, "API ended: " + this.getPath() + ". Method: " + req.getMethod(), false);
+                }
+            });
+        });
     }
 
     protected String getRIDFromRequest(HttpServletRequest req) {
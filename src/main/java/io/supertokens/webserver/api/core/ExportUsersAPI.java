@@ -0,0 +1,127 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.webserver.api.core;
+
+import com.google.gson.stream.JsonWriter;
+import io.supertokens.Main;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.authRecipe.ExportedUser;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.stream.Stream;
+
+/*
+ * Streams all users as NDJSON: one line per user, newest first, in the same shape as an item of the users array of
+ * /users. The last line is {"status":"OK","count":<number of users>}. The status code is sent before the users are
+ * read, so if an error happens midway, the response just ends without that line.
+ */
+public class ExportUsersAPI extends WebserverAPI {
+
+    private static final long serialVersionUID = 2958347109233214568L;
+
+    public ExportUsersAPI(Main main) {
+        super(main, "");
+    }
+
+    @Override
+    public String getPath() {
+        return "/users/export";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        String[] recipeIds = InputParser.getCommaSeparatedStringArrayQueryParamOrThrowError(req, "includeRecipeIds",
+                true);
+
+        Stream.Builder<RECIPE_ID> recipeIdsEnumBuilder = Stream.<RECIPE_ID>builder();
+
+        if (recipeIds != null) {
+            for (String recipeId : recipeIds) {
+                RECIPE_ID recipeID = RECIPE_ID.getEnumFromString(recipeId);
+                if (recipeID == null) {
+                    throw new ServletException(new BadRequestException("Unknown recipe ID: " + recipeId));
+                }
+                recipeIdsEnumBuilder.add(recipeID);
+            }
+        }
+
+        resp.setStatus(200);
+        resp.setHeader("Content-Type", "application/x-ndjson; charset=UTF-8");
+        PrintWriter writer = resp.getWriter();
+        try {
+            long count = AuthRecipe.exportUsers(super.main, recipeIdsEnumBuilder.build().toArray(RECIPE_ID[]::new),
+                    new UserWriter(writer));
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("status").value("OK");
+            jsonWriter.name("count").value(count);
+            jsonWriter.endObject();
+            writer.write('\n');
+        } catch (StorageQueryException e) {
+            throw new ServletException(e);
+        }
+    }
+
+    private static class UserWriter implements AuthRecipe.ExportedUserConsumer {
+        private final PrintWriter writer;
+        private long usersWritten = 0;
+
+        UserWriter(PrintWriter writer) {
+            this.writer = writer;
+        }
+
+        // written field by field instead of through a JsonObject, so that no per user tree is built
+        @Override
+        public void accept(ExportedUser user) throws IOException {
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("recipeId").value(user.recipeId.toString());
+            jsonWriter.name("user").beginObject();
+            jsonWriter.name("id").value(user.externalUserId != null ? user.externalUserId : user.superTokensUserId);
+            jsonWriter.name("timeJoined").value(user.timeJoined);
+            if (user.email != null) {
+                jsonWriter.name("email").value(user.email);
+            }
+            if (user.phoneNumber != null) {
+                jsonWriter.name("phoneNumber").value(user.phoneNumber);
+            }
+            if (user.thirdPartyId != null) {
+                jsonWriter.name("thirdParty").beginObject();
+                jsonWriter.name("id").value(user.thirdPartyId);
+                jsonWriter.name("userId").value(user.thirdPartyUserId);
+                jsonWriter.endObject();
+            }
+            jsonWriter.endObject();
+            jsonWriter.endObject();
+            writer.write('\n');
+
+            // a PrintWriter swallows write errors, so without this we would read all the users even if the client
+            // has gone away. checkError also flushes, which is why it's not done for every user.
+            usersWritten++;
+            if (usersWritten % AuthRecipe.USER_EXPORT_BATCH_SIZE == 0 && writer.checkError()) {
+                throw new IOException("Client closed the connection during the user export");
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver.api.emailpassword;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import io.supertokens.Main;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.webserver.InputParser;
+import io.supertokens.webserver.WebserverAPI;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Imports email password users whose passwords were hashed by another system (bcrypt or argon2id). The request body
+ * is NDJSON, one {"email": ..., "passwordHash": ..., "timeJoined": <optional>} per line, so that millions of users can
+ * be sent in one request without the core holding them all in memory.
+ *
+ * The response is NDJSON as well. For every user, there is a {"line": <line number in the request>, "status": ...}
+ * line, with the imported user if the status is OK. After every batch of BulkImport.BATCH_SIZE users, there is a
+ * {"status":"PROGRESS","imported":...,"failed":...} line, and the last line is {"status":"OK","imported":...,
+ * "failed":...}. If an error happens midway, the response just ends without that line. The users of the batches that
+ * were reported before then have been imported.
+ */
+public class ImportUsersAPI extends WebserverAPI {
+
+    private static final long serialVersionUID = -2815406749263810482L;
+
+    public ImportUsersAPI(Main main) {
+        super(main, RECIPE_ID.EMAIL_PASSWORD.toString());
+    }
+
+    @Override
+    public String getPath() {
+        return "/recipe/users/import";
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+        BufferedReader reader = req.getReader();
+
+        resp.setStatus(200);
+        resp.setHeader("Content-Type", "application/x-ndjson; charset=UTF-8");
+        ImportWriter writer = new ImportWriter(resp.getWriter());
+
+        List<BulkImport.EmailPasswordUserWithPasswordHash> batch = new ArrayList<>(BulkImport.BATCH_SIZE);
+        List<Long> batchLineNumbers = new ArrayList<>(BulkImport.BATCH_SIZE);
+        long lineNumber = 0;
+        String line;
+        try {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    batch.add(parseUser(line));
+                    batchLineNumbers.add(lineNumber);
+                } catch (BadRequestException e) {
+                    writer.writeInvalidInput(lineNumber, e.getMessage());
+                }
+                if (batch.size() == BulkImport.BATCH_SIZE) {
+                    importBatch(batch, batchLineNumbers, writer);
+                }
+            }
+            if (!batch.isEmpty()) {
+                importBatch(batch, batchLineNumbers, writer);
+            }
+            writer.writeStatus("OK");
+        } catch (StorageQueryException e) {
+            throw new ServletException(e);
+        }
+    }
+
+    private void importBatch(List<BulkImport.EmailPasswordUserWithPasswordHash> batch, List<Long> batchLineNumbers,
+            ImportWriter writer) throws StorageQueryException, IOException {
+        List<BulkImport.EmailPasswordUserImportResult> results = BulkImport
+                .importEmailPasswordUsersWithPasswordHashes(super.main, batch);
+        for (int i = 0; i < results.size(); i++) {
+            writer.writeResult(batchLineNumbers.get(i), results.get(i));
+        }
+        writer.writeStatus("PROGRESS");
+        writer.flushOrThrow();
+        batch.clear();
+        batchLineNumbers.clear();
+    }
+
+    private static BulkImport.EmailPasswordUserWithPasswordHash parseUser(String line) throws BadRequestException {
+        JsonObject input;
+        try {
+            JsonElement element = new JsonParser().parse(line);
+            if (!element.isJsonObject()) {
+                throw new BadRequestException("Line is not a JSON object");
+            }
+            input = element.getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new BadRequestException("Line is not valid JSON");
+        }
+        try {
+            String email = InputParser.parseStringOrThrowError(input, "email", false);
+            String passwordHash = InputParser.parseStringOrThrowError(input, "passwordHash", false);
+            Long timeJoined = InputParser.parseLongOrThrowError(input, "timeJoined", true);
+            assert email != null;
+            assert passwordHash != null;
+            if (timeJoined != null && timeJoined < 0) {
+                throw new BadRequestException("timeJoined cannot be negative");
+            }
+            return new BulkImport.EmailPasswordUserWithPasswordHash(email, passwordHash, timeJoined);
+        } catch (ServletException e) {
+            throw (BadRequestException) e.getRootCause();
+        }
+    }
+
+    private static class ImportWriter {
+        private final PrintWriter writer;
+        private long imported = 0;
+        private long failed = 0;
+
+        ImportWriter(PrintWriter writer) {
+            this.writer = writer;
+        }
+
+        void writeResult(long lineNumber, BulkImport.EmailPasswordUserImportResult result) throws IOException {
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("line").value(lineNumber);
+            if (result.user != null) {
+                imported++;
+                jsonWriter.name("status").value("OK");
+                jsonWriter.name("user").beginObject();
+                jsonWriter.name("id").value(result.user.id);
+                jsonWriter.name("email").value(result.user.email);
+                jsonWriter.name("timeJoined").value(result.user.timeJoined);
+                jsonWriter.endObject();
+            } else {
+                failed++;
+                jsonWriter.name("status").value(
+                        result.error == BulkImport.ImportError.INVALID_PASSWORD_HASH ? "INVALID_PASSWORD_HASH_ERROR"
+                                : "EMAIL_ALREADY_EXISTS_ERROR");
+            }
+            jsonWriter.endObject();
+            writer.write('\n');
+        }
+
+        void writeInvalidInput(long lineNumber, String message) throws IOException {
+            failed++;
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("line").value(lineNumber);
+            jsonWriter.name("status").value("INVALID_INPUT_ERROR");
+            jsonWriter.name("message").value(message);
+            jsonWriter.endObject();
+            writer.write('\n');
+        }
+
+        void writeStatus(String status) throws IOException {
+            JsonWriter jsonWriter = new JsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("status").value(status);
+            jsonWriter.name("imported").value(imported);
+            jsonWriter.name("failed").value(failed);
+            jsonWriter.endObject();
+            writer.write('\n');
+        }
+
+        // a PrintWriter swallows write errors, so without this we would import the rest of the request even if the
+        // client has gone away. checkError also flushes, so the client sees the progress.
+        void flushOrThrow() throws IOException {
+            if (writer.checkError()) {
+                throw new IOException("Client closed the connection during the user import");
+            }
+        }
+    }
+}
@@ -24,7 +24,6 @@ import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.emailpassword.exceptions.WrongCredentialsException;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.RECIPE_ID;
-import io.supertokens.pluginInterface.emailpassword.UserInfo;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.useridmapping.UserIdType;
@@ -63,26 +62,33 @@ public class SignInAPI extends WebserverAPI {
         String normalisedEmail = Utils.normaliseEmail(email);
 
         try {
-            UserInfo user = EmailPassword.signIn(super.main, normalisedEmail, password);
+            // the password is verified on the password hashing threads, so that this request thread is free meanwhile
+            super.respondAsync(req, resp, EmailPassword.signInAsync(super.main, normalisedEmail, password),
+                    (user, error) -> {
+                        if (error instanceof WrongCredentialsException) {
+                            Logging.debug(main, Utils.exceptionStacktraceToString((WrongCredentialsException) error));
+                            JsonObject result = new JsonObject();
+                            result.addProperty("status", "WRONG_CREDENTIALS_ERROR");
+                            super.sendJsonResponse(200, result, resp);
+                            return;
+                        }
+                        if (error != null) {
+                            throw new ServletException(error);
+                        }
 
-            // if a userIdMapping exists, pass the externalUserId to the response
-            UserIdMapping userIdMapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(super.main,
-                    user.id, UserIdType.ANY);
-            if (userIdMapping != null) {
-                user.id = userIdMapping.externalUserId;
-            }
+                        // if a userIdMapping exists, pass the externalUserId to the response
+                        UserIdMapping userIdMapping = io.supertokens.useridmapping.UserIdMapping
+                                .getUserIdMapping(super.main, user.id, UserIdType.ANY);
+                        if (userIdMapping != null) {
+                            user.id = userIdMapping.externalUserId;
+                        }
 
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "OK");
-            JsonObject userJson = new JsonParser().parse(new Gson().toJson(user)).getAsJsonObject();
-            result.add("user", userJson);
-            super.sendJsonResponse(200, result, resp);
-
-        } catch (WrongCredentialsException e) {
-            Logging.debug(main, Utils.exceptionStacktraceToString(e));
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "WRONG_CREDENTIALS_ERROR");
-            super.sendJsonResponse(200, result, resp);
+                        JsonObject result = new JsonObject();
+                        result.addProperty("status", "OK");
+                        JsonObject userJson = new JsonParser().parse(new Gson().toJson(user)).getAsJsonObject();
+                        result.add("user", userJson);
+                        super.sendJsonResponse(200, result, resp);
+                    });
         } catch (StorageQueryException e) {
             throw new ServletException(e);
         }
@@ -21,6 +21,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.emailpassword.PasswordHashing;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.emailpassword.UserInfo;
@@ -64,26 +65,34 @@ public class SignUpAPI extends WebserverAPI {
             throw new ServletException(new WebserverAPI.BadRequestException("Password cannot be an empty string"));
         }
 
-        try {
-            UserInfo user = EmailPassword.signUp(super.main, normalisedEmail, password);
+        // the password is hashed on the password hashing threads, so that this request thread is free meanwhile
+        super.respondAsync(req, resp, PasswordHashing.getInstance(super.main).createHashWithSaltAsync(password),
+                (hashedPassword, error) -> {
+                    if (error != null) {
+                        throw new ServletException(error);
+                    }
+                    try {
+                        UserInfo user = EmailPassword.signUpWithPasswordHash(super.main, normalisedEmail,
+                                hashedPassword);
 
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "OK");
-            JsonObject userJson = new JsonParser().parse(new Gson().toJson(user)).getAsJsonObject();
-            if (super.getVersionFromRequest(req).equals("2.4")) {
-                userJson.remove("timeJoined");
-            }
-            result.add("user", userJson);
-            super.sendJsonResponse(200, result, resp);
+                        JsonObject result = new JsonObject();
+                        result.addProperty("status", "OK");
+                        JsonObject userJson = new JsonParser().parse(new Gson().toJson(user)).getAsJsonObject();
+                        if (super.getVersionFromRequest(req).equals("2.4")) {
+                            userJson.remove("timeJoined");
+                        }
+                        result.add("user", userJson);
+                        super.sendJsonResponse(200, result, resp);
 
-        } catch (DuplicateEmailException e) {
-            Logging.debug(main, Utils.exceptionStacktraceToString(e));
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "EMAIL_ALREADY_EXISTS_ERROR");
-            super.sendJsonResponse(200, result, resp);
-        } catch (StorageQueryException e) {
-            throw new ServletException(e);
-        }
+                    } catch (DuplicateEmailException e) {
+                        Logging.debug(main, Utils.exceptionStacktraceToString(e));
+                        JsonObject result = new JsonObject();
+                        result.addProperty("status", "EMAIL_ALREADY_EXISTS_ERROR");
+                        super.sendJsonResponse(200, result, resp);
+                    } catch (StorageQueryException e) {
+                        throw new ServletException(e);
+                    }
+                });
 
     }
 }
@@ -0,0 +1,352 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.ProcessState;
+import io.supertokens.bulkimport.BulkImport;
+import io.supertokens.bulkimport.BulkImportResult;
+import io.supertokens.bulkimport.exceptions.BulkImportDuplicateEmailException;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.emailpassword.PasswordHashing;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.storageLayer.BulkInsertStorage;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BulkImportTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatUsersAreImportedInBatches() throws Exception {
+        String[] args = { "../" };
+
+        // so that hashing the passwords doesn't make the test slow
+        Utils.setValueInConfig("bcrypt_log_rounds", "4");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        assertNotNull(StorageLayer.getOptionalStorage(process.getProcess(), BulkInsertStorage.class));
+
+        int numberOfUsers = BulkImport.BATCH_SIZE * 2 + 10;
+        List<BulkImport.EmailPasswordUser> users = new ArrayList<>();
+        for (int i = 0; i < numberOfUsers; i++) {
+            users.add(new BulkImport.EmailPasswordUser("user" + i + "@example.com", "password" + i));
+        }
+
+        BulkImportResult<UserInfo> result = BulkImport.signUpEmailPasswordUsers(process.getProcess(), users);
+        assertEquals(numberOfUsers, result.items.size());
+        assertEquals("user5@example.com", result.items.get(5).email);
+        assertTrue(result.getItemsPerSecond() > 0);
+        assertEquals(numberOfUsers, EmailPassword.getUsersCount(process.getProcess()));
+
+        UserInfo signedIn = EmailPassword.signIn(process.getProcess(), "user2005@example.com", "password2005");
+        assertEquals(result.items.get(2005).id, signedIn.id);
+
+        JsonObject metrics = Metrics.getInstance(process.getProcess()).toJson();
+        assertEquals(numberOfUsers,
+                metrics.getAsJsonObject("counters").get("bulkImport.emailPasswordUsers").getAsLong());
+        assertEquals(3, metrics.getAsJsonObject("histograms").getAsJsonObject("bulkImport.emailPasswordUsers.batchTime")
+                .get("count").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatABatchWithADuplicateEmailIsNotInserted() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("bcrypt_log_rounds", "4");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        EmailPassword.signUp(process.getProcess(), "user3@example.com", "password");
+
+        List<BulkImport.EmailPasswordUser> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(new BulkImport.EmailPasswordUser("user" + i + "@example.com", "password" + i));
+        }
+
+        try {
+            BulkImport.signUpEmailPasswordUsers(process.getProcess(), users);
+            fail();
+        } catch (BulkImportDuplicateEmailException e) {
+            assertEquals(0, e.importedUsers.size());
+        }
+        assertEquals(1, EmailPassword.getUsersCount(process.getProcess()));
+        assertNull(EmailPassword.getUserUsingEmail(process.getProcess(), "user0@example.com"));
+
+        // the batches before the one with the existing email stay inserted, and are in the exception
+        users = new ArrayList<>();
+        for (int i = 0; i < BulkImport.BATCH_SIZE + 5; i++) {
+            users.add(new BulkImport.EmailPasswordUser("other" + i + "@example.com", "password" + i));
+        }
+        users.set(BulkImport.BATCH_SIZE + 2, new BulkImport.EmailPasswordUser("user3@example.com", "password"));
+        try {
+            BulkImport.signUpEmailPasswordUsers(process.getProcess(), users);
+            fail();
+        } catch (BulkImportDuplicateEmailException e) {
+            assertEquals(BulkImport.BATCH_SIZE, e.importedUsers.size());
+            assertEquals("other0@example.com", e.importedUsers.get(0).email);
+        }
+        assertEquals(BulkImport.BATCH_SIZE + 1, EmailPassword.getUsersCount(process.getProcess()));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatSessionsAreImportedInBatches() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < BulkImport.BATCH_SIZE + 1; i++) {
+            userIds.add("userId" + i);
+        }
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+
+        BulkImportResult<SessionInformationHolder> result = BulkImport.createNewSessions(process.getProcess(),
+                userIds, userDataInJWT, new JsonObject());
+        assertEquals(userIds.size(), result.items.size());
+        assertEquals(userIds.size(), StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions());
+
+        // the returned tokens can be used like the ones from Session.createNewSession
+        SessionInformationHolder session = result.items.get(BulkImport.BATCH_SIZE);
+        assertEquals("userId" + BulkImport.BATCH_SIZE, session.session.userId);
+        assert session.accessToken != null;
+        assert session.refreshToken != null;
+        Session.getSession(process.getProcess(), session.accessToken.token, null, false, true);
+        SessionInformationHolder refreshed = Session.refreshSession(process.getProcess(), session.refreshToken.token,
+                null, false);
+        assertEquals(session.session.handle, refreshed.session.handle);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatUsersWithPasswordHashesAreImportedWithoutHashing() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        EmailPassword.signUp(process.getProcess(), "existing@example.com", "password");
+
+        Config.getConfig(process.getProcess()).setPasswordHashingAlg(CoreConfig.PASSWORD_HASHING_ALG.ARGON2);
+        String argon2Hash = PasswordHashing.getInstance(process.getProcess()).createHashWithSalt("argon2Password");
+        Config.getConfig(process.getProcess()).setPasswordHashingAlg(CoreConfig.PASSWORD_HASHING_ALG.BCRYPT);
+        // other systems often make $2b$ or $2y$ hashes
+        String bcryptHash = "$2b$" + BCrypt.hashpw("bcryptPassword", BCrypt.gensalt(4)).substring(4);
+        long hashesBefore = Metrics.getInstance(process.getProcess()).getHistogram("passwordHashing.bcrypt.hashTime")
+                .getCount();
+
+        List<BulkImport.EmailPasswordUserWithPasswordHash> users = new ArrayList<>();
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash(" Bcrypt@example.com", bcryptHash, 100L));
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash("argon2@example.com", argon2Hash, null));
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash("invalid@example.com", "notAHash", null));
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash("bcrypt@example.com", bcryptHash, null));
+
+        List<BulkImport.EmailPasswordUserImportResult> results = BulkImport
+                .importEmailPasswordUsersWithPasswordHashes(process.getProcess(), users);
+        assertEquals(4, results.size());
+        assertEquals("bcrypt@example.com", results.get(0).user.email);
+        assertEquals(100, results.get(0).user.timeJoined);
+        assertTrue(results.get(0).user.passwordHash.startsWith("$2a$04$"));
+        assertNotNull(results.get(1).user);
+        assertEquals(BulkImport.ImportError.INVALID_PASSWORD_HASH, results.get(2).error);
+        assertEquals(BulkImport.ImportError.EMAIL_ALREADY_EXISTS, results.get(3).error);
+        assertNull(results.get(3).user);
+
+        // an email that has already signed up is not imported, and doesn't stop the others
+        users = new ArrayList<>();
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash("other@example.com", bcryptHash, null));
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash("existing@example.com", bcryptHash, null));
+        results = BulkImport.importEmailPasswordUsersWithPasswordHashes(process.getProcess(), users);
+        assertNotNull(results.get(0).user);
+        assertEquals(BulkImport.ImportError.EMAIL_ALREADY_EXISTS, results.get(1).error);
+
+        assertEquals(hashesBefore, Metrics.getInstance(process.getProcess())
+                .getHistogram("passwordHashing.bcrypt.hashTime").getCount());
+        assertEquals(4, EmailPassword.getUsersCount(process.getProcess()));
+        assertEquals(3, Metrics.getInstance(process.getProcess())
+                .getCounter("bulkImport.emailPasswordUsersWithPasswordHash").get());
+
+        assertEquals(results.get(0).user.id,
+                EmailPassword.signIn(process.getProcess(), "other@example.com", "bcryptPassword").id);
+        EmailPassword.signIn(process.getProcess(), "bcrypt@example.com", "bcryptPassword");
+        EmailPassword.signIn(process.getProcess(), "argon2@example.com", "argon2Password");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatReImportingABatchReportsEveryEmailAsExisting() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String bcryptHash = BCrypt.hashpw("password", BCrypt.gensalt(4));
+        // more than one lookup query's worth of emails
+        List<BulkImport.EmailPasswordUserWithPasswordHash> users = new ArrayList<>();
+        for (int i = 0; i < BulkImport.BATCH_SIZE; i++) {
+            users.add(new BulkImport.EmailPasswordUserWithPasswordHash("user" + i + "@example.com", bcryptHash, null));
+        }
+
+        for (BulkImport.EmailPasswordUserImportResult result : BulkImport
+                .importEmailPasswordUsersWithPasswordHashes(process.getProcess(), users)) {
+            assertNotNull(result.user);
+        }
+
+        // the file is sent again, with one new user at the end
+        users.add(new BulkImport.EmailPasswordUserWithPasswordHash("new@example.com", bcryptHash, null));
+        List<BulkImport.EmailPasswordUserImportResult> results = BulkImport
+                .importEmailPasswordUsersWithPasswordHashes(process.getProcess(), users);
+        for (int i = 0; i < BulkImport.BATCH_SIZE; i++) {
+            assertEquals(BulkImport.ImportError.EMAIL_ALREADY_EXISTS, results.get(i).error);
+        }
+        assertEquals("new@example.com", results.get(BulkImport.BATCH_SIZE).user.email);
+
+        assertEquals(BulkImport.BATCH_SIZE + 1, EmailPassword.getUsersCount(process.getProcess()));
+        assertEquals(BulkImport.BATCH_SIZE + 1, Metrics.getInstance(process.getProcess())
+                .getCounter("bulkImport.emailPasswordUsersWithPasswordHash").get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testImportUsersAPIStreamsResultsAndProgress() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String bcryptHash = BCrypt.hashpw("password", BCrypt.gensalt(4));
+        int numberOfUsers = BulkImport.BATCH_SIZE + 5;
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < numberOfUsers; i++) {
+            JsonObject user = new JsonObject();
+            user.addProperty("email", "user" + i + "@example.com");
+            user.addProperty("passwordHash", bcryptHash);
+            body.append(user.toString()).append('\n');
+        }
+        body.append("not json\n");
+        body.append("{\"email\":\"noHash@example.com\"}\n");
+        body.append('\n');
+        body.append("{\"email\":\"user0@example.com\",\"passwordHash\":\"").append(bcryptHash).append("\"}\n");
+
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:3567/recipe/users/import")
+                .openConnection();
+        List<JsonObject> lines = new ArrayList<>();
+        try {
+            con.setRequestMethod("POST");
+            con.setDoOutput(true);
+            con.setRequestProperty("rId", "emailpassword");
+            con.setRequestProperty("Content-Type", "application/x-ndjson; charset=UTF-8");
+            try (OutputStream out = con.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(200, con.getResponseCode());
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(new JsonParser().parse(line).getAsJsonObject());
+                }
+            }
+        } finally {
+            con.disconnect();
+        }
+
+        int ok = 0;
+        int progress = 0;
+        for (JsonObject line : lines) {
+            String status = line.get("status").getAsString();
+            if (status.equals("OK") && line.has("line")) {
+                ok++;
+            } else if (status.equals("PROGRESS")) {
+                progress++;
+            }
+        }
+        assertEquals(numberOfUsers, ok);
+        assertEquals(2, progress);
+
+        JsonObject invalidJson = lines.stream().filter(l -> l.has("line") && l.get("line").getAsLong() == 1
+                + numberOfUsers).findFirst().get();
+        assertEquals("INVALID_INPUT_ERROR", invalidJson.get("status").getAsString());
+        JsonObject noHash = lines.stream().filter(l -> l.has("line") && l.get("line").getAsLong() == 2
+                + numberOfUsers).findFirst().get();
+        assertEquals("INVALID_INPUT_ERROR", noHash.get("status").getAsString());
+        JsonObject duplicate = lines.stream().filter(l -> l.has("line") && l.get("line").getAsLong() == 4
+                + numberOfUsers).findFirst().get();
+        assertEquals("EMAIL_ALREADY_EXISTS_ERROR", duplicate.get("status").getAsString());
+
+        JsonObject last = lines.get(lines.size() - 1);
+        assertEquals("OK", last.get("status").getAsString());
+        assertEquals(numberOfUsers, last.get("imported").getAsLong());
+        assertEquals(3, last.get("failed").getAsLong());
+        assertEquals(numberOfUsers, EmailPassword.getUsersCount(process.getProcess()));
+
+        EmailPassword.signIn(process.getProcess(), "user1000@example.com", "password");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
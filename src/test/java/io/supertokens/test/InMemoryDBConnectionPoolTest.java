@@ -0,0 +1,159 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.ConnectionWithLocks;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.pluginInterface.emailpassword.exceptions.DuplicateEmailException;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDBConnectionPoolTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatConnectionsAreReused() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 100; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject());
+        }
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        assertTrue(metrics.getCounter("inmemorydb.connectionPool.leased").get() >= 100);
+        // requests are sequential, so apart from the cronjobs running in parallel, one connection is enough
+        assertTrue(metrics.getCounter("inmemorydb.connectionPool.created").get() < 5);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatLocksAreReleasedWhenConnectionIsReturned() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        ConnectionWithLocks con = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        con.lock("key");
+        con.close();
+        // closing twice must not return the connection to the pool twice
+        con.close();
+        assertTrue(con.isClosed());
+
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            try (ConnectionWithLocks con2 = (ConnectionWithLocks) ConnectionPool.getConnection(start)) {
+                con2.lock("key");
+                locked.countDown();
+            } catch (Exception ignored) {
+            }
+        });
+        t.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        t.join();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatCachedStatementsCanBeReusedAfterAFailedQuery() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+        try {
+            EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+            fail();
+        } catch (DuplicateEmailException ignored) {
+        }
+        UserInfo user = EmailPassword.signUp(process.getProcess(), "test2@example.com", "password");
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(user.id, EmailPassword.getUserUsingEmail(process.getProcess(), "test2@example.com").id);
+            assertNull(EmailPassword.getUserUsingEmail(process.getProcess(), "unknown@example.com"));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatUncommittedChangesAreRolledBackWhenConnectionIsReturned() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        Connection con = ConnectionPool.getConnection(start);
+        con.setAutoCommit(false);
+        try (Statement statement = con.createStatement()) {
+            statement.executeUpdate(
+                    "INSERT INTO key_value(name, value, created_at_time) VALUES('uncommitted', 'value', 0)");
+        }
+        con.close();
+
+        assertNull(start.getKeyValue("uncommitted"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.cliOptions.CLIOptions;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDBFileTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    private File dbFile;
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() throws Exception {
+        Utils.reset();
+        dbFile = File.createTempFile("supertokens-test", ".db");
+        Files.delete(dbFile.toPath());
+    }
+
+    @After
+    public void afterEach() throws Exception {
+        for (String suffix : new String[] { "", "-wal", "-shm" }) {
+            Files.deleteIfExists(new File(dbFile.getPath() + suffix).toPath());
+        }
+    }
+
+    @Test
+    public void testThatDataIsKeptAcrossRestarts() throws Exception {
+        Utils.setValueInConfig("sqlite_file_path", dbFile.getAbsolutePath());
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        UserInfo user = EmailPassword.signUp(process.getProcess(), "test@example.com", "validPass123");
+        String sessionHandle = Session.createNewSession(process.getProcess(), user.id, new JsonObject(),
+                new JsonObject()).session.handle;
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        try (Connection con = ConnectionPool.getConnection(start); Statement statement = con.createStatement();
+                ResultSet result = statement.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(result.next());
+            assertEquals("wal", result.getString(1));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        assertTrue(dbFile.isFile());
+
+        process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        UserInfo userAfterRestart = EmailPassword.signIn(process.getProcess(), "test@example.com", "validPass123");
+        assertEquals(user.id, userAfterRestart.id);
+        assertEquals(user.id, Session.getSession(process.getProcess(), sessionHandle).userId);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatDataIsNotKeptAcrossRestartsByDefault() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        EmailPassword.signUp(process.getProcess(), "test@example.com", "validPass123");
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+        process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        assertNull(EmailPassword.getUserUsingEmail(process.getProcess(), "test@example.com"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatInvalidCacheSizeThrowsError() throws Exception {
+        Utils.setValueInConfig("sqlite_file_path", dbFile.getAbsolutePath());
+        Utils.setValueInConfig("sqlite_cache_size_mb", "-1");
+
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("'sqlite_cache_size_mb' must be >= 0. The config file can be found here: "
+                + new File(CLIOptions.get(process.getProcess()).getInstallationPath() + "config.yaml")
+                        .getAbsolutePath(), e.exception.getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.ConnectionWithLocks;
+import io.supertokens.inmemorydb.KeyLockManager;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Counter;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDBKeyLockTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatWaitingForALockTimesOut() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        KeyLockManager locks = new KeyLockManager(100, Metrics.getInstance(process.getProcess()));
+        Object owner1 = new Object();
+        Object owner2 = new Object();
+        locks.lock("key", owner1);
+        // locking again is a no op for the same owner
+        locks.lock("key", owner1);
+
+        try {
+            locks.lock("key", owner2);
+            fail();
+        } catch (SQLTimeoutException ignored) {
+        }
+        assertEquals(0, locks.getWaitingCount());
+
+        // unlocking a key that someone else holds does nothing
+        locks.unlock("key", owner2);
+        assertTrue(locks.isLocked("key"));
+
+        locks.unlock("key", owner1);
+        assertFalse(locks.isLocked("key"));
+        locks.lock("key", owner2);
+        locks.unlock("key", owner2);
+        assertEquals(0, locks.getHeldCount());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatADeadlockIsDetectedInsteadOfWaiting() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        Counter contended = Metrics.getInstance(process.getProcess()).getCounter("inmemorydb.keyLock.contended");
+
+        ConnectionWithLocks con1 = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        ConnectionWithLocks con2 = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        con1.lock("key1");
+        con2.lock("key2");
+
+        long contendedBefore = contended.get();
+        CountDownLatch con2GotKey1 = new CountDownLatch(1);
+        Thread t = new Thread(() -> {
+            try {
+                con2.lock("key1");
+                con2GotKey1.countDown();
+                con2.close();
+            } catch (Exception ignored) {
+            }
+        });
+        t.start();
+        waitFor(() -> contended.get() > contendedBefore);
+
+        // con2 waits for key1 (held by con1), so con1 waiting for key2 (held by con2) would never finish
+        try {
+            con1.lock("key2");
+            fail();
+        } catch (SQLTransactionRollbackException e) {
+            assertTrue(e.getMessage().toLowerCase().contains("deadlock"));
+        }
+
+        con1.close();
+        assertTrue(con2GotKey1.await(5, TimeUnit.SECONDS));
+        t.join();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatWaitersGetTheLockInTheOrderTheyAskedForIt() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        Counter contended = Metrics.getInstance(process.getProcess()).getCounter("inmemorydb.keyLock.contended");
+
+        ConnectionWithLocks holder = (ConnectionWithLocks) ConnectionPool.getConnection(start);
+        holder.lock("key");
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int id = i;
+            long contendedBefore = contended.get();
+            Thread t = new Thread(() -> {
+                try (ConnectionWithLocks con = (ConnectionWithLocks) ConnectionPool.getConnection(start)) {
+                    con.lock("key");
+                    order.add(id);
+                } catch (Exception ignored) {
+                }
+            });
+            t.start();
+            threads.add(t);
+            // makes sure that this thread is in the queue before we start the next one
+            waitFor(() -> contended.get() > contendedBefore);
+        }
+
+        holder.close();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
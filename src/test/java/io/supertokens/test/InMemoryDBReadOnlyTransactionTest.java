@@ -0,0 +1,184 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.pluginInterface.KeyValueInfo;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDBReadOnlyTransactionTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatAReadOnlyTransactionCannotWrite() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        start.setKeyValue("key", new KeyValueInfo("value"));
+
+        for (int i = 0; i < 50; i++) {
+            try {
+                start.startReadOnlyTransaction(con -> {
+                    start.setKeyValue_Transaction(con, "key", new KeyValueInfo("changed"));
+                    return null;
+                });
+                fail();
+            } catch (StorageQueryException ignored) {
+            }
+            KeyValueInfo info = start.startReadOnlyTransaction(con -> start.getKeyValue_Transaction(con, "key"));
+            assertEquals("value", info.value);
+        }
+
+        // the connections go back to normal once they are returned to the pool
+        start.startTransaction(con -> {
+            start.setKeyValue_Transaction(con, "key", new KeyValueInfo("changed"));
+            start.commitTransaction(con);
+            return null;
+        });
+        assertEquals("changed", start.getKeyValue("key").value);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatAReadOnlyTransactionDoesNotWaitForKeyLocks() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        start.setKeyValue("key", new KeyValueInfo("value"));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        Future<?> lockHolder = es.submit(() -> {
+            start.startTransaction(con -> {
+                start.getKeyValue_Transaction(con, "key");
+                locked.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException ignored) {
+                }
+                start.commitTransaction(con);
+                return null;
+            });
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        long before = System.currentTimeMillis();
+        KeyValueInfo info = start.startReadOnlyTransaction(con -> start.getKeyValue_Transaction(con, "key"));
+        assertEquals("value", info.value);
+        assertTrue(System.currentTimeMillis() - before < 2000);
+
+        done.countDown();
+        lockHolder.get();
+        es.shutdown();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatGetSessionOnlyLocksTheSessionIfItPromotesTheRefreshToken() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder session = Session.createNewSession(process.getProcess(), "userId", new JsonObject(),
+                new JsonObject(), false);
+        assert session.refreshToken != null;
+        SessionInformationHolder refreshed = Session.refreshSession(process.getProcess(), session.refreshToken.token,
+                null, false);
+        assert refreshed.accessToken != null;
+        String accessToken = refreshed.accessToken.token;
+
+        // the first use of the new access token promotes its refresh token
+        assertNotNull(Session.getSession(process.getProcess(), accessToken, null, false, true).accessToken);
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        Future<?> lockHolder = es.submit(() -> {
+            start.startTransaction(con -> {
+                start.getSessionInfo_Transaction(con, session.session.handle);
+                locked.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException ignored) {
+                }
+                start.commitTransaction(con);
+                return null;
+            });
+            return null;
+        });
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        // after that, it doesn't need to lock the session, so it doesn't wait for the transaction above.
+        long before = System.currentTimeMillis();
+        SessionInformationHolder result = Session.getSession(process.getProcess(), accessToken, null, false, true);
+        assertNotNull(result.accessToken);
+        assertTrue(System.currentTimeMillis() - before < 2000);
+
+        done.countDown();
+        lockHolder.get();
+        es.shutdown();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
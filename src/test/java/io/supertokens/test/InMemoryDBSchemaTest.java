@@ -0,0 +1,197 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import io.supertokens.ProcessState;
+import io.supertokens.inmemorydb.ConnectionPool;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.queries.GeneralQueries;
+import io.supertokens.inmemorydb.queries.PasswordlessQueries;
+import io.supertokens.inmemorydb.queries.SessionQueries;
+import io.supertokens.inmemorydb.queries.ThirdPartyQueries;
+import io.supertokens.inmemorydb.queries.UserIdMappingQueries;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDBSchemaTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatLookupsBySecondaryColumnsDoNotScanTheTable() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        // so that their queries are in the query cache
+        SessionQueries.deleteSessionsOfUser(start, "userId");
+        SessionQueries.getAllNonExpiredSessionHandlesForUser(start, "userId");
+        SessionQueries.deleteAllExpiredSessions(start);
+        UserIdMappingQueries.getUserIdMappingWithSuperTokensUserId(start, "userId");
+        UserIdMappingQueries.getUserIdMappingWithExternalUserId(start, "externalUserId");
+        UserIdMappingQueries.getUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId(start, "userId");
+        UserIdMappingQueries.deleteUserIdMappingWithExternalUserId(start, "externalUserId");
+        UserIdMappingQueries.updateOrDeleteExternalUserIdInfoWithExternalUserId(start, "externalUserId", null);
+        ThirdPartyQueries.getThirdPartyUsersByEmail(start, "test@example.com");
+        PasswordlessQueries.getDevicesWithCodesByEmail(start, "test@example.com");
+        PasswordlessQueries.getDevicesWithCodesByPhoneNumber(start, "+442071838750");
+
+        String[] queryNames = { "SessionQueries.deleteSessionsOfUser",
+                "SessionQueries.getAllNonExpiredSessionHandlesForUser", "SessionQueries.deleteAllExpiredSessions",
+                "UserIdMappingQueries.getUserIdMappingWithSuperTokensUserId",
+                "UserIdMappingQueries.getUserIdMappingWithExternalUserId",
+                "UserIdMappingQueries.getUserIdMappingWithEitherSuperTokensUserIdOrExternalUserId",
+                "UserIdMappingQueries.deleteUserIdMappingWithExternalUserId",
+                "UserIdMappingQueries.updateOrDeleteExternalUserIdInfoWithExternalUserId",
+                "ThirdPartyQueries.getThirdPartyUsersByEmail", "PasswordlessQueries.getDevicesWithCodesByEmail",
+                "PasswordlessQueries.getDevicesWithCodesByPhoneNumber" };
+
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            for (String queryName : queryNames) {
+                String query = start.getQueryCache().getCachedQuery(queryName);
+                assertNotNull(queryName, query);
+                for (String step : getQueryPlan(con, query)) {
+                    // a full table scan is reported as "SCAN TABLE <table>" (or "SCAN <table>" in newer versions)
+                    assertFalse(queryName + ": " + step, step.startsWith("SCAN"));
+                }
+            }
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatANewDbIsAtTheLatestSchemaVersion() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+        try (Connection con = ConnectionPool.getConnection(start)) {
+            assertEquals(GeneralQueries.getLatestSchemaVersion(), GeneralQueries.getSchemaVersion(con));
+            List<String> indexes = getIndexNames(con);
+            assertTrue(indexes.contains("session_info_user_id_index"));
+            assertTrue(indexes.contains("passwordless_codes_device_id_hash_index"));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatAnOldDbFileIsMigrated() throws Exception {
+        File dbFile = File.createTempFile("supertokens-test", ".db");
+        Files.delete(dbFile.toPath());
+        Utils.setValueInConfig("sqlite_file_path", dbFile.getAbsolutePath());
+        try {
+            String[] args = { "../" };
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+            process.getProcess().setForceInMemoryDB();
+            process.startProcess();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            // makes the file look like it was created before the migrations existed
+            Start start = (Start) StorageLayer.getStorage(process.getProcess());
+            try (Connection con = ConnectionPool.getConnection(start);
+                    Statement statement = con.createStatement()) {
+                statement.execute("DROP INDEX session_info_user_id_index");
+                statement.execute("DROP INDEX session_info_expires_at_index");
+                statement.execute("DROP INDEX thirdparty_users_email_index");
+                statement.execute("DROP INDEX passwordless_codes_device_id_hash_index");
+                statement.execute("PRAGMA user_version = 0");
+            }
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+            process = TestingProcessManager.start(args, false);
+            process.getProcess().setForceInMemoryDB();
+            process.startProcess();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+            start = (Start) StorageLayer.getStorage(process.getProcess());
+            try (Connection con = ConnectionPool.getConnection(start)) {
+                assertEquals(GeneralQueries.getLatestSchemaVersion(), GeneralQueries.getSchemaVersion(con));
+                List<String> indexes = getIndexNames(con);
+                assertTrue(indexes.contains("session_info_user_id_index"));
+                assertTrue(indexes.contains("session_info_expires_at_index"));
+                assertTrue(indexes.contains("thirdparty_users_email_index"));
+                assertTrue(indexes.contains("passwordless_codes_device_id_hash_index"));
+            }
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        } finally {
+            for (String suffix : new String[] { "", "-wal", "-shm" }) {
+                Files.deleteIfExists(new File(dbFile.getPath() + suffix).toPath());
+            }
+        }
+    }
+
+    private static List<String> getQueryPlan(Connection con, String query) throws Exception {
+        List<String> steps = new ArrayList<>();
+        try (Statement statement = con.createStatement();
+                ResultSet result = statement.executeQuery("EXPLAIN QUERY PLAN " + query)) {
+            while (result.next()) {
+                steps.add(result.getString("detail"));
+            }
+        }
+        return steps;
+    }
+
+    private static List<String> getIndexNames(Connection con) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (Statement statement = con.createStatement();
+                ResultSet result = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'index'")) {
+            while (result.next()) {
+                names.add(result.getString("name"));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.inmemorydb.Start;
+import io.supertokens.inmemorydb.TransactionRetryPolicy;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.storageLayer.StorageLayer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InMemoryDBTransactionRetryTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testWhichErrorsAreRetried() {
+        assertTrue(TransactionRetryPolicy.isRetryable(new SQLTransactionRollbackException("Deadlock found")));
+        assertTrue(TransactionRetryPolicy.isRetryable(
+                new StorageTransactionLogicException(new SQLTransactionRollbackException("Deadlock found"))));
+        assertTrue(TransactionRetryPolicy.isRetryable(
+                new StorageQueryException(new SQLiteException("busy", SQLiteErrorCode.SQLITE_BUSY))));
+        assertTrue(TransactionRetryPolicy.isRetryable(new SQLiteException("locked", SQLiteErrorCode.SQLITE_LOCKED)));
+        assertTrue(TransactionRetryPolicy
+                .isRetryable(new SQLiteException("locked", SQLiteErrorCode.SQLITE_LOCKED_SHAREDCACHE)));
+
+        assertFalse(TransactionRetryPolicy
+                .isRetryable(new SQLiteException("constraint", SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE)));
+        // only the type matters, not the message
+        assertFalse(TransactionRetryPolicy.isRetryable(new SQLException("deadlock")));
+        assertFalse(
+                TransactionRetryPolicy.isRetryable(new StorageTransactionLogicException(new Exception("deadlock"))));
+    }
+
+    @Test
+    public void testThatRetriesStopAfterMaxAttempts() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("sqlite_transaction_max_attempts", "4");
+        Utils.setValueInConfig("sqlite_transaction_retry_base_delay_ms", "1");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Start start = (Start) StorageLayer.getStorage(process.getProcess());
+
+        AtomicInteger attempts = new AtomicInteger(0);
+        try {
+            start.startTransaction(con -> {
+                attempts.incrementAndGet();
+                throw new StorageTransactionLogicException(new SQLTransactionRollbackException("Deadlock found"));
+            });
+            fail();
+        } catch (StorageTransactionLogicException e) {
+            assertTrue(e.actualException instanceof SQLTransactionRollbackException);
+        }
+        assertEquals(4, attempts.get());
+
+        // errors from the transaction's own logic are not retried
+        attempts.set(0);
+        try {
+            start.startTransaction(con -> {
+                attempts.incrementAndGet();
+                throw new StorageTransactionLogicException(new Exception("deadlock"));
+            });
+            fail();
+        } catch (StorageTransactionLogicException ignored) {
+        }
+        assertEquals(1, attempts.get());
+
+        JsonObject counters = Metrics.getInstance(process.getProcess()).toJson().getAsJsonObject("counters");
+        assertEquals(3, counters.get("inmemorydb.transaction.retries").getAsLong());
+        assertEquals(1, counters.get("inmemorydb.transaction.giveUps").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testConcurrentRefreshesOfTheSameSession() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        process.getProcess().setForceInMemoryDB();
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder session = Session.createNewSession(process.getProcess(), "userId", new JsonObject(),
+                new JsonObject(), false);
+        assert session.refreshToken != null;
+        // the child token. The first refresh with it promotes it in the db, and the others then find it there.
+        SessionInformationHolder refreshed = Session.refreshSession(process.getProcess(), session.refreshToken.token,
+                null, false);
+        assert refreshed.refreshToken != null;
+        String refreshToken = refreshed.refreshToken.token;
+
+        int threads = 32;
+        int refreshesPerThread = 20;
+        AtomicInteger succeeded = new AtomicInteger(0);
+        AtomicInteger failed = new AtomicInteger(0);
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads * refreshesPerThread; i++) {
+            es.execute(() -> {
+                try {
+                    Session.refreshSession(process.getProcess(), refreshToken, null, false);
+                    succeeded.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        es.shutdown();
+        assertTrue(es.awaitTermination(2, TimeUnit.MINUTES));
+
+        assertEquals(0, failed.get());
+        assertEquals(threads * refreshesPerThread, succeeded.get());
+        assertEquals(0, Metrics.getInstance(process.getProcess()).toJson().getAsJsonObject("counters")
+                .get("inmemorydb.transaction.giveUps").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StorageMetricsTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void testThatStorageIsNotWrappedByDefault() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        assertFalse(Proxy.isProxyClass(StorageLayer.getStorage(process.getProcess()).getClass()));
+
+        Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject());
+        JsonObject histograms = Metrics.getInstance(process.getProcess()).toJson().getAsJsonObject("histograms");
+        for (Map.Entry<String, JsonElement> entry : histograms.entrySet()) {
+            assertFalse(entry.getKey().startsWith("storage."));
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatStorageCallsAreRecordedAndReturnedByTheMetricsAPI() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("storage_metrics_enabled", "true");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // the storage layer is still usable as its recipe specific interfaces
+        assertNotNull(StorageLayer.getSessionStorage(process.getProcess()));
+        assertNotNull(StorageLayer.getEmailPasswordStorage(process.getProcess()));
+
+        Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject());
+
+        JsonObject response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/metrics", new HashMap<>(), 1000, 1000, null,
+                Utils.getCdiVersionLatestForTests(), "");
+        assertEquals("OK", response.get("status").getAsString());
+
+        JsonObject createNewSession = null;
+        for (Map.Entry<String, JsonElement> entry : response.getAsJsonObject("histograms").entrySet()) {
+            if (entry.getKey().startsWith("storage.") && entry.getKey().endsWith(".createNewSession")) {
+                createNewSession = entry.getValue().getAsJsonObject();
+            }
+        }
+        assertNotNull(createNewSession);
+        assertEquals(1, createNewSession.get("count").getAsLong());
+        assertTrue(createNewSession.has("p99Ms"));
+        assertEquals(0, response.getAsJsonObject("counters").get("storage.transaction.retries").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -22,6 +22,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class UtilsTest {
     @Rule
     public TestRule watchman = Utils.getOnFailure();
@@ -41,4 +50,50 @@ public class UtilsTest {
         assert (io.supertokens.utils.Utils.convertFromBase64(io.supertokens.utils.Utils.convertToBase64("łukasz 馬 / 马"))
                 .equals("łukasz 馬 / 马"));
     }
+
+    @Test
+    public void urlSafeRandomTokensAreUniqueAndOnlyHaveUrlSafeCharacters() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            String token = io.supertokens.utils.Utils.generateUrlSafeRandomToken(96);
+            assertEquals(128, token.length());
+            assertTrue(token.matches("[A-Za-z0-9_-]+"));
+            tokens.add(token);
+        }
+        assertEquals(1000, tokens.size());
+
+        assertEquals(4, io.supertokens.utils.Utils.generateUrlSafeRandomToken(3).length());
+        // no padding
+        assertEquals(3, io.supertokens.utils.Utils.generateUrlSafeRandomToken(2).length());
+    }
+
+    @Test
+    public void hexEncodingIsTheSameAsBefore() {
+        Random random = new Random();
+        for (int length = 0; length <= 80; length++) {
+            for (int i = 0; i < 50; i++) {
+                byte[] bytes = new byte[length];
+                random.nextBytes(bytes);
+                if (i == 0) {
+                    // leading zeros are where the BigInteger based toHex needed padding
+                    Arrays.fill(bytes, (byte) 0);
+                } else if (i == 1 && length > 0) {
+                    bytes[0] = 0;
+                }
+
+                StringBuilder expectedBytesToString = new StringBuilder();
+                for (byte b : bytes) {
+                    expectedBytesToString.append(String.format("%02x", b));
+                }
+                assertEquals(expectedBytesToString.toString(), io.supertokens.utils.Utils.bytesToString(bytes));
+
+                String expectedToHex = new BigInteger(1, bytes).toString(16);
+                int paddingLength = (bytes.length * 2) - expectedToHex.length();
+                if (paddingLength > 0) {
+                    expectedToHex = String.format("%0" + paddingLength + "d", 0) + expectedToHex;
+                }
+                assertEquals(expectedToHex, io.supertokens.utils.Utils.toHex(bytes));
+            }
+        }
+    }
 }
@@ -0,0 +1,207 @@
+/*
+ *    Copyright (c) 2021, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+package io.supertokens.test.authRecipe;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.ProcessState;
+import io.supertokens.authRecipe.AuthRecipe;
+import io.supertokens.authRecipe.ExportedUser;
+import io.supertokens.emailpassword.EmailPassword;
+import io.supertokens.passwordless.Passwordless;
+import io.supertokens.pluginInterface.RECIPE_ID;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.emailpassword.UserInfo;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.thirdparty.ThirdParty;
+import io.supertokens.useridmapping.UserIdMapping;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ExportUsersTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void exportContainsUsersOfAllRecipesNewestFirstWithExternalIds() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        UserInfo emailPasswordUser = EmailPassword.signUp(process.getProcess(), "test@example.com", "password");
+        UserIdMapping.createUserIdMapping(process.getProcess(), emailPasswordUser.id, "externalId", null, false);
+        Thread.sleep(5);
+        ThirdParty.SignInUpResponse thirdPartyUser = ThirdParty.signInUp(process.getProcess(), "google",
+                "googleUserId", "test2@example.com");
+        Thread.sleep(5);
+        Passwordless.CreateCodeResponse createCodeResponse = Passwordless.createCode(process.getProcess(), null,
+                "+442071838750", null, null);
+        Passwordless.ConsumeCodeResponse passwordlessUser = Passwordless.consumeCode(process.getProcess(),
+                createCodeResponse.deviceId, createCodeResponse.deviceIdHash, createCodeResponse.userInputCode, null);
+
+        List<JsonObject> lines = exportUsers("");
+        assertEquals(4, lines.size());
+
+        JsonObject passwordlessLine = lines.get(0);
+        assertEquals("passwordless", passwordlessLine.get("recipeId").getAsString());
+        assertEquals(passwordlessUser.user.id, passwordlessLine.getAsJsonObject("user").get("id").getAsString());
+        assertEquals("+442071838750",
+                passwordlessLine.getAsJsonObject("user").get("phoneNumber").getAsString());
+        assertFalse(passwordlessLine.getAsJsonObject("user").has("email"));
+
+        JsonObject thirdPartyLine = lines.get(1);
+        assertEquals("thirdparty", thirdPartyLine.get("recipeId").getAsString());
+        JsonObject thirdPartyJson = thirdPartyLine.getAsJsonObject("user");
+        assertEquals(thirdPartyUser.user.id, thirdPartyJson.get("id").getAsString());
+        assertEquals(thirdPartyUser.user.timeJoined, thirdPartyJson.get("timeJoined").getAsLong());
+        assertEquals("test2@example.com", thirdPartyJson.get("email").getAsString());
+        assertEquals("google", thirdPartyJson.getAsJsonObject("thirdParty").get("id").getAsString());
+        assertEquals("googleUserId", thirdPartyJson.getAsJsonObject("thirdParty").get("userId").getAsString());
+
+        JsonObject emailPasswordLine = lines.get(2);
+        assertEquals("emailpassword", emailPasswordLine.get("recipeId").getAsString());
+        assertEquals("externalId", emailPasswordLine.getAsJsonObject("user").get("id").getAsString());
+        assertEquals("test@example.com", emailPasswordLine.getAsJsonObject("user").get("email").getAsString());
+
+        assertEquals("OK", lines.get(3).get("status").getAsString());
+        assertEquals(3, lines.get(3).get("count").getAsLong());
+
+        List<JsonObject> thirdPartyOnly = exportUsers("?includeRecipeIds=thirdparty");
+        assertEquals(2, thirdPartyOnly.size());
+        assertEquals(thirdPartyUser.user.id, thirdPartyOnly.get(0).getAsJsonObject("user").get("id").getAsString());
+        assertEquals(1, thirdPartyOnly.get(1).get("count").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void exportWalksAllPagesWithoutDuplicatesOrGaps() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        // many of these share a time_joined, so the cursor has to break ties on the user id
+        int numberOfUsers = AuthRecipe.USER_EXPORT_BATCH_SIZE * 2 + 5;
+        Set<String> createdUserIds = new HashSet<>();
+        for (int i = 0; i < numberOfUsers; i++) {
+            createdUserIds.add(ThirdParty.signInUp(process.getProcess(), "google", "googleUserId" + i,
+                    "test" + i + "@example.com").user.id);
+        }
+
+        List<ExportedUser> exported = new ArrayList<>();
+        long count = AuthRecipe.exportUsers(process.getProcess(), null, exported::add);
+
+        assertEquals(numberOfUsers, count);
+        assertEquals(numberOfUsers, exported.size());
+        Set<String> exportedUserIds = new HashSet<>();
+        for (int i = 0; i < exported.size(); i++) {
+            ExportedUser user = exported.get(i);
+            assertEquals(RECIPE_ID.THIRD_PARTY, user.recipeId);
+            exportedUserIds.add(user.superTokensUserId);
+            if (i > 0) {
+                ExportedUser previous = exported.get(i - 1);
+                assertTrue(previous.timeJoined > user.timeJoined || (previous.timeJoined == user.timeJoined
+                        && previous.superTokensUserId.compareTo(user.superTokensUserId) > 0));
+            }
+        }
+        assertEquals(createdUserIds, exportedUserIds);
+
+        assertEquals(0, AuthRecipe.exportUsers(process.getProcess(), new RECIPE_ID[] { RECIPE_ID.EMAIL_PASSWORD },
+                user -> fail()));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void exportWithUnknownRecipeIdIsABadRequest() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        try {
+            HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:3567/users/export?includeRecipeIds=random", null, 1000, 1000, null,
+                    Utils.getCdiVersion2_8ForTests(), "");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+            assertEquals("Http error. Status Code: 400. Message: Unknown recipe ID: random", e.getMessage());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    // HttpRequestForTesting joins the lines of a response, so the NDJSON is read here
+    private static List<JsonObject> exportUsers(String query) throws Exception {
+        HttpURLConnection con = (HttpURLConnection) new URL("http://localhost:3567/users/export" + query)
+                .openConnection();
+        try {
+            assertEquals(200, con.getResponseCode());
+            assertEquals("application/x-ndjson;charset=UTF-8", con.getContentType().replace(" ", ""));
+            List<JsonObject> lines = new ArrayList<>();
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(new JsonParser().parse(line).getAsJsonObject());
+                }
+            }
+            return lines;
+        } finally {
+            con.disconnect();
+        }
+    }
+}
@@ -16,25 +16,37 @@
 
 package io.supertokens.test.emailpassword;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.emailpassword.EmailPassword;
 import io.supertokens.emailpassword.PasswordHashing;
 import io.supertokens.emailpassword.exceptions.WrongCredentialsException;
+import io.supertokens.exceptions.ServiceUnavailableException;
 import io.supertokens.inmemorydb.Start;
+import io.supertokens.metrics.Histogram;
+import io.supertokens.metrics.Metrics;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.emailpassword.UserInfo;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
+import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -370,6 +382,85 @@ public class PasswordHashingTest {
 
         Utils.reset();
 
+        {
+            String[] args = { "../" };
+            Utils.setValueInConfig("argon2_hashing_queue_timeout_ms", "-1");
+            Utils.setValueInConfig("password_hashing_alg", "ARGON2");
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+            assertNotNull(e);
+            assertEquals(e.exception.getMessage(), "'argon2_hashing_queue_timeout_ms' must be >= 0");
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        Utils.reset();
+
+        {
+            // existing argon2 hashes are verified in BCRYPT mode too
+            String[] args = { "../" };
+            Utils.setValueInConfig("argon2_hashing_queue_timeout_ms", "-1");
+            Utils.setValueInConfig("password_hashing_alg", "BCRYPT");
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+            assertNotNull(e);
+            assertEquals(e.exception.getMessage(), "'argon2_hashing_queue_timeout_ms' must be >= 0");
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        Utils.reset();
+
+        {
+            String[] args = { "../" };
+            Utils.setValueInConfig("bcrypt_hashing_pool_size", "100");
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+            assertNotNull(e);
+            assertEquals(e.exception.getMessage(), "'bcrypt_hashing_pool_size' must be <= 'max_server_pool_size'");
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        Utils.reset();
+
+        {
+            String[] args = { "../" };
+            Utils.setValueInConfig("bcrypt_hashing_pool_size", "-1");
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+            assertNotNull(e);
+            assertEquals(e.exception.getMessage(), "'bcrypt_hashing_pool_size' must be >= 0");
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        Utils.reset();
+
+        {
+            String[] args = { "../" };
+            Utils.setValueInConfig("bcrypt_hashing_queue_timeout_ms", "-1");
+            Utils.setValueInConfig("password_hashing_alg", "ARGON2");
+
+            TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+            ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+            assertNotNull(e);
+            assertEquals(e.exception.getMessage(), "'bcrypt_hashing_queue_timeout_ms' must be >= 0");
+
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+        }
+
+        Utils.reset();
+
         {
             String[] args = { "../" };
             Utils.setValueInConfig("bcrypt_log_rounds", "-1");
@@ -693,4 +784,479 @@ public class PasswordHashingTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void argon2HashesThatWaitLongerThanTheQueueTimeoutAreRejected() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("password_hashing_alg", "ARGON2");
+        Utils.setValueInConfig("argon2_hashing_pool_size", "1");
+        Utils.setValueInConfig("argon2_hashing_queue_timeout_ms", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // one argon2 hash with the default memory takes far longer than 1 ms, so most of these can't get the slot
+        int numberOfThreads = 20;
+        CountDownLatch startTogether = new CountDownLatch(1);
+        AtomicInteger hashed = new AtomicInteger(0);
+        AtomicInteger rejected = new AtomicInteger(0);
+        ExecutorService ex = Executors.newFixedThreadPool(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            ex.execute(() -> {
+                try {
+                    startTogether.await();
+                    PasswordHashing.getInstance(process.getProcess()).createHashWithSalt("somePassword");
+                    hashed.incrementAndGet();
+                } catch (ServiceUnavailableException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        startTogether.countDown();
+        ex.shutdown();
+        assertTrue(ex.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(hashed.get() >= 1);
+        assertTrue(rejected.get() >= 1);
+        assertEquals(numberOfThreads, hashed.get() + rejected.get());
+        assertEquals(0, PasswordHashing.getInstance(process.getProcess()).getBlockedQueueSize());
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        assertEquals(rejected.get(), metrics.getCounter("passwordHashing.argon2.rejected").get());
+        assertEquals(numberOfThreads, metrics.getHistogram("passwordHashing.argon2.waitTime").getCount());
+        assertEquals(hashed.get(), metrics.getHistogram("passwordHashing.argon2.hashTime").getCount());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void signInsWhoseHashIsShedDoNotFailWithWrongCredentials() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("password_hashing_alg", "ARGON2");
+        Utils.setValueInConfig("argon2_hashing_pool_size", "1");
+        Utils.setValueInConfig("argon2_hashing_queue_timeout_ms", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        EmailPassword.signUp(process.getProcess(), "test@example.com", "somePassword");
+
+        int numberOfThreads = 20;
+        CountDownLatch startTogether = new CountDownLatch(1);
+        AtomicInteger signedIn = new AtomicInteger(0);
+        AtomicInteger shed = new AtomicInteger(0);
+        AtomicInteger wrongCredentials = new AtomicInteger(0);
+        ExecutorService ex = Executors.newFixedThreadPool(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            ex.execute(() -> {
+                try {
+                    startTogether.await();
+                    EmailPassword.signIn(process.getProcess(), "test@example.com", "somePassword");
+                    signedIn.incrementAndGet();
+                } catch (ServiceUnavailableException e) {
+                    shed.incrementAndGet();
+                } catch (WrongCredentialsException e) {
+                    wrongCredentials.incrementAndGet();
+                } catch (Exception ignored) {
+                }
+            });
+        }
+        startTogether.countDown();
+        ex.shutdown();
+        assertTrue(ex.awaitTermination(1, TimeUnit.MINUTES));
+
+        // the password is right, so a sign in that was shed must not say that it's wrong
+        assertEquals(0, wrongCredentials.get());
+        assertTrue(shed.get() >= 1);
+        assertEquals(numberOfThreads, signedIn.get() + shed.get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void bcryptHashingPoolSizeDefaultsToHalfTheCores() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        assertEquals(Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+                Config.getConfig(process.getProcess()).getBcryptHashingPoolSize());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void bcryptHashesAreLimitedAndShedAfterTheQueueTimeout() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("password_hashing_alg", "BCRYPT");
+        Utils.setValueInConfig("bcrypt_log_rounds", "12");
+        Utils.setValueInConfig("bcrypt_hashing_pool_size", "1");
+        Utils.setValueInConfig("bcrypt_hashing_queue_timeout_ms", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        String hash = PasswordHashing.getInstance(process.getProcess()).createHashWithSalt("somePassword");
+
+        // with 12 rounds, one bcrypt verify takes far longer than 1 ms, so most of these can't get the only slot
+        int numberOfThreads = 10;
+        CountDownLatch startTogether = new CountDownLatch(1);
+        AtomicInteger verified = new AtomicInteger(0);
+        AtomicInteger rejected = new AtomicInteger(0);
+        ExecutorService ex = Executors.newFixedThreadPool(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            ex.execute(() -> {
+                try {
+                    startTogether.await();
+                    if (PasswordHashing.getInstance(process.getProcess()).verifyPasswordWithHash("somePassword",
+                            hash)) {
+                        verified.incrementAndGet();
+                    }
+                } catch (ServiceUnavailableException e) {
+                    rejected.incrementAndGet();
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        startTogether.countDown();
+        ex.shutdown();
+        assertTrue(ex.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(verified.get() >= 1);
+        assertTrue(rejected.get() >= 1);
+        assertEquals(numberOfThreads, verified.get() + rejected.get());
+
+        Metrics metrics = Metrics.getInstance(process.getProcess());
+        assertEquals(rejected.get(), metrics.getCounter("passwordHashing.bcrypt.rejected").get());
+        // + 1 for creating the hash
+        assertEquals(numberOfThreads + 1, metrics.getHistogram("passwordHashing.bcrypt.waitTime").getCount());
+        assertEquals(verified.get() + 1, metrics.getHistogram("passwordHashing.bcrypt.hashTime").getCount());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void asyncHashesAreComputedOnThePasswordHashingThreads() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(process.getProcess());
+        String hash = passwordHashing.createHashWithSaltAsync("somePassword").get();
+        assertTrue(passwordHashing.verifyPasswordWithHashAsync("somePassword", hash).get());
+        assertFalse(passwordHashing.verifyPasswordWithHashAsync("someOtherPassword", hash).get());
+        assertTrue(passwordHashing.verifyPasswordWithHash("somePassword", hash));
+
+        assertEquals(4, Metrics.getInstance(process.getProcess()).getHistogram("passwordHashing.bcrypt.hashTime")
+                .getCount());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void cancelledAsyncHashesThatHaveNotStartedAreSkipped() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("bcrypt_hashing_pool_size", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(process.getProcess());
+        Histogram hashTime = Metrics.getInstance(process.getProcess()).getHistogram("passwordHashing.bcrypt.hashTime");
+        long hashesBefore = hashTime.getCount();
+
+        // the first one runs on the only hashing thread, and the others wait for it in the queue
+        List<CompletableFuture<String>> hashes = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            hashes.add(passwordHashing.createHashWithSaltAsync("somePassword"));
+        }
+        for (int i = 1; i < hashes.size(); i++) {
+            assertTrue(hashes.get(i).cancel(false));
+        }
+        hashes.get(0).get();
+        // it is queued after the cancelled ones, so they have been skipped by the time that it is done
+        passwordHashing.createHashWithSaltAsync("somePassword").get();
+
+        assertEquals(hashesBefore + 2, hashTime.getCount());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void asyncHashesOverTheQueueSizeAreShedEvenWithoutAQueueTimeout() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("bcrypt_log_rounds", "12");
+        Utils.setValueInConfig("bcrypt_hashing_pool_size", "1");
+        // submitted hashes can wait in a queue of this size
+        Utils.setValueInConfig("max_server_pool_size", "2");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(process.getProcess());
+        String hash = passwordHashing.createHashWithSalt("somePassword");
+
+        // with 12 rounds, the first verify is still running while the others are submitted
+        int numberOfHashes = 10;
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfHashes; i++) {
+            futures.add(passwordHashing.verifyPasswordWithHashAsync("somePassword", hash));
+        }
+        int verified = 0;
+        int rejected = 0;
+        for (CompletableFuture<Boolean> future : futures) {
+            try {
+                if (future.get(1, TimeUnit.MINUTES)) {
+                    verified++;
+                }
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ServiceUnavailableException);
+                rejected++;
+            }
+        }
+
+        // one running and at most 2 waiting
+        assertTrue(verified >= 1 && verified <= 3);
+        assertEquals(numberOfHashes, verified + rejected);
+        assertEquals(rejected, Metrics.getInstance(process.getProcess()).getCounter("passwordHashing.bcrypt.rejected")
+                .get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void signInAPIRespondsWith503WhenItsHashIsShed() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("bcrypt_log_rounds", "12");
+        Utils.setValueInConfig("bcrypt_hashing_pool_size", "1");
+        Utils.setValueInConfig("bcrypt_hashing_queue_timeout_ms", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        EmailPassword.signUp(process.getProcess(), "test@example.com", "somePassword");
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("email", "test@example.com");
+        requestBody.addProperty("password", "somePassword");
+
+        int numberOfThreads = 10;
+        CountDownLatch startTogether = new CountDownLatch(1);
+        AtomicInteger signedIn = new AtomicInteger(0);
+        AtomicInteger shed = new AtomicInteger(0);
+        ExecutorService ex = Executors.newFixedThreadPool(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            ex.execute(() -> {
+                try {
+                    startTogether.await();
+                    JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                            "http://localhost:3567/recipe/signin", requestBody, 1000, 10000, null,
+                            Utils.getCdiVersion2_7ForTests(), "emailpassword");
+                    // a shed hash must never look like a wrong password
+                    if (response.get("status").getAsString().equals("OK")) {
+                        signedIn.incrementAndGet();
+                    }
+                } catch (HttpResponseException e) {
+                    if (e.statusCode == 503) {
+                        shed.incrementAndGet();
+                    }
+                } catch (Exception ignored) {
+                }
+            });
+        }
+        startTogether.countDown();
+        ex.shutdown();
+        assertTrue(ex.awaitTermination(1, TimeUnit.MINUTES));
+
+        assertTrue(signedIn.get() >= 1);
+        assertTrue(shed.get() >= 1);
+        assertEquals(numberOfThreads, signedIn.get() + shed.get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void hashesWithOtherParametersThanTheConfigAreOutdated() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("argon2_memory_kb", "100");
+        Utils.setValueInConfig("argon2_parallelism", "2");
+        Utils.setValueInConfig("argon2_iterations", "10");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        PasswordHashing passwordHashing = PasswordHashing.getInstance(process.getProcess());
+
+        // bcrypt_log_rounds is 11
+        assertFalse(passwordHashing.isHashOutdated(BCrypt.hashpw("somePass", BCrypt.gensalt(11))));
+        assertTrue(passwordHashing.isHashOutdated(BCrypt.hashpw("somePass", BCrypt.gensalt(10))));
+        assertTrue(passwordHashing.isHashOutdated("$argon2id$v=19$m=100,t=10,p=2$c29tZVNhbHQ$c29tZUhhc2g"));
+        assertFalse(passwordHashing.isHashOutdated("notAHash"));
+
+        Config.getConfig(process.getProcess()).setPasswordHashingAlg(CoreConfig.PASSWORD_HASHING_ALG.ARGON2);
+        assertFalse(passwordHashing.isHashOutdated("$argon2id$v=19$m=100,t=10,p=2$c29tZVNhbHQ$c29tZUhhc2g"));
+        assertTrue(passwordHashing.isHashOutdated("$argon2id$v=19$m=100,t=9,p=2$c29tZVNhbHQ$c29tZUhhc2g"));
+        assertTrue(passwordHashing.isHashOutdated("$argon2id$v=19$m=200,t=10,p=2$c29tZVNhbHQ$c29tZUhhc2g"));
+        assertTrue(passwordHashing.isHashOutdated("$argon2id$v=19$m=100,t=10,p=1$c29tZVNhbHQ$c29tZUhhc2g"));
+        assertTrue(passwordHashing.isHashOutdated(BCrypt.hashpw("somePass", BCrypt.gensalt(11))));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void signInUpgradesAnOutdatedPasswordHash() throws Exception {
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        UserInfo user = EmailPassword.signUp(process.getProcess(), "t@example.com", "somePass");
+        assertTrue(user.passwordHash.startsWith("$2a$11$"));
+
+        Config.getConfig(process.getProcess()).setPasswordHashingAlg(CoreConfig.PASSWORD_HASHING_ALG.ARGON2);
+
+        EmailPassword.signIn(process.getProcess(), "t@example.com", "somePass");
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.PASSWORD_HASH_UPGRADED));
+
+        String upgradedHash = EmailPassword.getUserUsingId(process.getProcess(), user.id).passwordHash;
+        assertTrue(upgradedHash.startsWith("$argon2id$"));
+        assertFalse(PasswordHashing.getInstance(process.getProcess()).isHashOutdated(upgradedHash));
+        assertEquals(1, Metrics.getInstance(process.getProcess()).getCounter("passwordHashing.upgraded").get());
+
+        // the upgraded hash is used from now on, and is not upgraded again
+        ProcessState.getInstance(process.getProcess()).clear();
+        EmailPassword.signIn(process.getProcess(), "t@example.com", "somePass");
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.PASSWORD_VERIFY_ARGON));
+        assertEquals(upgradedHash, EmailPassword.getUserUsingId(process.getProcess(), user.id).passwordHash);
+        assertEquals(1, Metrics.getInstance(process.getProcess()).getCounter("passwordHashing.upgraded").get());
+
+        try {
+            EmailPassword.signIn(process.getProcess(), "t@example.com", "wrongPass");
+            fail();
+        } catch (WrongCredentialsException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void unknownEmailSignInsAreDelayedWithoutHashingWhenTimingEqualisationIsEnabled() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("sign_in_timing_equalisation", "true");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        assertTrue(Config.getConfig(process.getProcess()).isSignInTimingEqualisationEnabled());
+        // the dummy hash that is created and verified when the core starts
+        Histogram hashTime = Metrics.getInstance(process.getProcess()).getHistogram("passwordHashing.bcrypt.hashTime");
+        assertEquals(2, hashTime.getCount());
+
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            try {
+                EmailPassword.signIn(process.getProcess(), "unknown@example.com", "somePass");
+                fail();
+            } catch (WrongCredentialsException ignored) {
+            }
+            // a bcrypt hash with 11 log rounds takes way longer than this
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("email", "unknown@example.com");
+        requestBody.addProperty("password", "somePass");
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/signin", requestBody, 1000, 10000, null,
+                Utils.getCdiVersion2_7ForTests(), "emailpassword");
+        assertEquals("WRONG_CREDENTIALS_ERROR", response.get("status").getAsString());
+
+        // none of those sign ins hashed anything
+        assertEquals(2, hashTime.getCount());
+
+        EmailPassword.signUp(process.getProcess(), "t@example.com", "somePass");
+        EmailPassword.signIn(process.getProcess(), "t@example.com", "somePass");
+        assertEquals(4, hashTime.getCount());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void unknownEmailSignInsWaitForTheHashingQueueLikeKnownOnes() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("sign_in_timing_equalisation", "true");
+        Utils.setValueInConfig("bcrypt_hashing_pool_size", "1");
+        Utils.setValueInConfig("bcrypt_hashing_queue_timeout_ms", "1");
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        UserInfo user = EmailPassword.signUp(process.getProcess(), "t@example.com", "somePass");
+
+        // one of them runs on the only hashing thread, and the others wait for it in the queue
+        List<CompletableFuture<Boolean>> verifications = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            verifications.add(PasswordHashing.getInstance(process.getProcess())
+                    .verifyPasswordWithHashAsync("somePass", user.passwordHash));
+        }
+
+        // a known email would not get the hashing thread within the 1 ms timeout, so neither does an unknown one
+        try {
+            EmailPassword.signIn(process.getProcess(), "unknown@example.com", "somePass");
+            fail();
+        } catch (ServiceUnavailableException ignored) {
+        }
+
+        for (CompletableFuture<Boolean> verification : verifications) {
+            try {
+                verification.get();
+            } catch (ExecutionException ignored) {
+                // the ones that were queued time out
+            }
+        }
+
+        // the queue is empty again
+        try {
+            EmailPassword.signIn(process.getProcess(), "unknown@example.com", "somePass");
+            fail();
+        } catch (WrongCredentialsException ignored) {
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
@@ -31,8 +31,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static io.supertokens.test.passwordless.PasswordlessUtility.*;
 import static org.junit.Assert.*;
@@ -323,6 +327,63 @@ public class PasswordlessDevicesTest {
 
     }
 
+    /**
+     * returns every code of every device when the devices have several codes each
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getDevicesFromEmailWithMultipleCodesPerDevice() throws Exception {
+
+        int NUMBER_OF_DEVICES = 3;
+        int NUMBER_OF_CODES_PER_DEVICE = 4;
+
+        String[] args = { "../" };
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Map<String, Set<String>> codeIdsByDeviceIdHash = new HashMap<>();
+        for (int device = 0; device < NUMBER_OF_DEVICES; device++) {
+            Passwordless.CreateCodeResponse createCodeResponse = Passwordless.createCode(process.getProcess(), EMAIL,
+                    null, null, null);
+            Set<String> codeIds = new HashSet<>();
+            codeIds.add(createCodeResponse.codeId);
+            for (int code = 1; code < NUMBER_OF_CODES_PER_DEVICE; code++) {
+                codeIds.add(Passwordless.createCode(process.getProcess(), null, null, createCodeResponse.deviceId,
+                        null).codeId);
+            }
+            codeIdsByDeviceIdHash.put(createCodeResponse.deviceIdHash, codeIds);
+        }
+        // a device of someone else, whose codes should not show up
+        Passwordless.createCode(process.getProcess(), "other@example.com", null, null, null);
+
+        List<Passwordless.DeviceWithCodes> list = Passwordless.getDevicesWithCodesByEmail(process.getProcess(), EMAIL);
+
+        assertEquals(NUMBER_OF_DEVICES, list.size());
+        for (Passwordless.DeviceWithCodes deviceWithCodes : list) {
+            assertEquals(EMAIL, deviceWithCodes.device.email);
+            Set<String> expectedCodeIds = codeIdsByDeviceIdHash.remove(deviceWithCodes.device.deviceIdHash);
+            assertNotNull(expectedCodeIds);
+
+            Set<String> codeIds = new HashSet<>();
+            for (PasswordlessCode code : deviceWithCodes.codes) {
+                assertEquals(deviceWithCodes.device.deviceIdHash, code.deviceIdHash);
+                codeIds.add(code.id);
+            }
+            assertEquals(expectedCodeIds, codeIds);
+        }
+        assertTrue(codeIdsByDeviceIdHash.isEmpty());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+
+    }
+
     /**
      * getDevicesWithCodesByPhoneNumber
      */
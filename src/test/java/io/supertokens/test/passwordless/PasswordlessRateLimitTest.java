@@ -0,0 +1,256 @@
+/*
+ *    Copyright (c) 2022, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+
+package io.supertokens.test.passwordless;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.cronjobs.removeIdlePasswordlessRateLimitKeys.RemoveIdlePasswordlessRateLimitKeys;
+import io.supertokens.exceptions.TooManyRequestsException;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.passwordless.Passwordless;
+import io.supertokens.passwordless.exceptions.IncorrectUserInputCodeException;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.passwordless.PasswordlessDevice;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.test.httpRequest.HttpResponseException;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static io.supertokens.test.passwordless.PasswordlessUtility.*;
+import static org.junit.Assert.*;
+
+public class PasswordlessRateLimitTest {
+
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    @Test
+    public void codesAreNotLimitedByDefault() throws Exception {
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        for (int i = 0; i < 20; i++) {
+            Passwordless.createCode(process.getProcess(), EMAIL, null, null, null);
+        }
+        assertEquals(20, Passwordless.getDevicesWithCodesByEmail(process.getProcess(), EMAIL).size());
+        assertEquals(0, Metrics.getInstance(process.getProcess())
+                .getCounter("passwordless.rateLimit.createCode.rejected").get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void codesCreatedOverTheLimitAreRejectedPerEmailPhoneNumberAndDevice() throws Exception {
+        Utils.setValueInConfig("passwordless_max_codes_per_window", "2");
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Passwordless.CreateCodeResponse first = Passwordless.createCode(process.getProcess(), EMAIL, null, null,
+                null);
+        Passwordless.createCode(process.getProcess(), EMAIL, null, null, null);
+        try {
+            Passwordless.createCode(process.getProcess(), EMAIL, null, null, null);
+            fail();
+        } catch (TooManyRequestsException ignored) {
+        }
+        assertEquals(2, Passwordless.getDevicesWithCodesByEmail(process.getProcess(), EMAIL).size());
+
+        // the limits of other emails, phone numbers and devices are separate
+        Passwordless.createCode(process.getProcess(), "other@example.com", null, null, null);
+        Passwordless.createCode(process.getProcess(), null, PHONE_NUMBER, null, null);
+        Passwordless.createCode(process.getProcess(), null, null, first.deviceId, null);
+        Passwordless.createCode(process.getProcess(), null, null, first.deviceId, null);
+        try {
+            Passwordless.createCode(process.getProcess(), null, null, first.deviceId, null);
+            fail();
+        } catch (TooManyRequestsException ignored) {
+        }
+        assertEquals(3, Passwordless.getDeviceWithCodesById(process.getProcess(), first.deviceId).codes.length);
+
+        assertEquals(2, Metrics.getInstance(process.getProcess())
+                .getCounter("passwordless.rateLimit.createCode.rejected").get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void codesCanBeCreatedAgainOnceTheWindowHasPassed() throws Exception {
+        Utils.setValueInConfig("passwordless_max_codes_per_window", "1");
+        Utils.setValueInConfig("passwordless_rate_limit_window_ms", "1000");
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Passwordless.createCode(process.getProcess(), EMAIL, null, null, null);
+        try {
+            Passwordless.createCode(process.getProcess(), EMAIL, null, null, null);
+            fail();
+        } catch (TooManyRequestsException ignored) {
+        }
+
+        Thread.sleep(1100);
+
+        Passwordless.createCode(process.getProcess(), EMAIL, null, null, null);
+        assertEquals(2, Passwordless.getDevicesWithCodesByEmail(process.getProcess(), EMAIL).size());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void idleEmailsAreForgottenByTheCronjob() throws Exception {
+        Utils.setValueInConfig("passwordless_max_codes_per_window", "5");
+        Utils.setValueInConfig("passwordless_rate_limit_window_ms", "1000");
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args, false);
+        CronTaskTest.getInstance(process.getProcess())
+                .setIntervalInSeconds(RemoveIdlePasswordlessRateLimitKeys.RESOURCE_KEY, 1);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        for (int i = 0; i < 10; i++) {
+            Passwordless.createCode(process.getProcess(), "test" + i + "@example.com", null, null, null);
+        }
+        assertEquals(10, getGauge(process, "passwordless.rateLimit.createCode.keys"));
+
+        // a window for the keys to become idle, and a bit more for the cronjob to run after that
+        Thread.sleep(2500);
+
+        assertEquals(0, getGauge(process, "passwordless.rateLimit.createCode.keys"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void userInputCodeAttemptsOverTheLimitAreRejectedWithoutCountingAsFailedAttempts() throws Exception {
+        Utils.setValueInConfig("passwordless_max_code_consumes_per_window", "2");
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        Passwordless.CreateCodeResponse createCodeResponse = Passwordless.createCode(process.getProcess(), EMAIL, null,
+                null, null);
+        for (int i = 0; i < 2; i++) {
+            try {
+                Passwordless.consumeCode(process.getProcess(), createCodeResponse.deviceId,
+                        createCodeResponse.deviceIdHash, "n0p321", null);
+                fail();
+            } catch (IncorrectUserInputCodeException ignored) {
+            }
+        }
+        try {
+            Passwordless.consumeCode(process.getProcess(), createCodeResponse.deviceId,
+                    createCodeResponse.deviceIdHash, createCodeResponse.userInputCode, null);
+            fail();
+        } catch (TooManyRequestsException ignored) {
+        }
+
+        PasswordlessDevice device = StorageLayer.getPasswordlessStorage(process.getProcess())
+                .getDevice(createCodeResponse.deviceIdHash);
+        assertEquals(2, device.failedAttempts);
+        assertEquals(1, Metrics.getInstance(process.getProcess())
+                .getCounter("passwordless.rateLimit.consumeCode.rejected").get());
+
+        // link codes are not limited
+        Passwordless.ConsumeCodeResponse consumeCodeResponse = Passwordless.consumeCode(process.getProcess(), null,
+                createCodeResponse.deviceIdHash, null, createCodeResponse.linkCode);
+        assertEquals(EMAIL, consumeCodeResponse.user.email);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void createCodeAPIRespondsWith429OverTheLimit() throws Exception {
+        Utils.setValueInConfig("passwordless_max_codes_per_window", "1");
+        String[] args = { "../" };
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        JsonObject createCodeRequestBody = new JsonObject();
+        createCodeRequestBody.addProperty("email", EMAIL);
+        JsonObject response = HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/signinup/code", createCodeRequestBody, 1000, 1000, null,
+                Utils.getCdiVersion2_10ForTests(), "passwordless");
+        assertEquals("OK", response.get("status").getAsString());
+
+        HttpResponseException error = null;
+        try {
+            HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/signinup/code", createCodeRequestBody, 1000, 1000, null,
+                    Utils.getCdiVersion2_10ForTests(), "passwordless");
+        } catch (HttpResponseException ex) {
+            error = ex;
+        }
+        assertNotNull(error);
+        assertEquals(429, error.statusCode);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static long getGauge(TestingProcessManager.TestingProcess process, String name) {
+        return Metrics.getInstance(process.getProcess()).toJson().getAsJsonObject("gauges").get(name).getAsLong();
+    }
+}
@@ -16,8 +16,12 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
 import io.supertokens.cronjobs.deleteExpiredSessions.DeleteExpiredSessions;
+import io.supertokens.metrics.Metrics;
+import io.supertokens.session.Session;
+import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
 import org.junit.AfterClass;
@@ -50,7 +54,39 @@ public class DeleteExpiredSessionsTest {
         TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
 
-        assertEquals(DeleteExpiredSessions.getInstance(process.getProcess()).getIntervalTimeSeconds(), (12 * 3600));
+        assertEquals(DeleteExpiredSessions.getInstance(process.getProcess()).getIntervalTimeSeconds(), 3600);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatExpiredSessionsAreDeletedInBatches() throws Exception {
+        String[] args = { "../" };
+
+        Utils.setValueInConfig("refresh_token_validity", "" + 1.0 / 60.0);
+        Utils.setValueInConfig("expired_sessions_purge_batch_size", "2");
+        Utils.setValueInConfig("expired_sessions_purge_batch_pause_ms", "0");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        for (int i = 0; i < 5; i++) {
+            Session.createNewSession(process.getProcess(), "userId", new JsonObject(), new JsonObject(), false);
+        }
+        assertEquals(5, StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions());
+
+        Thread.sleep(1500);
+
+        DeleteExpiredSessions.getInstance(process.getProcess()).run();
+
+        assertEquals(0, StorageLayer.getSessionStorage(process.getProcess()).getNumberOfSessions());
+
+        JsonObject metrics = Metrics.getInstance(process.getProcess()).toJson();
+        assertEquals(5,
+                metrics.getAsJsonObject("counters").get("cronjobs.deleteExpiredSessions.rowsPurged").getAsLong());
+        assertEquals(5, metrics.getAsJsonObject("gauges").get("cronjobs.deleteExpiredSessions.rowsPurgedInLastRun")
+                .getAsLong());
 
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));